@@ -0,0 +1,102 @@
+package com.habitforge.habitforge_backend.config;
+
+import com.habitforge.habitforge_backend.model.CompletionBitmap;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Flyway V3: moves the old habit_completed_days join table into habit.completion_bitmap.
+ * Merges every legacy row into the owning habit's bitmap, then drops the table. Runs after V2 adds the column;
+ * Spring Boot hands every JavaMigration bean to Flyway.
+ */
+@Component
+public class CompletedDaysMigration implements JavaMigration {
+
+    private static final Logger LOGGER = Logger.getLogger(CompletedDaysMigration.class.getName());
+    private static final String LEGACY_TABLE = "habit_completed_days";
+
+    @Override
+    public MigrationVersion getVersion() {
+        return MigrationVersion.fromVersion("3");
+    }
+
+    @Override
+    public String getDescription() {
+        return "completed days to bitmap";
+    }
+
+    @Override
+    public Integer getChecksum() {
+        return null;
+    }
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return true;
+    }
+
+    @Override
+    public void migrate(Context context) {
+        // Flyway's connection and transaction; suppressClose keeps the template from closing it
+        JdbcTemplate jdbc = new JdbcTemplate(new SingleConnectionDataSource(context.getConnection(), true));
+
+        List<Object[]> updates = new ArrayList<>();
+        List<LocalDate> days = new ArrayList<>();
+        Long[] currentHabit = {null};
+
+        jdbc.query("SELECT habit_id, completed_days FROM " + LEGACY_TABLE + " ORDER BY habit_id", rs -> {
+            long habitId = rs.getLong(1);
+            if (currentHabit[0] != null && currentHabit[0] != habitId) {
+                addUpdate(jdbc, currentHabit[0], days, updates);
+                days.clear();
+            }
+            currentHabit[0] = habitId;
+            LocalDate day = rs.getObject(2, LocalDate.class);
+            if (day != null) days.add(day);
+        });
+        if (currentHabit[0] != null) {
+            addUpdate(jdbc, currentHabit[0], days, updates);
+        }
+
+        if (!updates.isEmpty()) {
+            jdbc.batchUpdate("UPDATE habit SET start_date = ?, completion_bitmap = ? WHERE id = ?", updates);
+        }
+        jdbc.execute("DROP TABLE " + LEGACY_TABLE);
+        LOGGER.info("Migrated completed days of " + updates.size() + " habits into completion bitmaps");
+    }
+
+    private void addUpdate(JdbcTemplate jdbc, long habitId, List<LocalDate> legacyDays, List<Object[]> updates) {
+        List<Object[]> current = jdbc.query(
+                "SELECT start_date, completion_bitmap FROM habit WHERE id = ?",
+                (rs, i) -> new Object[] { rs.getObject(1, LocalDate.class), rs.getBytes(2) },
+                habitId);
+        if (current.isEmpty()) return;
+
+        LocalDate startDate = (LocalDate) current.get(0)[0];
+        byte[] existing = (byte[]) current.get(0)[1];
+
+        List<LocalDate> allDays = new ArrayList<>(legacyDays);
+        if (startDate != null) {
+            allDays.addAll(CompletionBitmap.decode(startDate, existing).toDates());
+        }
+
+        // The bitmap cannot hold days before its anchor, so pull the start date back if needed
+        LocalDate anchor = startDate;
+        for (LocalDate day : allDays) {
+            if (anchor == null || day.isBefore(anchor)) anchor = day;
+        }
+        if (anchor == null) return;
+
+        CompletionBitmap bitmap = CompletionBitmap.of(anchor, allDays);
+        updates.add(new Object[] { anchor, bitmap.encode(), habitId });
+    }
+}
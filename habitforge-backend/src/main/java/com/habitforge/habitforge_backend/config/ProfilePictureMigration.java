@@ -0,0 +1,82 @@
+package com.habitforge.habitforge_backend.config;
+
+import com.habitforge.habitforge_backend.service.ProfilePictureStore;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Flyway V4: moves the old users.profile_picture BYTEA column into ProfilePictureStore.
+ * Streams the rows, stores each image by hash, records the hash on the user, then drops the column.
+ * Files are written before the transaction commits; a retry after a failed run finds them in place under the same hash.
+ */
+@Component
+public class ProfilePictureMigration implements JavaMigration {
+
+    private static final Logger LOGGER = Logger.getLogger(ProfilePictureMigration.class.getName());
+    private static final String LEGACY_COLUMN = "profile_picture";
+
+    private final ProfilePictureStore store;
+
+    public ProfilePictureMigration(ProfilePictureStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public MigrationVersion getVersion() {
+        return MigrationVersion.fromVersion("4");
+    }
+
+    @Override
+    public String getDescription() {
+        return "profile pictures to store";
+    }
+
+    @Override
+    public Integer getChecksum() {
+        return null;
+    }
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return true;
+    }
+
+    @Override
+    public void migrate(Context context) {
+        JdbcTemplate jdbc = new JdbcTemplate(new SingleConnectionDataSource(context.getConnection(), true));
+
+        List<Object[]> updates = new ArrayList<>();
+        jdbc.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(
+                    "SELECT id, " + LEGACY_COLUMN + " FROM users WHERE " + LEGACY_COLUMN + " IS NOT NULL");
+            statement.setFetchSize(16); // Keep only a few images in memory at a time
+            return statement;
+        }, rs -> {
+            byte[] image = rs.getBytes(2);
+            if (image == null || image.length == 0) return;
+            try {
+                updates.add(new Object[] { store.store(new ByteArrayInputStream(image)), rs.getLong(1) });
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to move profile picture of user " + rs.getLong(1), e);
+            }
+        });
+
+        if (!updates.isEmpty()) {
+            jdbc.batchUpdate("UPDATE users SET profile_picture_hash = ? WHERE id = ?", updates);
+        }
+        jdbc.execute("ALTER TABLE users DROP COLUMN " + LEGACY_COLUMN);
+        LOGGER.info("Moved " + updates.size() + " profile pictures into the content-addressed store");
+    }
+}
@@ -0,0 +1,78 @@
+package com.habitforge.habitforge_backend.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Sends @Transactional(readOnly = true) work to read replicas when habitforge.datasource.replica-urls is set;
+ * without it Spring Boot's single auto-configured pool is used as before.
+ * The exposed DataSource hands out connections lazily, so the pool is chosen once the transaction is known to be
+ * read-only: writes go to the primary, reads to ReplicaRoutingDataSource. Replicas use the primary's credentials;
+ * pool sizes come from habitforge.datasource.*-pool-size rather than spring.datasource.hikari.*.
+ */
+@Configuration
+@ConditionalOnProperty(name = "habitforge.datasource.replica-urls")
+public class ReadReplicaConfig implements DisposableBean {
+
+    private static final Logger LOGGER = Logger.getLogger(ReadReplicaConfig.class.getName());
+
+    // Not beans of their own, so nothing can inject a pool and bypass the routing
+    private final List<HikariDataSource> pools = new ArrayList<>();
+
+    @Bean
+    public ReadYourWrites readYourWrites(
+            @Value("${habitforge.datasource.read-your-writes-ms:5000}") long windowMillis,
+            @Value("${habitforge.datasource.read-your-writes-cache-size:10000}") int maxSize) {
+        return new ReadYourWrites(windowMillis, maxSize);
+    }
+
+    @Bean
+    public DataSource dataSource(DataSourceProperties properties, ReadYourWrites readYourWrites, MeterRegistry meterRegistry,
+                                 @Value("${habitforge.datasource.replica-urls}") List<String> replicaUrls,
+                                 @Value("${habitforge.datasource.primary-pool-size:10}") int primaryPoolSize,
+                                 @Value("${habitforge.datasource.replica-pool-size:10}") int replicaPoolSize) {
+        HikariDataSource primary = pool(properties, properties.determineUrl(), "habitforge-primary", primaryPoolSize, meterRegistry);
+
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : replicaUrls) {
+            if (url.isBlank()) continue;
+            HikariDataSource replica = pool(properties, url.trim(), "habitforge-replica-" + replicas.size(),
+                    replicaPoolSize, meterRegistry);
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+        LOGGER.info("Routing read-only transactions to " + replicas.size() + " replica(s)");
+
+        LazyConnectionDataSourceProxy routing = new LazyConnectionDataSourceProxy(primary);
+        routing.setReadOnlyDataSource(new ReplicaRoutingDataSource(primary, replicas, readYourWrites));
+        return routing;
+    }
+
+    @Override
+    public void destroy() {
+        pools.forEach(HikariDataSource::close);
+    }
+
+    private HikariDataSource pool(DataSourceProperties properties, String url, String name, int size,
+                                  MeterRegistry meterRegistry) {
+        HikariDataSource pool = properties.initializeDataSourceBuilder().type(HikariDataSource.class).url(url).build();
+        pool.setPoolName(name);
+        pool.setMaximumPoolSize(size);
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        pools.add(pool);
+        return pool;
+    }
+}
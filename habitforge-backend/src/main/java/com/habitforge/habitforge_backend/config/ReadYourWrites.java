@@ -0,0 +1,80 @@
+package com.habitforge.habitforge_backend.config;
+
+import com.habitforge.habitforge_backend.security.AuthenticatedUser;
+import com.habitforge.habitforge_backend.util.BoundedMap;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.lang.NonNull;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers which users changed something in the last few seconds, so their own reads go to the primary
+ * instead of a replica that may not have caught up. Runs after the security chain has authenticated the
+ * request, and marks the user when a non-GET request of theirs starts and again when it has finished.
+ */
+public class ReadYourWrites extends OncePerRequestFilter {
+
+    private final long windowNanos;
+    private final BoundedMap<Long, Long> stickyUntil;
+
+    public ReadYourWrites(long windowMillis, int maxSize) {
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.stickyUntil = new BoundedMap<>(maxSize);
+    }
+
+    public void markWrite(Long userId) {
+        if (userId == null) return;
+        // Full: expired marks go first; worst case a read goes to a replica
+        long now = System.nanoTime();
+        stickyUntil.put(userId, now + windowNanos, until -> until - now <= 0);
+    }
+
+    public boolean isSticky(Long userId) {
+        if (userId == null) return false;
+        Long until = stickyUntil.get(userId);
+        if (until == null) return false;
+        if (until - System.nanoTime() > 0) return true;
+        stickyUntil.remove(userId, until);
+        return false;
+    }
+
+    // The user the current thread is serving, if it is an authenticated request
+    public boolean isStickyForCurrentUser() {
+        return isSticky(currentUserId());
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain)
+            throws ServletException, IOException {
+        String method = request.getMethod();
+        if ("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        // Before, so a read the client sends as soon as the response arrives is already sticky: the response
+        // can be flushed before this filter regains control. After, so the window runs from the commit.
+        Long userId = currentUserId();
+        markWrite(userId);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            markWrite(userId != null ? userId : currentUserId());
+        }
+    }
+
+    private static Long currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser user
+                ? user.userId() : null;
+    }
+}
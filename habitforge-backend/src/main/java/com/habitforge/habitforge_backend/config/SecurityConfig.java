@@ -1,14 +1,22 @@
 package com.habitforge.habitforge_backend.config;
 
+import com.habitforge.habitforge_backend.security.BoundedPasswordEncoder;
 import com.habitforge.habitforge_backend.security.JwtFilter;
+import com.habitforge.habitforge_backend.security.RateLimitFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.DispatcherType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.autoconfigure.web.server.ManagementPortType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
@@ -22,9 +30,31 @@ import java.util.List;
 public class SecurityConfig {
 
     private final JwtFilter jwtFilter;
+    private final RateLimitFilter rateLimitFilter;
 
-    public SecurityConfig(JwtFilter jwtFilter) {
+    public SecurityConfig(JwtFilter jwtFilter, RateLimitFilter rateLimitFilter) {
         this.jwtFilter = jwtFilter;
+        this.rateLimitFilter = rateLimitFilter;
+    }
+
+    // Actuator is served on management.server.port, which is reachable only from the internal network. Endpoint
+    // requests match only there when that port differs; if someone folds it back into the API port, deny instead.
+    @Bean
+    @Order(1)
+    public SecurityFilterChain managementSecurityFilterChain(HttpSecurity http, Environment environment) throws Exception {
+        boolean separatePort = ManagementPortType.get(environment) == ManagementPortType.DIFFERENT;
+        http
+            .securityMatcher(EndpointRequest.toAnyEndpoint())
+            .csrf(csrf -> csrf.disable())
+            .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+            .authorizeHttpRequests(auth -> {
+                if (separatePort) {
+                    auth.anyRequest().permitAll();
+                } else {
+                    auth.anyRequest().denyAll();
+                }
+            });
+        return http.build();
     }
 
     @Bean
@@ -35,6 +65,8 @@ public class SecurityConfig {
             .formLogin(form -> form.disable())
             .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(auth -> auth
+                // Re-dispatch of an already authorized async request, e.g. when a /api/habits/stream connection ends
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers("/", "/index.html").permitAll()
 
                 .requestMatchers(HttpMethod.POST,
@@ -54,11 +86,14 @@ public class SecurityConfig {
                 .requestMatchers(HttpMethod.POST, "/api/users/set-username").authenticated()
                 .requestMatchers(HttpMethod.POST, "/api/users/*/upload-profile-picture").authenticated()
                 .requestMatchers(HttpMethod.PUT, "/api/users/*/mark-prompted").authenticated()
+                .requestMatchers(HttpMethod.PUT, "/api/users/time-zone").authenticated()
                 .requestMatchers("/api/habits/**").authenticated()
 
                 .anyRequest().denyAll()
             )
-            .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class);
+            .addFilterBefore(jwtFilter, UsernamePasswordAuthenticationFilter.class)
+            // Throttled requests are turned away before any token parsing, hashing or database work
+            .addFilterBefore(rateLimitFilter, JwtFilter.class);
 
         return http.build();
     }
@@ -68,9 +103,14 @@ public class SecurityConfig {
         return config.getAuthenticationManager();
     }
 
+    // BCrypt off the request threads, on a CPU-sized pool with a bounded queue
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(
+            @Value("${habitforge.password.bcrypt-strength:10}") int strength,
+            @Value("${habitforge.password.threads:0}") int threads,
+            @Value("${habitforge.password.queue-capacity:64}") int queueCapacity,
+            MeterRegistry meterRegistry) {
+        return new BoundedPasswordEncoder(strength, threads, queueCapacity, meterRegistry);
     }
 
     @Bean
@@ -86,8 +126,8 @@ public class SecurityConfig {
         // ✅ Required headers
         config.setAllowedHeaders(List.of("Authorization", "Content-Type"));
 
-        // ✅ Expose Authorization so client can read headers if needed
-        config.setExposedHeaders(List.of("Authorization"));
+        // ✅ Expose Authorization, the habit list cursor and Retry-After (429s) so client can read headers if needed
+        config.setExposedHeaders(List.of("Authorization", "X-Next-Cursor", "Retry-After"));
 
         // ✅ Important for cookies/auth headers
         config.setAllowCredentials(true);
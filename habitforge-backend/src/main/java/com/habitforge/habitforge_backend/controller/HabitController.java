@@ -1,13 +1,27 @@
 package com.habitforge.habitforge_backend.controller;
 
+import com.habitforge.habitforge_backend.dto.CheckInBatchRequest;
+import com.habitforge.habitforge_backend.dto.CheckInBatchResult;
 import com.habitforge.habitforge_backend.dto.HabitDTO;
 import com.habitforge.habitforge_backend.dto.HabitEditDTO;
+import com.habitforge.habitforge_backend.dto.HabitList;
+import com.habitforge.habitforge_backend.dto.HabitPage;
+import com.habitforge.habitforge_backend.dto.HabitStatsDTO;
 import com.habitforge.habitforge_backend.model.HabitReminder;
+import com.habitforge.habitforge_backend.security.AuthenticatedUser;
+import com.habitforge.habitforge_backend.service.CheckInBatchService;
 import com.habitforge.habitforge_backend.service.HabitReminderService;
 import com.habitforge.habitforge_backend.service.HabitService;
+import com.habitforge.habitforge_backend.service.HabitStreamHub;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 import java.util.Optional;
@@ -16,47 +30,90 @@ import java.util.Optional;
 @RequestMapping("/api/habits")
 public class HabitController {
 
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final HabitService habitService;
     private final HabitReminderService reminderService;
+    private final CheckInBatchService checkInBatchService;
+    private final HabitStreamHub streamHub;
 
-    public HabitController(HabitService habitService, HabitReminderService reminderService) {
+    public HabitController(HabitService habitService, HabitReminderService reminderService,
+                           CheckInBatchService checkInBatchService, HabitStreamHub streamHub) {
         this.habitService = habitService;
         this.reminderService = reminderService;
+        this.checkInBatchService = checkInBatchService;
+        this.streamHub = streamHub;
     }
 
     // Create a new habit
     @PostMapping("/create")
     public ResponseEntity<HabitDTO> createHabit(@RequestBody HabitCreateRequest request, Authentication auth) {
-        String username = auth.getName();
         if (request.title() == null || request.title().trim().isEmpty() || request.targetDays() <= 0) {
             return ResponseEntity.badRequest().build();
         }
-        HabitDTO habit = habitService.createHabit(username, request.title(), request.targetDays());
+        HabitDTO habit = habitService.createHabit(userId(auth), request.title(), request.targetDays());
         return (habit != null) ? ResponseEntity.ok(habit) : ResponseEntity.badRequest().build();
     }
 
-    // Get all habits for the logged-in user
+    // Get all habits for the logged-in user. The ETag is the user's habit-list version, so an unchanged
+    // list costs one small query and a 304; ?since=<version> returns only what changed after that version.
     @GetMapping
-    public ResponseEntity<List<HabitDTO>> getHabits(Authentication auth) {
-        List<HabitDTO> habits = habitService.getUserHabits(auth.getName());
-        return ResponseEntity.ok(habits);
+    public ResponseEntity<?> getHabits(@RequestParam(required = false) Long since,
+                                       Authentication auth, WebRequest webRequest) {
+        Long userId = userId(auth);
+        if (since != null) {
+            return ResponseEntity.ok().cacheControl(CacheControl.noStore())
+                    .body(habitService.getHabitsChangedSince(userId, since));
+        }
+
+        HabitList list = habitService.getUserHabitList(userId,
+                version -> webRequest.checkNotModified(listEtag(userId, version)));
+        String etag = listEtag(userId, list.version());
+        CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+        if (list.habits() == null) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok().eTag(etag).cacheControl(cacheControl).body(list.habits());
     }
 
-    // Check in to a habit for today
+    private static String listEtag(Long userId, long version) {
+        return "\"" + userId + "." + version + "\"";
+    }
+
+    // Server-sent events: "version" once on connect, then "habits" with a HabitDelta after every change
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(Authentication auth) {
+        return streamHub.subscribe(userId(auth));
+    }
+
+    // Check in to a habit for today; returns the updated habit
     @PostMapping("/{habitId}/check-in")
-    public ResponseEntity<String> checkIn(@PathVariable Long habitId, Authentication auth) {
-        boolean success = habitService.checkInHabit(auth.getName(), habitId);
-        if (success) {
-            return ResponseEntity.ok("Check-in successful!");
+    public ResponseEntity<?> checkIn(@PathVariable Long habitId, Authentication auth) {
+        Optional<HabitDTO> habit = habitService.checkInHabit(userId(auth), habitId);
+        if (habit.isPresent()) {
+            return ResponseEntity.ok(habit.get());
         } else {
             return ResponseEntity.badRequest().body("Already checked in today.");
         }
     }
 
+    // Apply check-ins recorded offline; every entry gets its own result, replays return the stored one
+    @PostMapping("/check-ins:batch")
+    public ResponseEntity<CheckInBatchResult> checkInBatch(@RequestBody CheckInBatchRequest request, Authentication auth) {
+        if (request == null) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(checkInBatchService.apply(userId(auth), request.checkIns()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
     // Delete a habit by id
     @DeleteMapping("/{habitId}")
     public ResponseEntity<String> deleteHabit(@PathVariable Long habitId, Authentication auth) {
-        boolean success = habitService.deleteHabit(auth.getName(), habitId);
+        boolean success = habitService.deleteHabit(userId(auth), habitId);
         if (success) {
             return ResponseEntity.ok("Habit deleted successfully.");
         } else {
@@ -66,43 +123,63 @@ public class HabitController {
 
     // Edit habit fields (title, targetDays, completed, reminderTime)
     @PutMapping("/{habitId}/edit")
-    public ResponseEntity<String> editHabit(
+    public ResponseEntity<?> editHabit(
             @PathVariable Long habitId,
             @RequestBody HabitEditDTO dto,
             Authentication auth) {
         if (dto == null) {
             return ResponseEntity.badRequest().body("Invalid habit data.");
         }
-        boolean updated = habitService.editHabit(auth.getName(), habitId, dto);
-        if (updated) {
-            return ResponseEntity.ok("Habit updated.");
+        Optional<HabitDTO> updated = habitService.editHabit(userId(auth), habitId, dto);
+        if (updated.isPresent()) {
+            return ResponseEntity.ok(updated.get());
         } else {
             return ResponseEntity.badRequest().body("Unable to update habit.");
         }
     }
 
-    // Get habits sorted by a given field and order
+    // Get habits sorted, filtered and paged by keyset; the next page's cursor is sent in X-Next-Cursor
     @GetMapping("/sorted")
     public ResponseEntity<List<HabitDTO>> getSortedHabits(
             @RequestParam(defaultValue = "startDate") String sortBy,
-            @RequestParam(defaultValue = "asc") String order,
+            @RequestParam(required = false) String order,
+            @RequestParam(defaultValue = "all") String status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
             Authentication auth) {
-        List<HabitDTO> sortedHabits = habitService.getSortedHabits(auth.getName(), sortBy, order);
-        return ResponseEntity.ok(sortedHabits);
+        HabitPage page;
+        try {
+            page = habitService.getSortedHabits(userId(auth), sortBy, order, status, cursor, limit);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        }
+        return response.body(page.habits());
+    }
+
+    // Summary statistics computed from the habit's completion history
+    @GetMapping("/{habitId}/stats")
+    public ResponseEntity<HabitStatsDTO> getStats(@PathVariable Long habitId, Authentication auth) {
+        return habitService.getHabitStats(userId(auth), habitId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
     // Set or update reminder for a habit
     @PostMapping("/{habitId}/reminder")
-    public ResponseEntity<String> setReminder(
+    public ResponseEntity<?> setReminder(
             @PathVariable Long habitId,
             @RequestParam String time,
             Authentication auth) {
         if (time == null || time.trim().isEmpty()) {
             return ResponseEntity.badRequest().body("Invalid reminder time.");
         }
-        boolean success = habitService.setHabitReminder(auth.getName(), habitId, time);
-        if (success) {
-            return ResponseEntity.ok("Reminder set.");
+        Optional<HabitDTO> updated = habitService.setHabitReminder(userId(auth), habitId, time);
+        if (updated.isPresent()) {
+            return ResponseEntity.ok(updated.get());
         } else {
             return ResponseEntity.badRequest().body("Could not set reminder.");
         }
@@ -119,6 +196,17 @@ public class HabitController {
         }
     }
 
+    // Someone else changed the habit between our read and write; the client should reload and retry
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleConcurrentEdit(ObjectOptimisticLockingFailureException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body("Habit was changed by another request, please retry.");
+    }
+
+    // JwtFilter resolved the caller's id once for this request
+    private static Long userId(Authentication auth) {
+        return ((AuthenticatedUser) auth.getPrincipal()).userId();
+    }
+
     // Request record for habit creation payload
     public record HabitCreateRequest(String title, int targetDays) {}
 }
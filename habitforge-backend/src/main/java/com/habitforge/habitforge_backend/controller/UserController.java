@@ -1,18 +1,38 @@
 package com.habitforge.habitforge_backend.controller;
 
 import com.habitforge.habitforge_backend.model.User;
+import com.habitforge.habitforge_backend.model.UserAccount;
+import com.habitforge.habitforge_backend.security.AuthenticatedUser;
 import com.habitforge.habitforge_backend.security.JwtUtil;
+import com.habitforge.habitforge_backend.security.LoginPrincipal;
+import com.habitforge.habitforge_backend.security.PasswordHashingBusyException;
+import com.habitforge.habitforge_backend.repository.UserRepository;
 import com.habitforge.habitforge_backend.service.EmailService;
+import com.habitforge.habitforge_backend.service.ProfilePictureStore;
+import com.habitforge.habitforge_backend.service.ProfilePictureThumbnails;
 import com.habitforge.habitforge_backend.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.*;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -23,10 +43,23 @@ public class UserController {
 
     private static final Logger LOGGER = Logger.getLogger(UserController.class.getName());
 
+    // Tomcat serves a file set in these request attributes straight from the page cache (sendfile)
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    // Below this size a plain copy is cheaper than setting up sendfile
+    @Value("${habitforge.profile-pictures.sendfile-min-bytes:49152}")
+    private long sendfileMinBytes;
+
     @Autowired private UserService userService;
     @Autowired private JwtUtil jwtUtil;
     @Autowired private EmailService emailService;
+    @Autowired private ProfilePictureStore profilePictureStore;
+    @Autowired private ProfilePictureThumbnails profilePictureThumbnails;
     @Autowired private AuthenticationManager authenticationManager;
+    @Autowired private MeterRegistry meterRegistry;
 
     public static class UserDTO {
         public String username;
@@ -99,16 +132,22 @@ public ResponseEntity<Map<String, Object>> login(@RequestBody UserDTO loginDTO)
             return ResponseEntity.badRequest().body(Map.of("error", "Username and password cannot be empty."));
         }
 
-        // ✅ Authenticate credentials
-        authenticationManager.authenticate(
-            new UsernamePasswordAuthenticationToken(loginDTO.username, loginDTO.password)
-        );
-
-        User user = userService.findByUsername(loginDTO.username);
-        if (user == null) {
-            return ResponseEntity.status(400).body(Map.of("error", "User not found."));
+        // ✅ Authenticate credentials (timed: BCrypt dominates login latency)
+        Timer.Sample passwordCheck = Timer.start(meterRegistry);
+        String outcome = "failure";
+        Authentication authentication;
+        try {
+            authentication = authenticationManager.authenticate(
+                new UsernamePasswordAuthenticationToken(loginDTO.username, loginDTO.password)
+            );
+            outcome = "success";
+        } finally {
+            passwordCheck.stop(meterRegistry.timer("habitforge.auth.password", "outcome", outcome));
         }
 
+        // The row authentication loaded also carries everything the response needs
+        UserAccount user = ((LoginPrincipal) authentication.getPrincipal()).account();
+
         // ✅ Require code only if email is present AND not yet verified
         if (user.getEmail() != null && !user.getEmail().isEmpty() && !user.isEmailVerified()) {
             String code = userService.generateLoginVerificationCode(user.getEmail());
@@ -124,9 +163,11 @@ public ResponseEntity<Map<String, Object>> login(@RequestBody UserDTO loginDTO)
                 ? user.getUsername()
                 : user.getEmail();
 
-        String jwt = jwtUtil.generateToken(usernameForToken);
+        String jwt = jwtUtil.generateToken(user.getId(), usernameForToken, null);
         return buildLoginResponse(user, jwt);
 
+    } catch (PasswordHashingBusyException e) {
+        throw e; // 503 from the handler below, not a credentials failure
     } catch (Exception e) {
         LOGGER.log(Level.WARNING, "Login failed: " + e.getMessage(), e);
         return ResponseEntity.status(401).body(Map.of("error", "Invalid username or password."));
@@ -149,7 +190,7 @@ public ResponseEntity<String> sendVerificationCode(@RequestBody EmailVerificatio
         userService.createUserFromEmailLogin(email);
     }
 
-    // Generate login verification code (saves to loginVerificationCode field)
+    // Generate login verification code (kept in VerificationCodeStore with a short TTL)
     String code = userService.generateLoginVerificationCode(email);
 
     // Send the code via email
@@ -180,7 +221,7 @@ public ResponseEntity<String> sendVerificationCode(@RequestBody EmailVerificatio
                 ? user.getUsername()
                 : user.getEmail();
 
-        String jwt = jwtUtil.generateToken(usernameForToken);
+        String jwt = jwtUtil.generateToken(user.getId(), usernameForToken, null);
         return buildLoginResponse(user, jwt);
     }
 
@@ -211,11 +252,7 @@ public ResponseEntity<String> forgotPassword(@RequestBody EmailVerificationDTO d
         return ResponseEntity.status(404).body("No user found with this email.");
     }
 
-    // Generate a single code for both purposes
-    String code = emailService.generateCode();
-
-    // Save the password reset code to the user
-    userService.generateAndSendPasswordResetCode(email, code);
+    String code = userService.generatePasswordResetCode(email);
     emailService.sendPasswordResetEmail(email, code);      // Main purpose
 
     return ResponseEntity.ok("Password reset code sent to email.");
@@ -233,12 +270,13 @@ public ResponseEntity<String> resetPassword(@RequestBody ResetPasswordDTO dto) {
         return ResponseEntity.status(400).body("Invalid or expired reset code.");
     }
 
-    // Reset the password (this method will clear the reset code if successful)
+    // Reset the password (this uses up the reset code if successful). It can still fail here when another
+    // node used or replaced the code after the check above, which is the same invalid code to the client.
     boolean updated = userService.resetPassword(email, code, newPassword);
 
     return updated
         ? ResponseEntity.ok("Password updated successfully.")
-        : ResponseEntity.status(500).body("Failed to update password.");
+        : ResponseEntity.status(400).body("Invalid or expired reset code.");
 }
 
 
@@ -258,6 +296,9 @@ public ResponseEntity<String> resetPassword(@RequestBody ResetPasswordDTO dto) {
             if (file == null || file.isEmpty()) {
                 return ResponseEntity.badRequest().body(Map.of("error", "Image file is required."));
             }
+            if (file.getContentType() == null || !file.getContentType().startsWith("image/")) {
+                return ResponseEntity.status(HttpStatus.UNSUPPORTED_MEDIA_TYPE).body(Map.of("error", "File must be an image."));
+            }
 
             boolean success = userService.saveProfilePicture(username, file);
             if (success) {
@@ -267,26 +308,73 @@ public ResponseEntity<String> resetPassword(@RequestBody ResetPasswordDTO dto) {
             } else {
                 return ResponseEntity.status(404).body(Map.of("error", "User not found."));
             }
+        } catch (ProfilePictureStore.TooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error uploading profile picture: " + e.getMessage(), e);
             return ResponseEntity.status(500).body(Map.of("error", "Error uploading profile picture."));
         }
     }
 
+    // Multipart limits reject an oversized upload before it reaches the controller
+    @ExceptionHandler(MaxUploadSizeExceededException.class)
+    public ResponseEntity<Map<String, Object>> handleUploadTooLarge(MaxUploadSizeExceededException e) {
+        return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of("error", "Image is too large."));
+    }
+
+    // Password hashing is saturated; shed the request rather than queue it
+    @ExceptionHandler(PasswordHashingBusyException.class)
+    public ResponseEntity<Map<String, Object>> handlePasswordHashingBusy(PasswordHashingBusyException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(Map.of("error", e.getMessage()));
+    }
+
     // Helper method to extract JWT token string from Authorization header
     private String extractJwtFromAuthHeader(String authHeader) {
         if (authHeader == null || !authHeader.startsWith("Bearer ")) return null;
         return authHeader.substring(7);
     }
 
+    // ?v= is the content version from profilePicUrl; versioned URLs never change, so they cache for a year.
+    // ?size= picks the smallest square thumbnail (48, 128 or 512 px) that covers the requested size.
     @GetMapping("/{username}/profile-picture")
-    public ResponseEntity<byte[]> getProfilePicture(@PathVariable String username) {
-        byte[] imageData = userService.getProfilePicture(username);
-        if (imageData == null || imageData.length == 0) {
+    public ResponseEntity<Resource> getProfilePicture(@PathVariable String username,
+                                                      @RequestParam(value = "v", required = false) String version,
+                                                      @RequestParam(value = "size", required = false) Integer size,
+                                                      WebRequest webRequest,
+                                                      HttpServletRequest request) throws IOException {
+        UserRepository.ProfilePictureRef picture = userService.getProfilePicture(username).orElse(null);
+        Path image = picture == null ? null : profilePictureStore.locate(picture.getHash()).orElse(null);
+        if (image == null) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
         }
+        String hash = picture.getHash();
+        boolean versioned = profilePictureVersion(hash).equals(version);
+
+        Integer variantSize = size == null || size <= 0 ? null : ProfilePictureThumbnails.variantFor(size);
+        if (variantSize != null) {
+            ProfilePictureStore.Variant variant = profilePictureStore.locateVariant(hash, variantSize).orElse(null);
+            if (variant != null) {
+                return serveImage(variant.path(), "\"" + hash + "-" + variantSize + "\"", variant.contentType(),
+                        versioned, webRequest, request);
+            }
+            // Not built yet (or built before this size existed): send the original once, uncached
+            profilePictureThumbnails.generateAsync(hash);
+            versioned = false;
+        }
+        return serveImage(image, "\"" + hash + "\"", picture.getContentType(), versioned, webRequest, request);
+    }
+
+    private ResponseEntity<Resource> serveImage(Path image, String etag, String contentTypeString, boolean immutable,
+                                                WebRequest webRequest, HttpServletRequest request) throws IOException {
+        CacheControl cacheControl = immutable
+                ? CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable()
+                : CacheControl.noCache();
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+        }
 
-        String contentTypeString = userService.getProfilePictureContentType(username);
         MediaType mediaType = MediaType.APPLICATION_OCTET_STREAM;
 
         if (contentTypeString != null && !contentTypeString.isEmpty()) {
@@ -295,11 +383,25 @@ public ResponseEntity<String> resetPassword(@RequestBody ResetPasswordDTO dto) {
             } catch (IllegalArgumentException ignored) {}
         }
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(mediaType);
-        headers.setCacheControl(CacheControl.noCache().getHeaderValue());
+        long length = Files.size(image);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .contentType(mediaType)
+                .contentLength(length);
+
+        // Zero-copy: leave the body empty and let the connector send the file itself
+        if (length >= sendfileMinBytes && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, image.toRealPath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, length);
+            return response.build();
+        }
+        return response.body(new FileSystemResource(image));
+    }
 
-        return new ResponseEntity<>(imageData, headers, HttpStatus.OK);
+    private static String profilePictureVersion(String hash) {
+        return hash.substring(0, 16);
     }
 
     // === MARK PROMPTED ===
@@ -363,36 +465,44 @@ public ResponseEntity<String> resetPassword(@RequestBody ResetPasswordDTO dto) {
             return ResponseEntity.status(500).body("Failed to update username.");
         }
 
-        String jwt = jwtUtil.generateToken(newUsername);
+        String jwt = jwtUtil.generateToken(user.getId(), newUsername, null);
         return buildLoginResponse(userService.findByUsername(newUsername), jwt);
     }
 
+    // === SET TIME ZONE ===
+    @PutMapping("/time-zone")
+    public ResponseEntity<String> setTimeZone(Authentication auth, @RequestBody Map<String, String> body) {
+        Long userId = ((AuthenticatedUser) auth.getPrincipal()).userId();
+        boolean updated = userService.updateTimeZone(userId, body.get("timeZone"));
+        return updated ? ResponseEntity.ok("Time zone updated.")
+                       : ResponseEntity.badRequest().body("Unknown time zone.");
+    }
+
     @PostMapping("/logout")
     public ResponseEntity<String> logout() {
         return ResponseEntity.ok("Logout successful.");
     }
 
     // === FINAL LOGIN RESPONSE FORMAT ===
-    private ResponseEntity<Map<String, Object>> buildLoginResponse(User user, String jwt) {
+    private ResponseEntity<Map<String, Object>> buildLoginResponse(UserAccount user, String jwt) {
     Map<String, Object> response = new HashMap<>();
     response.put("token", jwt);
     response.put("username", user.getUsername());
     response.put("email", user.getEmail());
     response.put("emailVerified", user.isEmailVerified());
     response.put("hasBeenPromptedForProfilePic", user.isHasBeenPromptedForProfilePic());
-
-    boolean hasProfilePicture = false;
-    try {
-        hasProfilePicture = user.getProfilePicture() != null && user.getProfilePicture().length > 0;
-    } catch (Exception e) {
-        // handle null or error gracefully
-    }
-
-    if (hasProfilePicture) {
-        String cacheBuster = "?t=" + System.currentTimeMillis();
-        response.put("profilePicUrl", "http://localhost:8080/api/users/" + user.getUsername() + "/profile-picture" + cacheBuster);
+    response.put("timeZone", user.getTimeZone());
+
+    if (user.getProfilePictureHash() != null) {
+        // Versioned by content, so the URL only changes when the picture does
+        String version = "?v=" + profilePictureVersion(user.getProfilePictureHash());
+        String url = "http://localhost:8080/api/users/" + user.getUsername() + "/profile-picture" + version;
+        response.put("profilePicUrl", url);
+        // The dashboard avatar is 48 CSS px; 128 stays sharp on high-density screens
+        response.put("profilePicThumbnailUrl", url + "&size=128");
     } else {
         response.put("profilePicUrl", null);
+        response.put("profilePicThumbnailUrl", null);
     }
 
     return ResponseEntity.ok(response);
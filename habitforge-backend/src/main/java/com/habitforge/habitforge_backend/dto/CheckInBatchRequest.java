@@ -0,0 +1,16 @@
+package com.habitforge.habitforge_backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Check-ins recorded while offline, replayed in one request
+public record CheckInBatchRequest(List<Entry> checkIns) {
+
+    public record Entry(
+            Long habitId,
+            @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd") LocalDate date,
+            String idempotencyKey
+    ) {}
+}
@@ -0,0 +1,20 @@
+package com.habitforge.habitforge_backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.habitforge.habitforge_backend.model.CheckInOutcome;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// One result per request entry, in request order, plus the current state of every habit the batch changed
+public record CheckInBatchResult(List<EntryResult> results, List<HabitDTO> habits) {
+
+    // replayed is true when the key had been seen before and the stored outcome is returned
+    public record EntryResult(
+            String idempotencyKey,
+            Long habitId,
+            @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd") LocalDate date,
+            CheckInOutcome outcome,
+            boolean replayed
+    ) {}
+}
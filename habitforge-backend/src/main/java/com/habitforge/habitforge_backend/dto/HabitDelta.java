@@ -0,0 +1,7 @@
+package com.habitforge.habitforge_backend.dto;
+
+import java.util.List;
+
+// Habits changed and ids deleted after the client's ?since= version; send version back next time.
+// full means ?since= predates the retained tombstones: habits is then the whole list, drop anything not in it.
+public record HabitDelta(long version, boolean full, List<HabitDTO> habits, List<Long> deletedIds) {}
@@ -0,0 +1,6 @@
+package com.habitforge.habitforge_backend.dto;
+
+import java.util.List;
+
+// The full habit list and the list version it was read at; habits is null when the client already had that version
+public record HabitList(long version, List<HabitDTO> habits) {}
@@ -0,0 +1,6 @@
+package com.habitforge.habitforge_backend.dto;
+
+import java.util.List;
+
+// One page of a habit list; nextCursor is null on the last page
+public record HabitPage(List<HabitDTO> habits, String nextCursor) {}
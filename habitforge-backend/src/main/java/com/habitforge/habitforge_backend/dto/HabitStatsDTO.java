@@ -0,0 +1,22 @@
+package com.habitforge.habitforge_backend.dto;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Map;
+
+// Summary numbers for one habit, so clients need not download and scan completedDays
+public record HabitStatsDTO(
+        Long habitId,
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd") LocalDate startDate,
+        int daysTracked,
+        int totalCompletions,
+        int currentStreak,
+        int longestStreak,
+        double completionRate,
+        double last7DaysRate,
+        double last30DaysRate,
+        DayOfWeek bestWeekday,
+        Map<DayOfWeek, Integer> completionsByWeekday
+) {}
@@ -0,0 +1,53 @@
+package com.habitforge.habitforge_backend.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Ledger row: the client's idempotency key and the outcome it produced. Replays return the stored outcome.
+@Entity
+@Table(name = "habit_check_in_key",
+       uniqueConstraints = @UniqueConstraint(name = "uk_check_in_key_user_key",
+                                             columnNames = {"user_id", "idempotency_key"}))
+public class CheckInKey {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "idempotency_key", nullable = false, length = 100)
+    private String idempotencyKey;
+
+    @Column(name = "habit_id", nullable = false)
+    private Long habitId;
+
+    @Column(name = "check_in_date", nullable = false)
+    private LocalDate checkInDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private CheckInOutcome outcome;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    public CheckInKey() {}
+
+    public Long getId() { return id; }
+
+    public Long getUserId() { return userId; }
+
+    public String getIdempotencyKey() { return idempotencyKey; }
+
+    public Long getHabitId() { return habitId; }
+
+    public LocalDate getCheckInDate() { return checkInDate; }
+
+    public CheckInOutcome getOutcome() { return outcome; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+}
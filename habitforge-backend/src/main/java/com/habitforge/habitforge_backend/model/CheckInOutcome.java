@@ -0,0 +1,12 @@
+package com.habitforge.habitforge_backend.model;
+
+// Result of one entry in a batched check-in
+public enum CheckInOutcome {
+    APPLIED,
+    ALREADY_CHECKED_IN,
+    HABIT_NOT_FOUND,
+    FUTURE_DATE,
+    BEFORE_START,
+    TOO_OLD,
+    INVALID
+}
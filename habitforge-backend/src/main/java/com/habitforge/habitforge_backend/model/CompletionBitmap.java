@@ -0,0 +1,126 @@
+package com.habitforge.habitforge_backend.model;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Completion history of a habit as a day-offset bitset.
+ * Bit n is set when the habit was checked in on anchor + n days.
+ * The persisted form is {@link BitSet#toByteArray()} (little-endian, trailing zero bytes trimmed),
+ * which uses the same bit numbering as PostgreSQL's get_bit/set_bit on bytea.
+ */
+public final class CompletionBitmap {
+
+    private final LocalDate anchor;
+    private final BitSet bits;
+
+    private CompletionBitmap(LocalDate anchor, BitSet bits) {
+        this.anchor = anchor;
+        this.bits = bits;
+    }
+
+    public static CompletionBitmap decode(LocalDate anchor, byte[] data) {
+        BitSet bits = (data == null || data.length == 0) ? new BitSet() : BitSet.valueOf(data);
+        return new CompletionBitmap(anchor, bits);
+    }
+
+    public static CompletionBitmap of(LocalDate anchor, Iterable<LocalDate> days) {
+        CompletionBitmap bitmap = new CompletionBitmap(anchor, new BitSet());
+        for (LocalDate day : days) {
+            bitmap.set(day);
+        }
+        return bitmap;
+    }
+
+    public byte[] encode() {
+        return bits.toByteArray();
+    }
+
+    public LocalDate getAnchor() { return anchor; }
+
+    // Marks the day as completed; returns false if it already was
+    public boolean set(LocalDate day) {
+        int offset = offsetOf(day);
+        if (bits.get(offset)) return false;
+        bits.set(offset);
+        return true;
+    }
+
+    public boolean isSet(LocalDate day) {
+        if (anchor == null || day == null || day.isBefore(anchor)) return false;
+        long offset = ChronoUnit.DAYS.between(anchor, day);
+        return offset <= Integer.MAX_VALUE && bits.get((int) offset);
+    }
+
+    public int cardinality() {
+        return bits.cardinality();
+    }
+
+    public boolean isEmpty() {
+        return bits.isEmpty();
+    }
+
+    // Longest run of consecutive completed days; walks runs rather than individual days
+    public int longestRun() {
+        int longest = 0;
+        for (int start = bits.nextSetBit(0); start >= 0; ) {
+            int end = bits.nextClearBit(start);
+            longest = Math.max(longest, end - start);
+            start = bits.nextSetBit(end);
+        }
+        return longest;
+    }
+
+    // Length of the run of completed days that ends on the given day (0 if that day is not completed)
+    public int runEndingAt(LocalDate day) {
+        if (!isSet(day)) return 0;
+        int offset = (int) ChronoUnit.DAYS.between(anchor, day);
+        return offset - bits.previousClearBit(offset);
+    }
+
+    // Completed days in [from, to], both inclusive
+    public int countBetween(LocalDate from, LocalDate to) {
+        if (anchor == null || from == null || to == null || to.isBefore(anchor) || to.isBefore(from)) return 0;
+        long start = Math.max(0, ChronoUnit.DAYS.between(anchor, from));
+        long end = Math.min(Integer.MAX_VALUE - 1L, ChronoUnit.DAYS.between(anchor, to));
+        int count = 0;
+        for (int i = bits.nextSetBit((int) start); i >= 0 && i <= end; i = bits.nextSetBit(i + 1)) {
+            count++;
+        }
+        return count;
+    }
+
+    // Completions per weekday, indexed by DayOfWeek.getValue() - 1 (Monday first)
+    public int[] countByWeekday() {
+        int[] counts = new int[7];
+        if (anchor == null) return counts;
+        int anchorIndex = anchor.getDayOfWeek().getValue() - 1;
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            counts[(anchorIndex + i) % 7]++;
+        }
+        return counts;
+    }
+
+    // Completed days in ascending order
+    public Set<LocalDate> toDates() {
+        Set<LocalDate> days = new LinkedHashSet<>(Math.max(16, bits.cardinality() * 2));
+        for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1)) {
+            days.add(anchor.plusDays(i));
+        }
+        return days;
+    }
+
+    private int offsetOf(LocalDate day) {
+        if (anchor == null || day == null) {
+            throw new IllegalArgumentException("Completion bitmap needs both an anchor and a day");
+        }
+        long offset = ChronoUnit.DAYS.between(anchor, day);
+        if (offset < 0 || offset > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Day " + day + " is outside the history anchored at " + anchor);
+        }
+        return (int) offset;
+    }
+}
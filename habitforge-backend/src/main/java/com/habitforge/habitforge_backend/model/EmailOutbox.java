@@ -0,0 +1,82 @@
+package com.habitforge.habitforge_backend.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "email_outbox",
+       indexes = @Index(name = "idx_email_outbox_due", columnList = "priority, status, next_attempt_at"))
+public class EmailOutbox {
+
+    public enum Status { PENDING, SENDING, SENT, FAILED }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    @Column(nullable = false)
+    private String subject;
+
+    @Column(name = "html_content", nullable = false, columnDefinition = "TEXT")
+    private String htmlContent;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private EmailPriority priority;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status = Status.PENDING;
+
+    private int attempts = 0;
+
+    // When the row may next be picked up; while SENDING this is the end of the worker's lease
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    public EmailOutbox() {}
+
+    public EmailOutbox(String recipient, String subject, String htmlContent, EmailPriority priority, LocalDateTime now) {
+        this.recipient = recipient;
+        this.subject = subject;
+        this.htmlContent = htmlContent;
+        this.priority = priority;
+        this.createdAt = now;
+        this.nextAttemptAt = now;
+    }
+
+    public Long getId() { return id; }
+
+    public String getRecipient() { return recipient; }
+
+    public String getSubject() { return subject; }
+
+    public String getHtmlContent() { return htmlContent; }
+
+    public EmailPriority getPriority() { return priority; }
+
+    public Status getStatus() { return status; }
+
+    public int getAttempts() { return attempts; }
+
+    public LocalDateTime getNextAttemptAt() { return nextAttemptAt; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+
+    public LocalDateTime getSentAt() { return sentAt; }
+
+    public String getLastError() { return lastError; }
+}
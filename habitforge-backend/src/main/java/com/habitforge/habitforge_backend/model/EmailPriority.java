@@ -0,0 +1,7 @@
+package com.habitforge.habitforge_backend.model;
+
+// Outbox lanes: transactional codes are never queued behind bulk reminder mail
+public enum EmailPriority {
+    TRANSACTIONAL,
+    BULK
+}
@@ -2,10 +2,17 @@ package com.habitforge.habitforge_backend.model;
 
 import jakarta.persistence.*;
 import java.time.LocalDate;
-import java.util.HashSet;
 import java.util.Set;
 
 @Entity
+@Table(indexes = {
+    // Keyset pages of /api/habits/sorted: user filter, sort key, id tie-breaker
+    @Index(name = "idx_habit_user_start_date", columnList = "user_id, startDate, id"),
+    @Index(name = "idx_habit_user_streak", columnList = "user_id, currentStreak, id"),
+    @Index(name = "idx_habit_user_completed", columnList = "user_id, completed, id"),
+    // ?since= delta sync
+    @Index(name = "idx_habit_user_list_version", columnList = "user_id, list_version")
+})
 public class Habit {
 
     @Id
@@ -20,12 +27,29 @@ public class Habit {
 
     private int currentStreak;
 
+    // Raised on check-in; null on rows that predate the column until the next check-in fills it
+    @Column(name = "longest_streak")
+    private Integer longestStreak;
+
     private LocalDate lastCheckInDate; // NEW FIELD
 
     private boolean completed = false; // NEW FIELD
 
-    @ElementCollection
-    private Set<LocalDate> completedDays = new HashSet<>();
+    // Day-offset bitset anchored at startDate, see CompletionBitmap
+    @Column(name = "completion_bitmap", columnDefinition = "BYTEA")
+    private byte[] completionBitmap;
+
+    @Transient
+    private CompletionBitmap completionHistory;
+
+    // Optimistic lock for edits; the conditional check-in UPDATE bumps it too
+    @Version
+    @Column(columnDefinition = "BIGINT DEFAULT 0 NOT NULL")
+    private long version;
+
+    // The owner's habit-list version when this habit last changed, see HabitListVersions
+    @Column(name = "list_version", columnDefinition = "BIGINT DEFAULT 0 NOT NULL")
+    private long listVersion;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
@@ -38,6 +62,11 @@ public class Habit {
 
     public Long getId() { return id; }
 
+    public long getVersion() { return version; }
+
+    public long getListVersion() { return listVersion; }
+    public void setListVersion(long listVersion) { this.listVersion = listVersion; }
+
     public String getTitle() { return title; }
     public void setTitle(String title) { this.title = title; }
 
@@ -45,19 +74,77 @@ public class Habit {
     public void setTargetDays(int targetDays) { this.targetDays = targetDays; }
 
     public LocalDate getStartDate() { return startDate; }
-    public void setStartDate(LocalDate startDate) { this.startDate = startDate; }
+    public void setStartDate(LocalDate startDate) {
+        CompletionBitmap history = getCompletionHistory();
+        this.startDate = startDate;
+        // Re-anchor existing history so no completed day is lost
+        if (history != null && !history.isEmpty()) {
+            writeCompletionHistory(CompletionBitmap.of(startDate, history.toDates()));
+        } else {
+            this.completionHistory = null;
+        }
+    }
 
     public int getCurrentStreak() { return currentStreak; }
     public void setCurrentStreak(int currentStreak) { this.currentStreak = currentStreak; }
 
+    public int getLongestStreak() {
+        if (longestStreak != null) return longestStreak;
+        CompletionBitmap history = getCompletionHistory();
+        return Math.max(currentStreak, history == null ? 0 : history.longestRun());
+    }
+
+    // Keeps longestStreak up to date as streaks grow, without rescanning the history
+    public void recordStreak(int streak) {
+        longestStreak = Math.max(getLongestStreak(), streak);
+    }
+
     public LocalDate getLastCheckInDate() { return lastCheckInDate; }
     public void setLastCheckInDate(LocalDate lastCheckInDate) { this.lastCheckInDate = lastCheckInDate; }
 
     public boolean isCompleted() { return completed; }
     public void setCompleted(boolean completed) { this.completed = completed; }
 
-    public Set<LocalDate> getCompletedDays() { return completedDays; }
-    public void setCompletedDays(Set<LocalDate> completedDays) { this.completedDays = completedDays; }
+    public byte[] getCompletionBitmap() { return completionBitmap; }
+    public void setCompletionBitmap(byte[] completionBitmap) {
+        this.completionBitmap = completionBitmap;
+        this.completionHistory = null;
+    }
+
+    // Completed days in ascending order, decoded from the bitmap
+    public Set<LocalDate> getCompletedDays() {
+        CompletionBitmap history = getCompletionHistory();
+        return history == null ? Set.of() : history.toDates();
+    }
+
+    public boolean isCompletedOn(LocalDate day) {
+        CompletionBitmap history = getCompletionHistory();
+        return history != null && history.isSet(day);
+    }
+
+    // Sets the bit for the given day; returns false if it was already set
+    public boolean markCompleted(LocalDate day) {
+        CompletionBitmap history = getCompletionHistory();
+        if (history == null) {
+            throw new IllegalStateException("Habit has no start date to anchor its history");
+        }
+        if (!history.set(day)) return false;
+        writeCompletionHistory(history);
+        return true;
+    }
+
+    public CompletionBitmap getCompletionHistory() {
+        if (completionHistory == null && startDate != null) {
+            completionHistory = CompletionBitmap.decode(startDate, completionBitmap);
+        }
+        return completionHistory;
+    }
+
+    // Assign a fresh array so Hibernate's dirty check sees the change
+    private void writeCompletionHistory(CompletionBitmap history) {
+        this.completionHistory = history;
+        this.completionBitmap = history.encode();
+    }
 
     public User getUser() { return user; }
     public void setUser(User user) { this.user = user; }
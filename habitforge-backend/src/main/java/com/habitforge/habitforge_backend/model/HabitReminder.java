@@ -3,6 +3,7 @@ package com.habitforge.habitforge_backend.model;
 import jakarta.persistence.*;
 import java.time.LocalTime;
 
+// Looked up by utc_minute through a partial index on enabled reminders (V5, in db/migration/h2 and postgresql)
 @Entity
 public class HabitReminder {
 
@@ -14,7 +15,11 @@ public class HabitReminder {
     @JoinColumn(name = "habit_id", nullable = false, unique = true)
     private Habit habit;
 
-    private LocalTime reminderTime; 
+    private LocalTime reminderTime; // In the owner's time zone
+
+    // Minute of the UTC day (0-1439) of the next occurrence; HabitReminderService moves it across DST changes
+    @Column(name = "utc_minute")
+    private Integer utcMinute;
 
     private boolean enabled = true;
 
@@ -47,6 +52,14 @@ public class HabitReminder {
         this.reminderTime = reminderTime;
     }
 
+    public Integer getUtcMinute() {
+        return utcMinute;
+    }
+
+    public void setUtcMinute(Integer utcMinute) {
+        this.utcMinute = utcMinute;
+    }
+
     public boolean isEnabled() {
         return enabled;
     }
@@ -0,0 +1,47 @@
+package com.habitforge.habitforge_backend.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+// Records a deleted habit so ?since= delta sync can tell clients to drop it
+@Entity
+@Table(name = "habit_tombstone",
+       indexes = @Index(name = "idx_habit_tombstone_user_version", columnList = "user_id, list_version"))
+public class HabitTombstone {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "habit_id", nullable = false)
+    private Long habitId;
+
+    @Column(name = "list_version", nullable = false)
+    private long listVersion;
+
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+
+    public HabitTombstone() {}
+
+    public HabitTombstone(Long userId, Long habitId, long listVersion) {
+        this.userId = userId;
+        this.habitId = habitId;
+        this.listVersion = listVersion;
+        this.deletedAt = LocalDateTime.now();
+    }
+
+    public Long getId() { return id; }
+
+    public Long getUserId() { return userId; }
+
+    public Long getHabitId() { return habitId; }
+
+    public long getListVersion() { return listVersion; }
+
+    public LocalDateTime getDeletedAt() { return deletedAt; }
+}
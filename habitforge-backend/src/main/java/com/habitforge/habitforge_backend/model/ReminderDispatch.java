@@ -0,0 +1,43 @@
+package com.habitforge.habitforge_backend.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+// Ledger row: the reminder was dispatched for this date. The unique key makes each send happen once.
+@Entity
+@Table(name = "reminder_dispatch",
+       uniqueConstraints = @UniqueConstraint(name = "uk_reminder_dispatch_reminder_date",
+                                             columnNames = {"reminder_id", "reminder_date"}))
+public class ReminderDispatch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "reminder_id", nullable = false)
+    private Long reminderId;
+
+    @Column(name = "reminder_date", nullable = false)
+    private LocalDate reminderDate;
+
+    @Column(name = "sent_at", nullable = false)
+    private LocalDateTime sentAt;
+
+    public ReminderDispatch() {}
+
+    public ReminderDispatch(Long reminderId, LocalDate reminderDate, LocalDateTime sentAt) {
+        this.reminderId = reminderId;
+        this.reminderDate = reminderDate;
+        this.sentAt = sentAt;
+    }
+
+    public Long getId() { return id; }
+
+    public Long getReminderId() { return reminderId; }
+
+    public LocalDate getReminderDate() { return reminderDate; }
+
+    public LocalDateTime getSentAt() { return sentAt; }
+}
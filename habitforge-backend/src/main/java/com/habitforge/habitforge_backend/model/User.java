@@ -4,7 +4,7 @@ import jakarta.persistence.*;
 
 @Entity
 @Table(name = "users")
-public class User {
+public class User implements UserAccount {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -19,24 +19,25 @@ public class User {
     @Column(unique = true)
     private String email;
 
+    // IANA zone id, e.g. "Europe/Berlin"; null means the server's zone
+    @Column(name = "time_zone", length = 64)
+    private String timeZone;
+
     @Column(name = "email_verified")
     private boolean emailVerified = false;
 
-    @Column(name = "email_verification_code")
-    private String verificationCode;
-
-    @Column(name = "password_reset_code")
-    private String resetPasswordCode;
-
-    @Column(name = "login_verification_code")
-    private String loginVerificationCode;
-
-    @Column(name = "profile_picture", columnDefinition = "BYTEA")
-    private byte[] profilePicture;
+    // SHA-256 of the image in ProfilePictureStore; the bytes never live in this row
+    @Column(name = "profile_picture_hash", length = 64)
+    private String profilePictureHash;
 
     @Column(name = "profile_picture_content_type")
     private String profilePictureContentType;
 
+    // Bumped by HabitListVersions on every habit change; written only by that statement, never by entity saves
+    @Column(name = "habit_list_version", insertable = false, updatable = false,
+            columnDefinition = "BIGINT DEFAULT 0 NOT NULL")
+    private long habitListVersion;
+
     @Column(name = "has_been_prompted_for_profile_pic")
     private boolean hasBeenPromptedForProfilePic = false;
 
@@ -64,20 +65,16 @@ public class User {
     public String getEmail() { return email; }
     public void setEmail(String email) { this.email = email; }
 
+    public String getTimeZone() { return timeZone; }
+    public void setTimeZone(String timeZone) { this.timeZone = timeZone; }
+
     public boolean isEmailVerified() { return emailVerified; }
     public void setEmailVerified(boolean emailVerified) { this.emailVerified = emailVerified; }
 
-    public String getVerificationCode() { return verificationCode; }
-    public void setVerificationCode(String verificationCode) { this.verificationCode = verificationCode; }
-
-    public String getResetPasswordCode() { return resetPasswordCode; }
-    public void setResetPasswordCode(String resetPasswordCode) { this.resetPasswordCode = resetPasswordCode; }
+    public String getProfilePictureHash() { return profilePictureHash; }
+    public void setProfilePictureHash(String profilePictureHash) { this.profilePictureHash = profilePictureHash; }
 
-    public String getLoginVerificationCode() { return loginVerificationCode; }
-    public void setLoginVerificationCode(String loginVerificationCode) { this.loginVerificationCode = loginVerificationCode; }
-
-    public byte[] getProfilePicture() { return profilePicture; }
-    public void setProfilePicture(byte[] profilePicture) { this.profilePicture = profilePicture; }
+    public boolean hasProfilePicture() { return profilePictureHash != null; }
 
     public String getProfilePictureContentType() { return profilePictureContentType; }
     public void setProfilePictureContentType(String profilePictureContentType) { this.profilePictureContentType = profilePictureContentType; }
@@ -86,6 +83,8 @@ public class User {
     public void setHasBeenPromptedForProfilePic(boolean hasBeenPromptedForProfilePic) {
         this.hasBeenPromptedForProfilePic = hasBeenPromptedForProfilePic;
     }
+
+    public long getHabitListVersion() { return habitListVersion; }
 }
 
 
@@ -0,0 +1,17 @@
+package com.habitforge.habitforge_backend.model;
+
+/**
+ * The columns login needs: credentials plus what the login response shows.
+ * Implemented by User, and loaded on its own as a projection (UserRepository.AccountRow)
+ * so a login reads one narrow row instead of managing a full entity.
+ */
+public interface UserAccount {
+    Long getId();
+    String getUsername();
+    String getPassword();
+    String getEmail();
+    boolean isEmailVerified();
+    boolean isHasBeenPromptedForProfilePic();
+    String getProfilePictureHash();
+    String getTimeZone();
+}
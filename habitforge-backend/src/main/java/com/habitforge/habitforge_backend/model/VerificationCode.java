@@ -4,8 +4,12 @@ import jakarta.persistence.*;
 
 import java.time.LocalDateTime;
 
+// Durable tier of VerificationCodeStore: one live code per (email, purpose), deleted when used or expired
 @Entity
-@Table(name = "verification_codes")
+@Table(name = "verification_codes",
+       uniqueConstraints = @UniqueConstraint(name = "uk_verification_codes_email_purpose",
+                                             columnNames = {"email", "purpose"}),
+       indexes = @Index(name = "idx_verification_codes_expiration", columnList = "expiration_time"))
 public class VerificationCode {
 
     @Id
@@ -15,6 +19,10 @@ public class VerificationCode {
     @Column(nullable = false)
     private String email;
 
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private VerificationPurpose purpose;
+
     @Column(nullable = false)
     private String code;
 
@@ -23,8 +31,9 @@ public class VerificationCode {
 
     public VerificationCode() {}
 
-    public VerificationCode(String email, String code, LocalDateTime expirationTime) {
+    public VerificationCode(String email, VerificationPurpose purpose, String code, LocalDateTime expirationTime) {
         this.email = email;
+        this.purpose = purpose;
         this.code = code;
         this.expirationTime = expirationTime;
     }
@@ -37,6 +46,10 @@ public class VerificationCode {
         return email;
     }
 
+    public VerificationPurpose getPurpose() {
+        return purpose;
+    }
+
     public String getCode() {
         return code;
     }
@@ -49,6 +62,10 @@ public class VerificationCode {
         this.email = email;
     }
 
+    public void setPurpose(VerificationPurpose purpose) {
+        this.purpose = purpose;
+    }
+
     public void setCode(String code) {
         this.code = code;
     }
@@ -57,4 +74,3 @@ public class VerificationCode {
         this.expirationTime = expirationTime;
     }
 }
-
@@ -0,0 +1,8 @@
+package com.habitforge.habitforge_backend.model;
+
+// What a one-time code proves; each (email, purpose) holds at most one live code
+public enum VerificationPurpose {
+    EMAIL_VERIFICATION,
+    LOGIN,
+    PASSWORD_RESET
+}
@@ -0,0 +1,24 @@
+package com.habitforge.habitforge_backend.repository;
+
+import com.habitforge.habitforge_backend.model.CheckInKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface CheckInKeyRepository extends JpaRepository<CheckInKey, Long> {
+
+    List<CheckInKey> findByUserIdAndIdempotencyKeyIn(Long userId, Collection<String> idempotencyKeys);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM CheckInKey k WHERE k.createdAt < :cutoff")
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff);
+}
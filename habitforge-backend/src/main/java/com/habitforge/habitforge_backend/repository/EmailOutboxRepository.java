@@ -0,0 +1,85 @@
+package com.habitforge.habitforge_backend.repository;
+
+import com.habitforge.habitforge_backend.model.EmailOutbox;
+import com.habitforge.habitforge_backend.model.EmailPriority;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutbox, Long> {
+
+    // Pending rows that are due, plus SENDING rows whose worker lease ran out
+    @Query("SELECT e FROM EmailOutbox e " +
+           "WHERE e.priority = :priority " +
+           "AND e.status IN (com.habitforge.habitforge_backend.model.EmailOutbox.Status.PENDING, " +
+           "                 com.habitforge.habitforge_backend.model.EmailOutbox.Status.SENDING) " +
+           "AND e.nextAttemptAt <= :now " +
+           "ORDER BY e.nextAttemptAt, e.id")
+    List<EmailOutbox> findDue(@Param("priority") EmailPriority priority,
+                              @Param("now") LocalDateTime now,
+                              Pageable page);
+
+    // Backs the per-lane queue depth gauge
+    long countByPriorityAndStatus(EmailPriority priority, EmailOutbox.Status status);
+
+    // Returns 1 if this worker now owns the row until leaseUntil
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = com.habitforge.habitforge_backend.model.EmailOutbox.Status.SENDING, " +
+           "e.nextAttemptAt = :leaseUntil " +
+           "WHERE e.id = :id " +
+           "AND e.status IN (com.habitforge.habitforge_backend.model.EmailOutbox.Status.PENDING, " +
+           "                 com.habitforge.habitforge_backend.model.EmailOutbox.Status.SENDING) " +
+           "AND e.nextAttemptAt <= :now")
+    int claim(@Param("id") Long id, @Param("now") LocalDateTime now, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    // Pushes the lease out for rows this worker still holds; the lease end doubles as the owner's token
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.nextAttemptAt = :renewedUntil " +
+           "WHERE e.id IN :ids " +
+           "AND e.status = com.habitforge.habitforge_backend.model.EmailOutbox.Status.SENDING " +
+           "AND e.nextAttemptAt = :leaseUntil")
+    int renewLease(@Param("ids") Collection<Long> ids,
+                   @Param("leaseUntil") LocalDateTime leaseUntil,
+                   @Param("renewedUntil") LocalDateTime renewedUntil);
+
+    // The updates below only apply while the caller's lease is still the row's; 0 means another worker took it over
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = com.habitforge.habitforge_backend.model.EmailOutbox.Status.SENT, " +
+           "e.sentAt = :sentAt, e.attempts = e.attempts + 1, e.lastError = null " +
+           "WHERE e.id = :id " +
+           "AND e.status = com.habitforge.habitforge_backend.model.EmailOutbox.Status.SENDING " +
+           "AND e.nextAttemptAt = :leaseUntil")
+    int markSent(@Param("id") Long id, @Param("sentAt") LocalDateTime sentAt, @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE EmailOutbox e SET e.status = :status, e.nextAttemptAt = :nextAttemptAt, " +
+           "e.attempts = e.attempts + 1, e.lastError = :error " +
+           "WHERE e.id = :id " +
+           "AND e.status = com.habitforge.habitforge_backend.model.EmailOutbox.Status.SENDING " +
+           "AND e.nextAttemptAt = :leaseUntil")
+    int markAttemptFailed(@Param("id") Long id,
+                          @Param("status") EmailOutbox.Status status,
+                          @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                          @Param("error") String error,
+                          @Param("leaseUntil") LocalDateTime leaseUntil);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM EmailOutbox e " +
+           "WHERE e.status = com.habitforge.habitforge_backend.model.EmailOutbox.Status.SENT " +
+           "AND e.sentAt < :cutoff")
+    int deleteSentBefore(@Param("cutoff") LocalDateTime cutoff);
+}
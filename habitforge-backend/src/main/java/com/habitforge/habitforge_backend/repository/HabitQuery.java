@@ -0,0 +1,87 @@
+package com.habitforge.habitforge_backend.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+/**
+ * Sort, filter and keyset position for one page of a user's habit list.
+ * Every sort is tie-broken on id so pages are stable and resumable.
+ */
+public record HabitQuery(SortKey sortKey, boolean descending, Status status, LocalDate today, Cursor after, int limit) {
+
+    public enum SortKey {
+        START_DATE("startDate", false),
+        STREAK("currentStreak", true),
+        COMPLETED("completed", true),
+        ID("id", false);
+
+        private final String field;
+        private final boolean descendingByDefault;
+
+        SortKey(String field, boolean descendingByDefault) {
+            this.field = field;
+            this.descendingByDefault = descendingByDefault;
+        }
+
+        public String field() { return field; }
+        public boolean isDescendingByDefault() { return descendingByDefault; }
+
+        // Unknown keys fall back to id order, as the old in-memory sort did
+        public static SortKey parse(String sortBy) {
+            if (sortBy == null) return ID;
+            return switch (sortBy.trim().toLowerCase()) {
+                case "startdate" -> START_DATE;
+                case "streak" -> STREAK;
+                case "completed" -> COMPLETED;
+                default -> ID;
+            };
+        }
+
+        Object parseValue(String value) {
+            return switch (this) {
+                case START_DATE -> LocalDate.parse(value);
+                case STREAK -> Integer.valueOf(value);
+                case COMPLETED -> Boolean.valueOf(value);
+                case ID -> Long.valueOf(value);
+            };
+        }
+    }
+
+    public enum Status {
+        ALL, ACTIVE, COMPLETED, DUE_TODAY;
+
+        public static Status parse(String status) {
+            if (status == null) return ALL;
+            return switch (status.trim().toLowerCase().replace("-", "").replace("_", "")) {
+                case "active" -> ACTIVE;
+                case "completed" -> COMPLETED;
+                case "duetoday" -> DUE_TODAY;
+                default -> ALL;
+            };
+        }
+    }
+
+    /** Sort value and id of the last row on the previous page. */
+    public record Cursor(SortKey sortKey, Object value, long id) {
+
+        public String encode() {
+            String raw = sortKey.name() + "|" + value + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        public static Cursor decode(String token, SortKey expectedKey) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+                String[] parts = raw.split("\\|", 3);
+                SortKey key = SortKey.valueOf(parts[0]);
+                if (key != expectedKey) {
+                    throw new IllegalArgumentException("Cursor was issued for a different sort key");
+                }
+                return new Cursor(key, key.parseValue(parts[1]), Long.parseLong(parts[2]));
+            } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException | java.time.DateTimeException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + token, e);
+            }
+        }
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,16 +18,29 @@ public interface HabitReminderRepository extends JpaRepository<HabitReminder, Lo
 
     List<HabitReminder> findByEnabledTrue();
 
+    // Just enough to bucket every enabled reminder and place it on the timing wheel, without loading habits
+    @Query("SELECT hr.id AS id, hr.reminderTime AS reminderTime, hr.utcMinute AS utcMinute, u.timeZone AS timeZone " +
+           "FROM HabitReminder hr JOIN hr.habit h JOIN h.user u " +
+           "WHERE hr.enabled = true AND hr.reminderTime IS NOT NULL")
+    List<ReminderSlot> findEnabledSlots();
+
+    @Query("SELECT hr.id AS id, hr.reminderTime AS reminderTime, hr.utcMinute AS utcMinute, u.timeZone AS timeZone " +
+           "FROM HabitReminder hr JOIN hr.habit h JOIN h.user u " +
+           "WHERE hr.enabled = true AND hr.reminderTime IS NOT NULL AND u.id = :userId")
+    List<ReminderSlot> findEnabledSlotsByUserId(@Param("userId") Long userId);
+
+    // utc_minute equality re-checks the wheel against the database row
     @Query("SELECT hr FROM HabitReminder hr " +
            "JOIN FETCH hr.habit h " +
            "JOIN FETCH h.user u " +
-           "WHERE hr.enabled = true AND hr.reminderTime BETWEEN :start AND :end")
-    List<HabitReminder> findDueRemindersWithHabitAndUser(
-        @Param("start") LocalTime start,
-        @Param("end") LocalTime end);
+           "WHERE hr.enabled = true AND hr.utcMinute = :utcMinute AND hr.id IN :ids")
+    List<HabitReminder> findDueRemindersWithHabitAndUser(@Param("ids") Collection<Long> ids,
+                                                         @Param("utcMinute") int utcMinute);
+
+    interface ReminderSlot {
+        Long getId();
+        LocalTime getReminderTime();
+        Integer getUtcMinute();
+        String getTimeZone();
+    }
 }
-
-
-
-
-
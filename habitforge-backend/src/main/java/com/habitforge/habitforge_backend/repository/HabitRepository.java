@@ -3,10 +3,58 @@ package com.habitforge.habitforge_backend.repository;
 import com.habitforge.habitforge_backend.model.Habit;
 import com.habitforge.habitforge_backend.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface HabitRepository extends JpaRepository<Habit, Long> {
+public interface HabitRepository extends JpaRepository<Habit, Long>, HabitRepositoryCustom {
     List<Habit> findByUser(User user);
-}
 
+    // Ownership check and load in one keyed statement: WHERE id = ? AND user_id = ?
+    Optional<Habit> findByIdAndUserId(Long id, Long userId);
+
+    // Habits whose start date is still ahead of the given day, e.g. after a move to a zone that is behind
+    List<Habit> findAllByUserIdAndStartDateAfter(Long userId, LocalDate day);
+
+    // Today's check-in as one conditional statement: the WHERE clause rejects a second check-in for the day,
+    // the streak and completion flag are computed from the row's current values. Returns 1 if it applied.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Habit h SET " +
+           "h.currentStreak = CASE WHEN h.lastCheckInDate = :yesterday THEN h.currentStreak + 1 ELSE 1 END, " +
+           "h.longestStreak = CASE WHEN h.longestStreak < CASE WHEN h.lastCheckInDate = :yesterday THEN h.currentStreak + 1 ELSE 1 END " +
+           "THEN CASE WHEN h.lastCheckInDate = :yesterday THEN h.currentStreak + 1 ELSE 1 END ELSE h.longestStreak END, " +
+           "h.completed = CASE WHEN CASE WHEN h.lastCheckInDate = :yesterday THEN h.currentStreak + 1 ELSE 1 END >= h.targetDays " +
+           "THEN true ELSE h.completed END, " +
+           "h.lastCheckInDate = :today, " +
+           "h.listVersion = :listVersion, " +
+           "h.version = h.version + 1 " +
+           "WHERE h.id = :habitId AND h.user.id = :userId " +
+           "AND (h.lastCheckInDate IS NULL OR h.lastCheckInDate < :today) " +
+           "AND h.startDate <= :today")
+    int checkIn(@Param("habitId") Long habitId, @Param("userId") Long userId,
+                @Param("today") LocalDate today, @Param("yesterday") LocalDate yesterday,
+                @Param("listVersion") long listVersion);
+
+    // Batched check-ins: every habit the batch mentions, owner-checked, reminders fetched for the response
+    @Query("SELECT h FROM Habit h " +
+           "LEFT JOIN FETCH h.reminder " +
+           "WHERE h.user.id = :userId AND h.id IN :ids")
+    List<Habit> findAllWithReminderByIdInAndUserId(@Param("ids") Collection<Long> ids, @Param("userId") Long userId);
+
+    // Dashboard read path: habits, reminders and completion bitmaps in one statement
+    @Query("SELECT h FROM Habit h " +
+           "LEFT JOIN FETCH h.reminder " +
+           "WHERE h.user.id = :userId")
+    List<Habit> findAllWithReminderByUserId(@Param("userId") Long userId);
+
+    // Delta sync: only habits changed after the client's list version
+    @Query("SELECT h FROM Habit h " +
+           "LEFT JOIN FETCH h.reminder " +
+           "WHERE h.user.id = :userId AND h.listVersion > :since")
+    List<Habit> findAllWithReminderChangedSince(@Param("userId") Long userId, @Param("since") long since);
+}
@@ -0,0 +1,11 @@
+package com.habitforge.habitforge_backend.repository;
+
+import com.habitforge.habitforge_backend.model.Habit;
+
+import java.util.List;
+
+public interface HabitRepositoryCustom {
+
+    // One keyset page of the user's habits, reminders fetched in the same statement
+    List<Habit> findPageByUserId(Long userId, HabitQuery query);
+}
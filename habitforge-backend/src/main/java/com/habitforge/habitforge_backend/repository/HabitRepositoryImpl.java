@@ -0,0 +1,63 @@
+package com.habitforge.habitforge_backend.repository;
+
+import com.habitforge.habitforge_backend.model.Habit;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+import java.util.List;
+
+public class HabitRepositoryImpl implements HabitRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Habit> findPageByUserId(Long userId, HabitQuery query) {
+        String field = "h." + query.sortKey().field();
+        String direction = query.descending() ? "DESC" : "ASC";
+        String comparison = query.descending() ? "<" : ">";
+
+        StringBuilder jpql = new StringBuilder(
+                "SELECT h FROM Habit h LEFT JOIN FETCH h.reminder WHERE h.user.id = :userId");
+
+        switch (query.status()) {
+            case ACTIVE -> jpql.append(" AND h.completed = false");
+            case COMPLETED -> jpql.append(" AND h.completed = true");
+            case DUE_TODAY -> jpql.append(" AND h.completed = false" +
+                    " AND (h.lastCheckInDate IS NULL OR h.lastCheckInDate < :today)");
+            case ALL -> { }
+        }
+
+        HabitQuery.Cursor after = query.after();
+        if (after != null) {
+            if (query.sortKey() == HabitQuery.SortKey.ID) {
+                jpql.append(" AND h.id ").append(comparison).append(" :afterId");
+            } else {
+                jpql.append(" AND (").append(field).append(' ').append(comparison).append(" :afterValue")
+                    .append(" OR (").append(field).append(" = :afterValue AND h.id ")
+                    .append(comparison).append(" :afterId))");
+            }
+        }
+
+        jpql.append(" ORDER BY ");
+        if (query.sortKey() != HabitQuery.SortKey.ID) {
+            jpql.append(field).append(' ').append(direction).append(", ");
+        }
+        jpql.append("h.id ").append(direction);
+
+        TypedQuery<Habit> typed = entityManager.createQuery(jpql.toString(), Habit.class)
+                .setParameter("userId", userId)
+                .setMaxResults(query.limit());
+        if (query.status() == HabitQuery.Status.DUE_TODAY) {
+            typed.setParameter("today", query.today());
+        }
+        if (after != null) {
+            typed.setParameter("afterId", after.id());
+            if (query.sortKey() != HabitQuery.SortKey.ID) {
+                typed.setParameter("afterValue", after.value());
+            }
+        }
+        return typed.getResultList();
+    }
+}
@@ -0,0 +1,34 @@
+package com.habitforge.habitforge_backend.repository;
+
+import com.habitforge.habitforge_backend.model.HabitTombstone;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface HabitTombstoneRepository extends JpaRepository<HabitTombstone, Long> {
+
+    @Query("SELECT t.habitId FROM HabitTombstone t WHERE t.userId = :userId AND t.listVersion > :since")
+    List<Long> findHabitIdsDeletedSince(@Param("userId") Long userId, @Param("since") long since);
+
+    // Newest list version whose tombstone has been purged for this user; 0 if none
+    @Query(value = "SELECT tombstone_horizon FROM users WHERE id = :userId", nativeQuery = true)
+    Long findHorizon(@Param("userId") Long userId);
+
+    // Run before deleteOlderThan with the same cutoff, in one transaction
+    @Modifying
+    @Query(value = "UPDATE users SET tombstone_horizon = (SELECT MAX(t.list_version) FROM habit_tombstone t " +
+                   "WHERE t.user_id = users.id AND t.deleted_at < :cutoff) " +
+                   "WHERE id IN (SELECT t.user_id FROM habit_tombstone t WHERE t.deleted_at < :cutoff)",
+           nativeQuery = true)
+    int raiseHorizons(@Param("cutoff") LocalDateTime cutoff);
+
+    @Modifying
+    @Query("DELETE FROM HabitTombstone t WHERE t.deletedAt < :cutoff")
+    int deleteOlderThan(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -0,0 +1,36 @@
+package com.habitforge.habitforge_backend.repository;
+
+import com.habitforge.habitforge_backend.model.ReminderDispatch;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface ReminderDispatchRepository extends JpaRepository<ReminderDispatch, Long> {
+
+    // Returns 1 if this call claimed the (reminder, date) send, 0 if it was already claimed.
+    // Run it in the same transaction as the outbox insert, so a claim never commits without its email.
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO reminder_dispatch (reminder_id, reminder_date, sent_at) " +
+                   "VALUES (:reminderId, :reminderDate, :sentAt) ON CONFLICT DO NOTHING",
+           nativeQuery = true)
+    int claim(@Param("reminderId") Long reminderId,
+              @Param("reminderDate") LocalDate reminderDate,
+              @Param("sentAt") LocalDateTime sentAt);
+
+    // Any row at all; an empty ledger means no tick of this scheduler has run yet
+    Optional<ReminderDispatch> findFirstBy();
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM ReminderDispatch d WHERE d.reminderDate < :cutoff")
+    int deleteOlderThan(@Param("cutoff") LocalDate cutoff);
+}
@@ -1,7 +1,11 @@
 package com.habitforge.habitforge_backend.repository;
 
 import com.habitforge.habitforge_backend.model.User;
+import com.habitforge.habitforge_backend.model.UserAccount;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -12,14 +16,54 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
     Optional<User> findByEmail(String email);
 
+    // What the picture endpoint needs, in one small query
+    @Query("SELECT u.profilePictureHash AS hash, u.profilePictureContentType AS contentType " +
+           "FROM User u WHERE u.username = :username")
+    Optional<ProfilePictureRef> findProfilePictureByUsername(@Param("username") String username);
+
+    boolean existsByProfilePictureHash(String profilePictureHash);
+
+    // Id-only lookups, so resolving the caller never loads the profile picture
+    @Query("SELECT u.id FROM User u WHERE u.username = :username")
+    Optional<Long> findIdByUsername(@Param("username") String username);
+
+    @Query("SELECT u.id FROM User u WHERE u.email = :email")
+    Optional<Long> findIdByEmail(@Param("email") String email);
+
+    @Query("SELECT u.timeZone FROM User u WHERE u.id = :id")
+    Optional<String> findTimeZoneById(@Param("id") Long id);
+
+    // Login: one narrow row, no managed entity
+    @Query("SELECT u.id AS id, u.username AS username, u.password AS password, u.email AS email, " +
+           "u.emailVerified AS emailVerified, u.hasBeenPromptedForProfilePic AS hasBeenPromptedForProfilePic, " +
+           "u.profilePictureHash AS profilePictureHash, u.timeZone AS timeZone " +
+           "FROM User u WHERE u.username = :username")
+    Optional<AccountRow> findAccountByUsername(@Param("username") String username);
+
+    // Rehash on login; touches only the password column
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password WHERE u.username = :username")
+    int updatePasswordByUsername(@Param("username") String username, @Param("password") String password);
+
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
 
-    Optional<User> findByVerificationCode(String verificationCode);
-    Optional<User> findByResetPasswordCode(String resetPasswordCode);
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password WHERE u.email = :email")
+    int updatePasswordByEmail(@Param("email") String email, @Param("password") String password);
+
+    // No-op (and no row lock) when the address is already verified
+    @Modifying
+    @Query("UPDATE User u SET u.emailVerified = true WHERE u.email = :email AND u.emailVerified = false")
+    int markEmailVerifiedByEmail(@Param("email") String email);
+
+    // A sub-interface, since User itself implements UserAccount and Spring Data would return the entity instead
+    interface AccountRow extends UserAccount {}
 
-    
-    Optional<User> findByLoginVerificationCode(String loginVerificationCode);
+    interface ProfilePictureRef {
+        String getHash();
+        String getContentType();
+    }
 }
 
 
@@ -1,16 +1,46 @@
 package com.habitforge.habitforge_backend.repository;
 
 import com.habitforge.habitforge_backend.model.VerificationCode;
+import com.habitforge.habitforge_backend.model.VerificationPurpose;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
+// Each write runs in its own short transaction; none of them touches the users table
 @Repository
 public interface VerificationCodeRepository extends JpaRepository<VerificationCode, Long> {
 
-    Optional<VerificationCode> findByEmail(String email);
-    Optional<VerificationCode> findByEmailAndCode(String email, String code);
-    void deleteByEmail(String email); // Cleanup existing codes if needed
-}
+    Optional<VerificationCode> findByEmailAndPurpose(String email, VerificationPurpose purpose);
+
+    // Re-issue in place; 0 means there was no live row to replace
+    @Transactional
+    @Modifying
+    @Query("UPDATE VerificationCode v SET v.code = :code, v.expirationTime = :expiresAt " +
+           "WHERE v.email = :email AND v.purpose = :purpose")
+    int replaceCode(@Param("email") String email, @Param("purpose") VerificationPurpose purpose,
+                    @Param("code") String code, @Param("expiresAt") LocalDateTime expiresAt);
+
+    // Single use: of two concurrent attempts with the right code, only one deletes the row
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM VerificationCode v WHERE v.email = :email AND v.purpose = :purpose " +
+           "AND v.code = :code AND v.expirationTime > :now")
+    int consume(@Param("email") String email, @Param("purpose") VerificationPurpose purpose,
+                @Param("code") String code, @Param("now") LocalDateTime now);
 
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM VerificationCode v WHERE v.email = :email AND v.purpose = :purpose")
+    int deleteByEmailAndPurpose(@Param("email") String email, @Param("purpose") VerificationPurpose purpose);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM VerificationCode v WHERE v.expirationTime <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,15 @@
+package com.habitforge.habitforge_backend.security;
+
+import java.security.Principal;
+
+/**
+ * Principal JwtFilter puts on each authenticated request: the user's id and the token subject.
+ * getName() keeps returning the subject, so Authentication.getName() behaves as before.
+ */
+public record AuthenticatedUser(Long userId, String username) implements Principal {
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
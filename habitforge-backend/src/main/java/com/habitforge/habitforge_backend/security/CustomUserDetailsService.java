@@ -1,16 +1,18 @@
 package com.habitforge.habitforge_backend.security;
 
-import com.habitforge.habitforge_backend.model.User;
+import com.habitforge.habitforge_backend.model.UserAccount;
 import com.habitforge.habitforge_backend.repository.UserRepository;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import static org.springframework.security.core.userdetails.User.withUsername;
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
 
@@ -20,13 +22,22 @@ public class CustomUserDetailsService implements UserDetailsService {
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        // Unwrap Optional<User> properly
-        User user = userRepository.findByUsername(username)
+        UserAccount account = userRepository.findAccountByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
+        return new LoginPrincipal(account, account.getPassword());
+    }
 
+    // Called by the authentication provider after a successful login whose hash used another BCrypt cost
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePasswordByUsername(user.getUsername(), newPassword);
+        if (user instanceof LoginPrincipal principal) {
+            return new LoginPrincipal(principal.account(), newPassword);
+        }
         return withUsername(user.getUsername())
-                .password(user.getPassword())
-                .authorities("USER")
+                .password(newPassword)
+                .authorities(user.getAuthorities())
                 .build();
     }
 }
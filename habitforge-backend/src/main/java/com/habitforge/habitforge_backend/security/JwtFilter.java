@@ -1,7 +1,6 @@
 package com.habitforge.habitforge_backend.security;
 
-import io.jsonwebtoken.ExpiredJwtException;
-import io.jsonwebtoken.JwtException;
+import com.habitforge.habitforge_backend.service.UserIdCache;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -16,62 +15,74 @@ import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
 import java.util.logging.Logger;
 
 @Component
 public class JwtFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
+    private final UserIdCache userIdCache;
     private static final Logger LOGGER = Logger.getLogger(JwtFilter.class.getName());
 
-    public JwtFilter(JwtUtil jwtUtil) {
+    // Public auth & verification endpoints, plus static entry points
+    private static final Set<String> PUBLIC_PATHS = Set.of(
+            "/",
+            "/favicon.ico",
+            "/index.html",
+            "/api/users/login",
+            "/api/users/signup",
+            "/api/users/send-verification-code",
+            "/api/users/verify-login-code",
+            "/api/users/verify-code",
+            "/api/users/set-email",
+            "/api/users/forgot-password",
+            "/api/users/reset-password"
+    );
+
+    // Public profile picture endpoint
+    private static final Pattern PROFILE_PICTURE_PATH = Pattern.compile("^/api/users/[^/]+/profile-picture$");
+
+    private static final List<SimpleGrantedAuthority> USER_AUTHORITIES = List.of(new SimpleGrantedAuthority("ROLE_USER"));
+
+    public JwtFilter(JwtUtil jwtUtil, UserIdCache userIdCache) {
         this.jwtUtil = jwtUtil;
+        this.userIdCache = userIdCache;
     }
 
+    // Only runs for non-public paths; OncePerRequestFilter has already consulted shouldNotFilter
     @Override
     protected void doFilterInternal(@NonNull HttpServletRequest request,
                                     @NonNull HttpServletResponse response,
                                     @NonNull FilterChain filterChain)
             throws ServletException, IOException {
 
-        String path = request.getServletPath();
-        String method = request.getMethod();
-        LOGGER.info("🔐 JwtFilter: " + method + " " + path);
-
-        if (shouldNotFilter(request)) {
-            LOGGER.info("✅ Public endpoint, skipping filter");
-            filterChain.doFilter(request, response);
-            return;
-        }
-
         final String authHeader = request.getHeader("Authorization");
 
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            String jwt = authHeader.substring(7);
-            try {
-                String username = jwtUtil.extractUsername(jwt);
-                if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                    if (jwtUtil.validateToken(jwt)) {
-                        UsernamePasswordAuthenticationToken authToken =
-                                new UsernamePasswordAuthenticationToken(
-                                        username,
-                                        null,
-                                        List.of(new SimpleGrantedAuthority("ROLE_USER"))
-                                );
-                        authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                        SecurityContextHolder.getContext().setAuthentication(authToken);
-                        LOGGER.info("✅ Authenticated user: " + username);
-                    } else {
-                        LOGGER.warning("❌ Invalid token");
-                    }
+            if (SecurityContextHolder.getContext().getAuthentication() == null) {
+                // One signature check yields both validity and the username
+                JwtUtil.VerifiedToken token = jwtUtil.verify(authHeader.substring(7));
+                // Tokens issued before the uid claim existed fall back to the cached username lookup
+                Long userId = token == null ? null
+                        : token.userId() != null ? token.userId() : userIdCache.resolve(token.username());
+                if (userId != null && token.username() != null) {
+                    UsernamePasswordAuthenticationToken authToken =
+                            new UsernamePasswordAuthenticationToken(
+                                    new AuthenticatedUser(userId, token.username()),
+                                    null,
+                                    USER_AUTHORITIES
+                            );
+                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    SecurityContextHolder.getContext().setAuthentication(authToken);
+                    LOGGER.fine(() -> "Authenticated user: " + token.username());
+                } else {
+                    LOGGER.fine("Invalid or expired token");
                 }
-            } catch (ExpiredJwtException e) {
-                LOGGER.warning("⏰ Token expired");
-            } catch (JwtException e) {
-                LOGGER.warning("❌ Invalid token format: " + e.getMessage());
             }
         } else {
-            LOGGER.warning("⚠️ No token provided or malformed header");
+            LOGGER.fine(() -> "No token provided or malformed header: " + request.getMethod() + " " + request.getServletPath());
         }
 
         filterChain.doFilter(request, response);
@@ -79,45 +90,17 @@ public class JwtFilter extends OncePerRequestFilter {
 
     @Override
     protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
-        String path = request.getServletPath().replaceAll("/+$", "");
+        // Allow CORS preflight requests
+        if ("OPTIONS".equalsIgnoreCase(request.getMethod())) return true;
 
-        return path.equals("/") ||
-               path.equals("/favicon.ico") ||
-               path.equals("/index.html") ||
+        String path = request.getServletPath();
+        int end = path.length();
+        while (end > 0 && path.charAt(end - 1) == '/') end--;
+        path = end == 0 ? "/" : path.substring(0, end);
+
+        return PUBLIC_PATHS.contains(path) ||
                path.startsWith("/static/") ||
                path.startsWith("/public/") ||
-
-               // Public auth & verification endpoints
-               path.equals("/api/users/login") ||
-               path.equals("/api/users/signup") ||
-               path.equals("/api/users/send-verification-code") ||
-               path.equals("/api/users/verify-login-code") ||
-               path.equals("/api/users/verify-code") ||
-               path.equals("/api/users/set-email") ||  
-               path.equals("/api/users/forgot-password") ||
-               path.equals("/api/users/reset-password") ||
-
-               // Public profile picture endpoint
-               path.matches("^/api/users/[^/]+/profile-picture$") ||
-
-               // Allow CORS preflight requests
-               request.getMethod().equalsIgnoreCase("OPTIONS");
+               (path.endsWith("/profile-picture") && PROFILE_PICTURE_PATH.matcher(path).matches());
     }
 }
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
-
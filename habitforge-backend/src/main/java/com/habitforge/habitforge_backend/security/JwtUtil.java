@@ -1,40 +1,87 @@
 package com.habitforge.habitforge_backend.security;
 
+import com.habitforge.habitforge_backend.util.BoundedMap;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Base64;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
 
 @Component
 public class JwtUtil {
 
+    private static final Logger LOGGER = Logger.getLogger(JwtUtil.class.getName());
+    private static final String USER_ID_CLAIM = "uid";
+
     @Value("${jwt.secret}")
     private String secretKeyString;
 
+    // Upper bound on remembered verified tokens; each entry is a digest plus a few claims
+    @Value("${jwt.verified-cache-size:10000}")
+    private int verifiedCacheSize = 10000;
+
+    private final MeterRegistry meterRegistry;
+    private Counter cacheHits;
+    private Timer verifiedTimer;
+    private Timer rejectedTimer;
+
     private Key secretKey;
 
+    // Immutable and thread-safe, so it is built once instead of per call
+    private JwtParser parser;
+
+    // SHA-256 of the token -> claims that already passed signature verification
+    private BoundedMap<ByteBuffer, VerifiedToken> verifiedTokens;
+
+    // Subject, user id and email of a token whose signature has been checked; userId is null on older tokens
+    public record VerifiedToken(String username, Long userId, String email, long expiresAtMillis) {
+        public boolean isExpired(long nowMillis) {
+            return nowMillis >= expiresAtMillis;
+        }
+    }
+
+    public JwtUtil(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
     @PostConstruct
     public void init() {
+        cacheHits = meterRegistry.counter("habitforge.jwt.verify.cache.hits");
+        verifiedTimer = meterRegistry.timer("habitforge.jwt.verify", "result", "valid");
+        rejectedTimer = meterRegistry.timer("habitforge.jwt.verify", "result", "invalid");
+        verifiedTokens = new BoundedMap<>(verifiedCacheSize);
+        meterRegistry.gauge("habitforge.jwt.verify.cache.size", List.of(), verifiedTokens, BoundedMap::size);
         try {
             byte[] decodedKey = Base64.getDecoder().decode(secretKeyString);
             this.secretKey = Keys.hmacShaKeyFor(decodedKey);
+            this.parser = Jwts.parserBuilder().setSigningKey(secretKey).build();
             System.out.println("[JwtUtil] Secret key initialized");
         } catch (Exception e) {
             System.out.println("[JwtUtil] Failed to initialize secret key: " + e.getMessage());
         }
     }
 
-    // Generate token with optional email
-    public String generateToken(String username, String email) {
+    // Generate token carrying the stable user id, so requests need no username lookup
+    public String generateToken(Long userId, String username, String email) {
         long expirationMillis = 1000 * 60 * 60; // 1 hour
         try {
             return Jwts.builder()
                     .setSubject(username)
+                    .claim(USER_ID_CLAIM, userId)
                     .claim("email", email)
                     .setIssuedAt(new Date())
                     .setExpiration(new Date(System.currentTimeMillis() + expirationMillis))
@@ -46,35 +93,72 @@ public class JwtUtil {
         }
     }
 
+    // Generate token with optional email
+    public String generateToken(String username, String email) {
+        return generateToken(null, username, email);
+    }
+
     // Overload without email
     public String generateToken(String username) {
-        return generateToken(username, null);
+        return generateToken(null, username, null);
     }
 
-    // Extract username from JWT
-    public String extractUsername(String token) {
+    /**
+     * Verifies the signature and expiry once and returns the claims the app uses, or null if the token is invalid.
+     * Verified tokens are remembered by digest until they expire, so repeat requests skip the HMAC and JSON parse.
+     */
+    public VerifiedToken verify(String token) {
+        if (token == null || token.isEmpty()) return null;
+
+        long now = System.currentTimeMillis();
+        ByteBuffer key = digest(token);
+        VerifiedToken cached = verifiedTokens.get(key);
+        if (cached != null) {
+            cacheHits.increment();
+            if (!cached.isExpired(now)) return cached;
+            verifiedTokens.remove(key, cached);
+            return null;
+        }
+
+        long startNanos = System.nanoTime();
         try {
-            return getAllClaims(token).getSubject();
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            Date expiration = claims.getExpiration();
+            VerifiedToken verified = new VerifiedToken(
+                    claims.getSubject(),
+                    claims.get(USER_ID_CLAIM, Long.class),
+                    claims.get("email", String.class),
+                    expiration == null ? Long.MAX_VALUE : expiration.getTime());
+            verifiedTokens.put(key, verified, entry -> entry.isExpired(now));
+            verifiedTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            return verified;
+        } catch (ExpiredJwtException e) {
+            LOGGER.fine(() -> "Token expired: " + e.getMessage());
         } catch (JwtException e) {
-            System.out.println("[JwtUtil] Failed to extract username: " + e.getMessage());
-            return null;
+            LOGGER.fine(() -> "Invalid JWT: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            LOGGER.fine(() -> "Token is null or empty: " + e.getMessage());
         }
+        rejectedTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        return null;
+    }
+
+    // Extract username from JWT
+    public String extractUsername(String token) {
+        VerifiedToken verified = verify(token);
+        return verified == null ? null : verified.username();
     }
 
     // Extract email if present
     public String extractEmail(String token) {
-        try {
-            return getAllClaims(token).get("email", String.class);
-        } catch (Exception e) {
-            System.out.println("[JwtUtil] Failed to extract email: " + e.getMessage());
-            return null;
-        }
+        VerifiedToken verified = verify(token);
+        return verified == null ? null : verified.email();
     }
 
     // Extract username from Authorization header
     public String extractUsernameFromHeader(String authHeader) {
         if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            System.out.println("[JwtUtil] Missing or invalid Authorization header.");
+            LOGGER.fine("Missing or invalid Authorization header");
             return null;
         }
 
@@ -84,29 +168,21 @@ public class JwtUtil {
 
     // Validate token integrity and expiration
     public boolean validateToken(String token) {
+        return verify(token) != null;
+    }
+
+    private static ByteBuffer digest(String token) {
         try {
-            Jwts.parserBuilder()
-                .setSigningKey(secretKey)
-                .build()
-                .parseClaimsJws(token);
-            return true;
-        } catch (ExpiredJwtException e) {
-            System.out.println("[JwtUtil] Token expired: " + e.getMessage());
-        } catch (JwtException e) {
-            System.out.println("[JwtUtil] Invalid JWT: " + e.getMessage());
-        } catch (IllegalArgumentException e) {
-            System.out.println("[JwtUtil] Token is null or empty: " + e.getMessage());
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return ByteBuffer.wrap(sha256.digest(token.getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
         }
-        return false;
     }
 
     // Private: Extract all claims (subject, email, expiration, etc.)
     private Claims getAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(secretKey)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parser.parseClaimsJws(token).getBody();
     }
 
     // Debug utility
@@ -0,0 +1,20 @@
+package com.habitforge.habitforge_backend.security;
+
+import com.habitforge.habitforge_backend.model.UserAccount;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.User;
+
+/** UserDetails that keeps the account row it was built from, so login can answer without loading the user again. */
+public class LoginPrincipal extends User {
+
+    private final transient UserAccount account;
+
+    public LoginPrincipal(UserAccount account, String passwordHash) {
+        super(account.getUsername(), passwordHash, AuthorityUtils.createAuthorityList("USER"));
+        this.account = account;
+    }
+
+    public UserAccount account() {
+        return account;
+    }
+}
@@ -0,0 +1,9 @@
+package com.habitforge.habitforge_backend.security;
+
+/** Every password-hashing thread is busy and the wait queue is full; the client should retry shortly. */
+public class PasswordHashingBusyException extends RuntimeException {
+
+    public PasswordHashingBusyException() {
+        super("Password hashing is saturated, try again shortly.");
+    }
+}
@@ -0,0 +1,236 @@
+package com.habitforge.habitforge_backend.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.ByteArrayInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Per-IP and per-account token buckets in front of the endpoints that cost a BCrypt hash, an email or a
+ * database write without any authentication. Limits are requests per minute, read from
+ * habitforge.rate-limit.&lt;endpoint&gt;.per-ip / .per-account (0 turns a limit off). The account is the
+ * email, or the username for login, taken from the small JSON body, which is buffered for the controller.
+ * Rejected requests get 429 with Retry-After in seconds.
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    // Bodies of these endpoints are a few fields; anything larger is only limited per IP, whatever Content-Length says
+    private static final int MAX_BUFFERED_BODY = 16 * 1024;
+
+    private final RateLimiter limiter;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Map<String, Limit> limits;
+
+    public RateLimitFilter(RateLimiter limiter, ObjectMapper objectMapper, MeterRegistry meterRegistry, Environment env,
+                           @Value("${habitforge.rate-limit.enabled:true}") boolean enabled) {
+        this.limiter = limiter;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.limits = List.of(
+                Limit.of(env, "login", "username", 20, 10),
+                Limit.of(env, "signup", "email", 5, 3),
+                Limit.of(env, "send-verification-code", "email", 10, 3),
+                Limit.of(env, "verify-code", "email", 30, 10),
+                Limit.of(env, "forgot-password", "email", 10, 3),
+                Limit.of(env, "reset-password", "email", 30, 10)
+        ).stream().collect(Collectors.toUnmodifiableMap(Limit::path, Function.identity()));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !enabled || !"POST".equalsIgnoreCase(request.getMethod()) || !limits.containsKey(pathOf(request));
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain)
+            throws ServletException, IOException {
+
+        Limit limit = limits.get(pathOf(request));
+
+        // Remote address as resolved by the container; behind a proxy set server.forward-headers-strategy
+        long wait = limiter.tryAcquire(limit.name() + "|ip|" + request.getRemoteAddr(), limit.perIp());
+        if (wait > 0) {
+            reject(response, limit, "ip", wait);
+            return;
+        }
+
+        HttpServletRequest forward = request;
+        if (limit.perAccount() > 0) {
+            BufferedBodyRequest buffered = BufferedBodyRequest.of(request);
+            forward = buffered;
+            if (buffered.rest == null) {
+                String account = accountOf(buffered.body, limit.accountField());
+                if (account != null) {
+                    wait = limiter.tryAcquire(limit.name() + "|account|" + account, limit.perAccount());
+                    if (wait > 0) {
+                        reject(response, limit, "account", wait);
+                        return;
+                    }
+                }
+            }
+        }
+
+        filterChain.doFilter(forward, response);
+    }
+
+    // Trailing slashes would otherwise slip past the limits
+    private static String pathOf(HttpServletRequest request) {
+        String path = request.getServletPath();
+        int end = path.length();
+        while (end > 1 && path.charAt(end - 1) == '/') end--;
+        return path.substring(0, end);
+    }
+
+    private String accountOf(byte[] body, String field) {
+        try {
+            JsonNode value = objectMapper.readTree(body).get(field);
+            if (value == null || !value.isTextual() || value.asText().isBlank()) return null;
+            return value.asText().trim().toLowerCase(Locale.ROOT);
+        } catch (IOException e) {
+            return null; // Not JSON; the controller answers with 400
+        }
+    }
+
+    private void reject(HttpServletResponse response, Limit limit, String scope, long waitNanos) throws IOException {
+        meterRegistry.counter("habitforge.ratelimit.rejected", "endpoint", limit.name(), "scope", scope).increment();
+        long seconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setStatus(429);
+        response.setHeader("Retry-After", Long.toString(seconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getWriter().write("{\"error\":\"Too many requests. Try again later.\"}");
+    }
+
+    private record Limit(String name, String path, String accountField, int perIp, int perAccount) {
+        static Limit of(Environment env, String name, String accountField, int defaultPerIp, int defaultPerAccount) {
+            String prefix = "habitforge.rate-limit." + name;
+            return new Limit(name, "/api/users/" + name, accountField,
+                    env.getProperty(prefix + ".per-ip", Integer.class, defaultPerIp),
+                    env.getProperty(prefix + ".per-account", Integer.class, defaultPerAccount));
+        }
+    }
+
+    // Lets the filter read the body and the controller read it again.
+    // The body is read up to the cap whether or not Content-Length is sent, so a chunked request is still keyed;
+    // only a body past the cap keeps the rest unread (rest != null) and goes on without an account key.
+    private static final class BufferedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+        private final ServletInputStream rest;
+
+        private BufferedBodyRequest(HttpServletRequest request, byte[] body, ServletInputStream rest) {
+            super(request);
+            this.body = body;
+            this.rest = rest;
+        }
+
+        static BufferedBodyRequest of(HttpServletRequest request) throws IOException {
+            ServletInputStream in = request.getInputStream();
+            byte[] head = in.readNBytes(MAX_BUFFERED_BODY + 1);
+            return new BufferedBodyRequest(request, head, head.length > MAX_BUFFERED_BODY ? in : null);
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            return new ReplayInputStream(new ByteArrayInputStream(body), rest);
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int getContentLength() {
+            return rest == null ? body.length : super.getContentLength();
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return rest == null ? body.length : super.getContentLengthLong();
+        }
+    }
+
+    // The buffered bytes, then whatever the container has not handed over yet
+    private static final class ReplayInputStream extends ServletInputStream {
+
+        private final ByteArrayInputStream buffered;
+        private final ServletInputStream rest;
+
+        private ReplayInputStream(ByteArrayInputStream buffered, ServletInputStream rest) {
+            this.buffered = buffered;
+            this.rest = rest;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = buffered.read();
+            return b >= 0 || rest == null ? b : rest.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            int n = buffered.read(b, off, len);
+            return n > 0 || rest == null ? n : rest.read(b, off, len);
+        }
+
+        @Override
+        public boolean isFinished() {
+            return buffered.available() == 0 && (rest == null || rest.isFinished());
+        }
+
+        @Override
+        public boolean isReady() {
+            return buffered.available() > 0 || rest == null || rest.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener listener) {
+            if (rest != null) {
+                // The container drives the callbacks; isReady stays true until the buffered bytes are read
+                rest.setReadListener(listener);
+                return;
+            }
+            // The whole body is already in memory
+            try {
+                listener.onDataAvailable();
+                listener.onAllDataRead();
+            } catch (IOException e) {
+                listener.onError(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.habitforge.habitforge_backend.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets keyed by string ("login|ip|203.0.113.7"), refilled continuously at a per-minute rate.
+ * A bucket is a single AtomicLong holding the time at which it will be full again (the GCRA form of a token
+ * bucket), so taking a token is one compare-and-set and never blocks. Buckets are spread over independent
+ * stripes, each with a size cap; a bucket that has refilled completely is indistinguishable from a new one,
+ * so the idle sweep simply drops it.
+ */
+@Component
+public class RateLimiter {
+
+    private static final int STRIPES = 16;
+    private static final long MINUTE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final LongSupplier clock;
+    private final int maxPerStripe;
+    @SuppressWarnings("unchecked")
+    private final Map<String, AtomicLong>[] stripes = new Map[STRIPES];
+
+    @Autowired
+    public RateLimiter(@Value("${habitforge.rate-limit.max-buckets:100000}") int maxBuckets,
+                       MeterRegistry meterRegistry) {
+        this(maxBuckets, System::nanoTime);
+        meterRegistry.gauge("habitforge.ratelimit.buckets", this, RateLimiter::size);
+    }
+
+    RateLimiter(int maxBuckets, LongSupplier clock) {
+        this.clock = clock;
+        this.maxPerStripe = Math.max(1, maxBuckets / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ConcurrentHashMap<>();
+        }
+    }
+
+    /**
+     * Takes one token from the bucket for key, which holds up to perMinute tokens.
+     * Returns 0 when the request may proceed, otherwise the nanoseconds until a token is available.
+     */
+    public long tryAcquire(String key, int perMinute) {
+        if (perMinute <= 0) return 0; // Unlimited
+        long interval = MINUTE_NANOS / perMinute;
+        long burst = interval * (perMinute - 1);
+        long now = clock.getAsLong();
+
+        Map<String, AtomicLong> stripe = stripeOf(key);
+        AtomicLong bucket = stripe.get(key);
+        if (bucket == null) {
+            // Full: drop what has refilled, and start the stripe over if that was not enough
+            if (stripe.size() >= maxPerStripe && evictIdle(stripe, now) == 0) stripe.clear();
+            bucket = stripe.computeIfAbsent(key, k -> new AtomicLong(now));
+        }
+
+        while (true) {
+            long fullAt = bucket.get();
+            long start = Math.max(fullAt, now);
+            long wait = start - now - burst;
+            if (wait > 0) return wait;
+            if (bucket.compareAndSet(fullAt, start + interval)) return 0;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${habitforge.rate-limit.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        long now = clock.getAsLong();
+        for (Map<String, AtomicLong> stripe : stripes) {
+            evictIdle(stripe, now);
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Map<String, AtomicLong> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private static int evictIdle(Map<String, AtomicLong> stripe, long now) {
+        int before = stripe.size();
+        stripe.values().removeIf(bucket -> bucket.get() - now <= 0);
+        return before - stripe.size();
+    }
+
+    private Map<String, AtomicLong> stripeOf(String key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+}
@@ -0,0 +1,241 @@
+package com.habitforge.habitforge_backend.service;
+
+import com.habitforge.habitforge_backend.dto.CheckInBatchRequest;
+import com.habitforge.habitforge_backend.dto.CheckInBatchResult;
+import com.habitforge.habitforge_backend.dto.CheckInBatchResult.EntryResult;
+import com.habitforge.habitforge_backend.dto.HabitDTO;
+import com.habitforge.habitforge_backend.model.CheckInKey;
+import com.habitforge.habitforge_backend.model.CheckInOutcome;
+import com.habitforge.habitforge_backend.model.CompletionBitmap;
+import com.habitforge.habitforge_backend.model.Habit;
+import com.habitforge.habitforge_backend.repository.CheckInKeyRepository;
+import com.habitforge.habitforge_backend.repository.HabitRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+/**
+ * Applies check-ins queued by an offline client in one transaction.
+ * Each entry carries an idempotency key; the first time a key is seen its outcome is stored in
+ * habit_check_in_key, and any later replay just returns that outcome. A full replay is a single query.
+ */
+@Service
+public class CheckInBatchService {
+
+    private static final Logger LOGGER = Logger.getLogger(CheckInBatchService.class.getName());
+
+    private static final int MAX_KEY_LENGTH = 100;
+
+    // Same claim-by-unique-key pattern as the reminder dispatch ledger; 0 rows means the key was already taken
+    private static final String CLAIM_SQL =
+            "INSERT INTO habit_check_in_key (user_id, idempotency_key, habit_id, check_in_date, outcome, created_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?) ON CONFLICT DO NOTHING";
+
+    private final HabitRepository habitRepo;
+    private final CheckInKeyRepository keyRepo;
+    private final JdbcTemplate jdbc;
+    private final HabitService habitService;
+    private final HabitListVersions listVersions;
+    private final UserTimeZones userTimeZones;
+
+    @Value("${habitforge.check-ins.batch-max-entries:500}")
+    private int maxEntries;
+
+    // How far back an offline check-in may be dated
+    @Value("${habitforge.check-ins.max-backfill-days:30}")
+    private int maxBackfillDays;
+
+    @Value("${habitforge.check-ins.key-retention-days:30}")
+    private int keyRetentionDays;
+
+    public CheckInBatchService(HabitRepository habitRepo, CheckInKeyRepository keyRepo,
+                               JdbcTemplate jdbc, HabitService habitService, HabitListVersions listVersions,
+                               UserTimeZones userTimeZones) {
+        this.habitRepo = habitRepo;
+        this.keyRepo = keyRepo;
+        this.jdbc = jdbc;
+        this.habitService = habitService;
+        this.listVersions = listVersions;
+        this.userTimeZones = userTimeZones;
+    }
+
+    @Transactional
+    public CheckInBatchResult apply(Long userId, List<CheckInBatchRequest.Entry> entries) {
+        if (entries == null || entries.isEmpty()) {
+            throw new IllegalArgumentException("No check-ins given");
+        }
+        if (entries.size() > maxEntries) {
+            throw new IllegalArgumentException("At most " + maxEntries + " check-ins per batch");
+        }
+
+        EntryResult[] results = new EntryResult[entries.size()];
+
+        // Keys from earlier requests answer straight from the ledger
+        Set<String> keys = entries.stream().filter(CheckInBatchService::isValid)
+                .map(CheckInBatchRequest.Entry::idempotencyKey).collect(Collectors.toSet());
+        Map<String, CheckInKey> known = keys.isEmpty() ? Map.of()
+                : keyRepo.findByUserIdAndIdempotencyKeyIn(userId, keys).stream()
+                        .collect(Collectors.toMap(CheckInKey::getIdempotencyKey, Function.identity()));
+
+        List<Integer> fresh = new ArrayList<>();
+        Map<Integer, Integer> repeatedInBatch = new HashMap<>();
+        Map<String, Integer> firstIndexOfKey = new HashMap<>();
+        for (int i = 0; i < entries.size(); i++) {
+            CheckInBatchRequest.Entry entry = entries.get(i);
+            if (!isValid(entry)) {
+                results[i] = result(entry, CheckInOutcome.INVALID, false);
+                continue;
+            }
+            CheckInKey prior = known.get(entry.idempotencyKey());
+            if (prior != null) {
+                results[i] = new EntryResult(prior.getIdempotencyKey(), prior.getHabitId(),
+                        prior.getCheckInDate(), prior.getOutcome(), true);
+                continue;
+            }
+            Integer first = firstIndexOfKey.putIfAbsent(entry.idempotencyKey(), i);
+            if (first != null) {
+                repeatedInBatch.put(i, first);
+            } else {
+                fresh.add(i);
+            }
+        }
+        if (fresh.isEmpty()) {
+            fillRepeats(results, repeatedInBatch);
+            return new CheckInBatchResult(List.of(results), List.of());
+        }
+
+        // One query for every habit the new entries mention, limited to the caller's own
+        Set<Long> habitIds = fresh.stream().map(i -> entries.get(i).habitId()).collect(Collectors.toSet());
+        Map<Long, Habit> habits = habitRepo.findAllWithReminderByIdInAndUserId(habitIds, userId).stream()
+                .collect(Collectors.toMap(Habit::getId, Function.identity()));
+
+        LocalDate today = userTimeZones.today(userId);
+        Set<String> decidedDays = new HashSet<>();
+        for (int i : fresh) {
+            CheckInBatchRequest.Entry entry = entries.get(i);
+            results[i] = result(entry, evaluate(entry, habits.get(entry.habitId()), today, decidedDays), false);
+        }
+
+        int[] claimed = claimKeys(userId, fresh, results);
+
+        // Group the applied days by habit so each habit's streaks are recomputed once
+        Map<Habit, TreeSet<LocalDate>> toApply = new LinkedHashMap<>();
+        List<String> lostKeys = new ArrayList<>();
+        for (int k = 0; k < fresh.size(); k++) {
+            int i = fresh.get(k);
+            if (claimed[k] == 0) {
+                lostKeys.add(results[i].idempotencyKey()); // A concurrent request with the same key got there first
+            } else if (results[i].outcome() == CheckInOutcome.APPLIED) {
+                toApply.computeIfAbsent(habits.get(results[i].habitId()), h -> new TreeSet<>()).add(results[i].date());
+            }
+        }
+        if (!lostKeys.isEmpty()) {
+            replayLostClaims(userId, lostKeys, fresh, results);
+        }
+
+        List<HabitDTO> changed = new ArrayList<>(toApply.size());
+        long listVersion = toApply.isEmpty() ? 0 : listVersions.bump(userId);
+        toApply.forEach((habit, days) -> {
+            habit.setListVersion(listVersion);
+            days.forEach(habit::markCompleted);
+            recomputeStreaks(habit, days.last());
+            changed.add(habitService.convertToDTO(habit));
+        });
+
+        fillRepeats(results, repeatedInBatch);
+        return new CheckInBatchResult(List.of(results), changed);
+    }
+
+    @Scheduled(cron = "0 45 3 * * *") // Daily at 03:45
+    public void purgeOldKeys() {
+        int removed = keyRepo.deleteOlderThan(LocalDateTime.now().minusDays(keyRetentionDays));
+        LOGGER.info("Purged " + removed + " check-in idempotency keys");
+    }
+
+    private CheckInOutcome evaluate(CheckInBatchRequest.Entry entry, Habit habit, LocalDate today, Set<String> decidedDays) {
+        LocalDate date = entry.date();
+        if (habit == null) return CheckInOutcome.HABIT_NOT_FOUND;
+        if (date.isAfter(today)) return CheckInOutcome.FUTURE_DATE;
+        if (date.isBefore(today.minusDays(maxBackfillDays))) return CheckInOutcome.TOO_OLD;
+        if (habit.getStartDate() == null || date.isBefore(habit.getStartDate())) return CheckInOutcome.BEFORE_START;
+        if (habit.isCompletedOn(date) || !decidedDays.add(habit.getId() + "|" + date)) {
+            return CheckInOutcome.ALREADY_CHECKED_IN;
+        }
+        return CheckInOutcome.APPLIED;
+    }
+
+    // Inserts every new key in one JDBC batch; returns the per-entry insert counts
+    private int[] claimKeys(Long userId, List<Integer> fresh, EntryResult[] results) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(fresh.size());
+        for (int i : fresh) {
+            EntryResult r = results[i];
+            rows.add(new Object[] { userId, r.idempotencyKey(), r.habitId(), Date.valueOf(r.date()), r.outcome().name(), now });
+        }
+        return jdbc.batchUpdate(CLAIM_SQL, rows);
+    }
+
+    private void replayLostClaims(Long userId, List<String> lostKeys, List<Integer> fresh, EntryResult[] results) {
+        Map<String, CheckInKey> winners = keyRepo.findByUserIdAndIdempotencyKeyIn(userId, lostKeys).stream()
+                .collect(Collectors.toMap(CheckInKey::getIdempotencyKey, Function.identity()));
+        for (int i : fresh) {
+            CheckInKey winner = winners.get(results[i].idempotencyKey());
+            if (winner != null) {
+                results[i] = new EntryResult(winner.getIdempotencyKey(), winner.getHabitId(),
+                        winner.getCheckInDate(), winner.getOutcome(), true);
+            }
+        }
+    }
+
+    // Streak is the run of completed days ending at the latest check-in, read straight off the bitmap
+    private static void recomputeStreaks(Habit habit, LocalDate latestApplied) {
+        LocalDate last = habit.getLastCheckInDate();
+        if (last == null || latestApplied.isAfter(last)) last = latestApplied;
+
+        CompletionBitmap history = habit.getCompletionHistory();
+        int streak = history.runEndingAt(last);
+        habit.setLastCheckInDate(last);
+        habit.setCurrentStreak(streak);
+        habit.recordStreak(history.longestRun()); // Backfilled days can join two older runs
+        if (streak >= habit.getTargetDays()) {
+            habit.setCompleted(true);
+        }
+    }
+
+    private static void fillRepeats(EntryResult[] results, Map<Integer, Integer> repeatedInBatch) {
+        repeatedInBatch.forEach((i, first) -> {
+            EntryResult original = results[first];
+            results[i] = new EntryResult(original.idempotencyKey(), original.habitId(), original.date(), original.outcome(), true);
+        });
+    }
+
+    private static boolean isValid(CheckInBatchRequest.Entry entry) {
+        return entry != null && entry.habitId() != null && entry.date() != null
+                && entry.idempotencyKey() != null && !entry.idempotencyKey().isBlank()
+                && entry.idempotencyKey().length() <= MAX_KEY_LENGTH;
+    }
+
+    private static EntryResult result(CheckInBatchRequest.Entry entry, CheckInOutcome outcome, boolean replayed) {
+        return entry == null
+                ? new EntryResult(null, null, null, outcome, replayed)
+                : new EntryResult(entry.idempotencyKey(), entry.habitId(), entry.date(), outcome, replayed);
+    }
+}
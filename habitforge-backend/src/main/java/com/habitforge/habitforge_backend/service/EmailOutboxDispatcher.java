@@ -0,0 +1,330 @@
+package com.habitforge.habitforge_backend.service;
+
+import com.habitforge.habitforge_backend.model.EmailOutbox;
+import com.habitforge.habitforge_backend.model.EmailPriority;
+import com.habitforge.habitforge_backend.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Delivers queued email from the outbox table.
+ * Each priority lane has its own poll loop and concurrency limit, so a bulk reminder backlog
+ * never delays verification codes. Sends run on virtual threads; failures retry with exponential backoff.
+ * The bulk lane hands batches to EmailService.sendBulk so many messages share one pooled SMTP connection.
+ * Claimed rows are leased: the lease is renewed while a send runs, and a row is only marked sent or failed
+ * while its lease is still held, so a row re-claimed by another worker is never settled twice.
+ */
+@Component
+public class EmailOutboxDispatcher implements SmartLifecycle {
+
+    private static final Logger LOGGER = Logger.getLogger(EmailOutboxDispatcher.class.getName());
+
+    private final EmailOutboxRepository outboxRepository;
+    private final EmailService emailService;
+
+    @Value("${habitforge.mail.outbox.transactional-concurrency:8}")
+    private int transactionalConcurrency;
+
+    @Value("${habitforge.mail.outbox.bulk-concurrency:4}")
+    private int bulkConcurrency;
+
+    @Value("${habitforge.mail.outbox.bulk-batch-size:100}")
+    private int bulkBatchSize;
+
+    @Value("${habitforge.mail.outbox.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    @Value("${habitforge.mail.outbox.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${habitforge.mail.outbox.initial-backoff-seconds:10}")
+    private long initialBackoffSeconds;
+
+    @Value("${habitforge.mail.outbox.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Value("${habitforge.mail.outbox.sent-retention-days:7}")
+    private int sentRetentionDays;
+
+    private final Map<EmailPriority, Lane> lanes = new EnumMap<>(EmailPriority.class);
+    private ExecutorService workers;
+    private volatile boolean running;
+
+    public EmailOutboxDispatcher(EmailOutboxRepository outboxRepository, EmailService emailService,
+                                 MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.emailService = emailService;
+        // Queue depth per lane, the first sign that senders cannot keep up
+        for (EmailPriority priority : EmailPriority.values()) {
+            meterRegistry.gauge("habitforge.mail.outbox.pending",
+                    List.of(Tag.of("lane", priority.name().toLowerCase())),
+                    outboxRepository, repo -> repo.countByPriorityAndStatus(priority, EmailOutbox.Status.PENDING));
+        }
+    }
+
+    @Override
+    public void start() {
+        workers = Executors.newVirtualThreadPerTaskExecutor();
+        lanes.put(EmailPriority.TRANSACTIONAL, new Lane(EmailPriority.TRANSACTIONAL, transactionalConcurrency, 1));
+        lanes.put(EmailPriority.BULK, new Lane(EmailPriority.BULK, bulkConcurrency, bulkBatchSize));
+        running = true;
+        for (Lane lane : lanes.values()) {
+            lane.poller = Thread.ofVirtual().name("email-outbox-" + lane.priority.name().toLowerCase()).start(lane::pollLoop);
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        for (Lane lane : lanes.values()) {
+            if (lane.poller != null) lane.poller.interrupt();
+        }
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Wake the lane as soon as the enqueuing transaction commits instead of waiting for the next poll
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEmailQueued(EmailQueuedEvent event) {
+        Lane lane = lanes.get(event.priority());
+        if (lane != null) lane.wakeUp();
+    }
+
+    @Scheduled(cron = "0 15 3 * * *") // Daily at 03:15
+    public void purgeSentMail() {
+        int removed = outboxRepository.deleteSentBefore(LocalDateTime.now().minusDays(sentRetentionDays));
+        LOGGER.info("Purged " + removed + " sent outbox rows");
+    }
+
+    // Holds the claimed rows' lease for as long as the send runs, renewing it so a slow batch is not re-claimed
+    private void deliver(List<EmailOutbox> messages, LocalDateTime leaseUntil) {
+        Lease lease = new Lease(messages.stream().map(EmailOutbox::getId).toList(), leaseUntil);
+        Thread.ofVirtual().name("email-outbox-lease").start(lease::renewUntilDone);
+        try {
+            send(messages, lease);
+        } finally {
+            lease.done.countDown();
+        }
+    }
+
+    // Transactional mail goes one message per send; bulk batches share pooled connections
+    private void send(List<EmailOutbox> messages, Lease lease) {
+        if (messages.get(0).getPriority() == EmailPriority.TRANSACTIONAL) {
+            for (EmailOutbox message : messages) {
+                try {
+                    emailService.deliverHtmlEmail(message.getRecipient(), message.getSubject(), message.getHtmlContent());
+                    lease.markSent(message, LocalDateTime.now());
+                } catch (Exception e) {
+                    recordFailure(message, e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage(), e, lease);
+                }
+            }
+            return;
+        }
+
+        List<EmailService.OutgoingEmail> outgoing = messages.stream()
+                .map(m -> new EmailService.OutgoingEmail(m.getRecipient(), m.getSubject(), m.getHtmlContent()))
+                .toList();
+        EmailService.BulkSendResult result = null;
+        try {
+            result = emailService.sendBulk(outgoing);
+        } finally {
+            if (result == null) {
+                // sendBulk threw: put the claimed rows back now instead of leaving them SENDING until the lease ends
+                for (EmailOutbox message : messages) {
+                    recordFailure(message, "Bulk send aborted", null, lease);
+                }
+            }
+        }
+
+        LocalDateTime sentAt = LocalDateTime.now();
+        for (int i = 0; i < messages.size(); i++) {
+            String error = result.failures().get(i);
+            if (error == null) {
+                lease.markSent(messages.get(i), sentAt);
+            } else {
+                recordFailure(messages.get(i), error, null, lease);
+            }
+        }
+    }
+
+    private void recordFailure(EmailOutbox message, String error, Exception cause, Lease lease) {
+        int attempt = message.getAttempts() + 1;
+        if (error.length() > 1000) error = error.substring(0, 1000);
+
+        if (attempt >= maxAttempts) {
+            if (!lease.markAttemptFailed(message, EmailOutbox.Status.FAILED, LocalDateTime.now(), error)) return;
+            LOGGER.log(Level.SEVERE, "Giving up on email " + message.getId() + " to " + message.getRecipient()
+                    + " after " + attempt + " attempts: " + error, cause);
+        } else {
+            if (!lease.markAttemptFailed(message, EmailOutbox.Status.PENDING, nextAttemptAt(attempt), error)) return;
+            LOGGER.warning("Email " + message.getId() + " to " + message.getRecipient()
+                    + " failed (attempt " + attempt + "), will retry: " + error);
+        }
+    }
+
+    // Truncated to the column's precision, since the lease end is compared for equality as the owner's token
+    private LocalDateTime leaseEnd(LocalDateTime from) {
+        return from.plusSeconds(leaseSeconds).truncatedTo(ChronoUnit.MICROS);
+    }
+
+    // Exponential backoff with jitter: 10s, 20s, 40s ... capped at one hour
+    private LocalDateTime nextAttemptAt(int attempt) {
+        long delay = Math.min(initialBackoffSeconds << Math.min(attempt - 1, 20), TimeUnit.HOURS.toSeconds(1));
+        long jitter = ThreadLocalRandom.current().nextLong(delay / 4 + 1);
+        return LocalDateTime.now().plusSeconds(delay + jitter);
+    }
+
+    // A task's hold on its rows. Settling a row only succeeds while the row still carries this lease,
+    // so a worker whose lease lapsed (a long GC pause, a lost renewal) cannot overwrite the new owner's result.
+    private final class Lease {
+        private final List<Long> ids;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private LocalDateTime until;
+
+        private Lease(List<Long> ids, LocalDateTime until) {
+            this.ids = ids;
+            this.until = until;
+        }
+
+        // Renews at a third of the lease, so one failed renewal still leaves time for the next
+        private void renewUntilDone() {
+            long intervalMs = Math.max(1000, TimeUnit.SECONDS.toMillis(leaseSeconds) / 3);
+            try {
+                while (!done.await(intervalMs, TimeUnit.MILLISECONDS)) {
+                    synchronized (this) {
+                        LocalDateTime renewed = leaseEnd(LocalDateTime.now());
+                        if (outboxRepository.renewLease(ids, until, renewed) == 0) return; // All settled or taken over
+                        until = renewed;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Could not renew the lease on emails " + ids, e);
+            }
+        }
+
+        private synchronized void markSent(EmailOutbox message, LocalDateTime sentAt) {
+            if (outboxRepository.markSent(message.getId(), sentAt, until) == 0) lapsed(message);
+        }
+
+        private synchronized boolean markAttemptFailed(EmailOutbox message, EmailOutbox.Status status,
+                                                       LocalDateTime nextAttemptAt, String error) {
+            if (outboxRepository.markAttemptFailed(message.getId(), status, nextAttemptAt, error, until) == 1) return true;
+            lapsed(message);
+            return false;
+        }
+
+        private void lapsed(EmailOutbox message) {
+            LOGGER.warning("Lease on email " + message.getId() + " to " + message.getRecipient()
+                    + " lapsed before the send was recorded; another worker owns it now");
+        }
+    }
+
+    private final class Lane {
+        private final EmailPriority priority;
+        private final Semaphore permits;
+        private final int messagesPerTask;
+        private final Semaphore wakeups = new Semaphore(0);
+        private Thread poller;
+
+        private Lane(EmailPriority priority, int concurrency, int messagesPerTask) {
+            this.priority = priority;
+            this.permits = new Semaphore(Math.max(1, concurrency));
+            this.messagesPerTask = Math.max(1, messagesPerTask);
+        }
+
+        private void wakeUp() {
+            wakeups.release();
+        }
+
+        private void pollLoop() {
+            while (running) {
+                try {
+                    // Never fetch more rows than the free senders can take
+                    permits.acquire();
+                    int freeSenders = 1 + permits.drainPermits();
+                    permits.release(freeSenders);
+
+                    int wanted = freeSenders * messagesPerTask;
+                    int fetched = dispatchBatch(wanted);
+                    if (fetched < wanted) {
+                        wakeups.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+                        wakeups.drainPermits();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (Exception e) {
+                    LOGGER.log(Level.WARNING, "Outbox poll failed for lane " + priority, e);
+                    try {
+                        Thread.sleep(pollIntervalMs);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+
+        // Claims up to `wanted` due rows and hands them to senders; returns how many rows were due
+        private int dispatchBatch(int wanted) throws InterruptedException {
+            LocalDateTime now = LocalDateTime.now();
+            LocalDateTime leaseUntil = leaseEnd(now);
+            List<EmailOutbox> due = outboxRepository.findDue(priority, now, PageRequest.of(0, wanted));
+
+            List<EmailOutbox> claimed = new ArrayList<>(due.size());
+            for (EmailOutbox message : due) {
+                if (outboxRepository.claim(message.getId(), now, leaseUntil) == 1) {
+                    claimed.add(message); // Otherwise another worker or node took it
+                }
+            }
+
+            for (int from = 0; from < claimed.size(); from += messagesPerTask) {
+                List<EmailOutbox> task = claimed.subList(from, Math.min(claimed.size(), from + messagesPerTask));
+                permits.acquire();
+                workers.execute(() -> {
+                    try {
+                        deliver(task, leaseUntil);
+                    } finally {
+                        permits.release();
+                        wakeUp();
+                    }
+                });
+            }
+            return due.size();
+        }
+    }
+}
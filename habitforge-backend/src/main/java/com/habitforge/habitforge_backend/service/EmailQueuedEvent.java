@@ -0,0 +1,6 @@
+package com.habitforge.habitforge_backend.service;
+
+import com.habitforge.habitforge_backend.model.EmailPriority;
+
+// Published after a message is written to the outbox so its lane can wake up early
+public record EmailQueuedEvent(EmailPriority priority) {}
@@ -1,31 +1,68 @@
 package com.habitforge.habitforge_backend.service;
 
+import com.habitforge.habitforge_backend.model.EmailOutbox;
+import com.habitforge.habitforge_backend.model.EmailPriority;
+import com.habitforge.habitforge_backend.model.VerificationPurpose;
+import com.habitforge.habitforge_backend.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
+import jakarta.mail.Address;
 import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
 import jakarta.mail.internet.MimeMessage;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
 @Service
 public class EmailService {
 
+    private static final Logger LOGGER = Logger.getLogger(EmailService.class.getName());
+
+    // Below this many messages per slice, another connection costs more than it saves
+    private static final int MIN_BULK_SLICE = 20;
+
     @Autowired
     private JavaMailSender mailSender;
 
     @Autowired
-    private UserService userService;  // Inject UserService for storing/verifying codes
+    private UserService userService;
+
+    @Autowired
+    private VerificationCodeStore verificationCodes;
+
+    @Autowired
+    private EmailOutboxRepository outboxRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private SmtpTransportPool transportPool;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     @Value("${spring.mail.username}")
     private String fromAddress;
 
     // Send verification email with code (for email verification or login verification)
     public void sendVerificationCode(String email) {
-        String code = generateCode();
-        // Store the code with the user/email (e.g., in User entity as verificationCode)
-        userService.saveVerificationCode(email, code);
+        String code = verificationCodes.issue(email, VerificationPurpose.EMAIL_VERIFICATION);
         sendVerificationEmail(email, code);
     }
 
@@ -49,10 +86,8 @@ public class EmailService {
 
     // --- NEW: Send password reset code ---
     public void sendPasswordResetCode(String email) {
-        String code = generateCode();
-        // Save the code in resetPasswordCode field of User via UserService
-        boolean saved = userService.generateAndSendPasswordResetCode(email, code);
-        if (!saved) {
+        String code = userService.generatePasswordResetCode(email);
+        if (code == null) {
             throw new RuntimeException("Failed to save password reset code for " + email);
         }
         sendPasswordResetEmail(email, code);
@@ -76,28 +111,137 @@ public class EmailService {
         sendHtmlEmail(to, subject, content);
     }
 
-    // General HTML email sender
+    // General HTML email sender: queues on the transactional lane, EmailOutboxDispatcher delivers it
     public void sendHtmlEmail(String to, String subject, String htmlContent) {
-        try {
-            MimeMessage message = mailSender.createMimeMessage();
-            MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+        sendHtmlEmail(to, subject, htmlContent, EmailPriority.TRANSACTIONAL);
+    }
 
-            helper.setFrom(fromAddress);
-            helper.setTo(to);
-            helper.setSubject(subject);
-            helper.setText(htmlContent, true); // true = HTML
+    public void sendHtmlEmail(String to, String subject, String htmlContent, EmailPriority priority) {
+        outboxRepository.save(new EmailOutbox(to, subject, htmlContent, priority, LocalDateTime.now()));
+        eventPublisher.publishEvent(new EmailQueuedEvent(priority));
+    }
 
-            mailSender.send(message);
+    // Blocking SMTP send on a fresh connection, used by the outbox dispatcher for transactional mail
+    public void deliverHtmlEmail(String to, String subject, String htmlContent) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        try {
+            mailSender.send(createHtmlMessage(to, subject, htmlContent));
+            outcome = "success";
         } catch (MessagingException e) {
-            e.printStackTrace();
-            throw new RuntimeException("Failed to send email to " + to);
+            throw new RuntimeException("Failed to send email to " + to, e);
+        } finally {
+            sample.stop(sendTimer(EmailPriority.TRANSACTIONAL, outcome));
         }
     }
 
-    // Simple code generator (6 digit numeric code)
-    public String generateCode() {
-        int code = (int)(Math.random() * 900000) + 100000;
-        return String.valueOf(code);
+    /**
+     * Sends many messages over pooled SMTP connections, several messages per connection.
+     * The list is split into slices that run in parallel on virtual threads, one pooled connection each.
+     * A message that fails is retried once on a fresh connection before it is reported as failed.
+     */
+    public BulkSendResult sendBulk(List<OutgoingEmail> emails) {
+        long startNanos = System.nanoTime();
+        int total = emails.size();
+        String[] errors = new String[total];
+
+        int slices = Math.max(1, Math.min(transportPool.size(), (total + MIN_BULK_SLICE - 1) / MIN_BULK_SLICE));
+        int sliceSize = (total + slices - 1) / Math.max(1, slices);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int from = 0; from < total; from += sliceSize) {
+                int start = from;
+                int end = Math.min(total, from + sliceSize);
+                executor.execute(() -> sendSlice(emails, start, end, errors));
+            }
+        }
+
+        Map<Integer, String> failures = new TreeMap<>();
+        for (int i = 0; i < total; i++) {
+            if (errors[i] != null) failures.put(i, errors[i]);
+        }
+        BulkSendResult result = new BulkSendResult(total - failures.size(), failures,
+                Duration.ofNanos(System.nanoTime() - startNanos));
+        if (total > 0) {
+            LOGGER.info(String.format("Bulk send: %d messages (%d sent, %d failed) in %d ms, %.1f msg/s",
+                    total, result.sent(), failures.size(), result.elapsed().toMillis(), result.messagesPerSecond()));
+        }
+        return result;
+    }
+
+    private void sendSlice(List<OutgoingEmail> emails, int start, int end, String[] errors) {
+        SmtpTransportPool.Connection connection;
+        try {
+            connection = transportPool.borrow();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            for (int i = start; i < end; i++) errors[i] = "Interrupted before sending";
+            return;
+        }
+        try {
+            for (int i = start; i < end; i++) {
+                OutgoingEmail email = emails.get(i);
+                Timer.Sample sample = Timer.start(meterRegistry);
+                String outcome = "failure";
+                try {
+                    MimeMessage message = createHtmlMessage(email.to(), email.subject(), email.htmlContent());
+                    try {
+                        connection.send(message);
+                    } catch (SendFailedException partial) {
+                        // Recipients the server accepted already have the mail; only the rest are sent again
+                        Address[] undelivered = undelivered(partial, message);
+                        if (undelivered.length > 0) connection.send(message, undelivered);
+                    } catch (MessagingException first) {
+                        // Usually a connection the server dropped; the pool reconnects on the retry
+                        connection.send(message);
+                    }
+                    outcome = "success";
+                } catch (Exception e) {
+                    errors[i] = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+                } finally {
+                    sample.stop(sendTimer(EmailPriority.BULK, outcome));
+                }
+            }
+        } finally {
+            transportPool.release(connection);
+        }
+    }
+
+    // Unsent and rejected recipients; every recipient if the exception does not say which were accepted
+    static Address[] undelivered(SendFailedException e, MimeMessage message) throws MessagingException {
+        if (e.getValidSentAddresses() == null || e.getValidSentAddresses().length == 0) {
+            return message.getAllRecipients();
+        }
+        List<Address> undelivered = new ArrayList<>();
+        if (e.getValidUnsentAddresses() != null) undelivered.addAll(List.of(e.getValidUnsentAddresses()));
+        if (e.getInvalidAddresses() != null) undelivered.addAll(List.of(e.getInvalidAddresses()));
+        return undelivered.toArray(new Address[0]);
+    }
+
+    // Per-message SMTP latency; the outcome tag doubles as the success/failure counter
+    private Timer sendTimer(EmailPriority lane, String outcome) {
+        return meterRegistry.timer("habitforge.mail.send", "lane", lane.name().toLowerCase(), "outcome", outcome);
+    }
+
+    private MimeMessage createHtmlMessage(String to, String subject, String htmlContent) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
+
+        helper.setFrom(fromAddress);
+        helper.setTo(to);
+        helper.setSubject(subject);
+        helper.setText(htmlContent, true); // true = HTML
+        return message;
+    }
+
+    public record OutgoingEmail(String to, String subject, String htmlContent) {}
+
+    // failures maps the index of each failed message in the input list to its error
+    public record BulkSendResult(int sent, Map<Integer, String> failures, Duration elapsed) {
+        public double messagesPerSecond() {
+            long nanos = Math.max(1, elapsed.toNanos());
+            return sent * 1_000_000_000.0 / nanos;
+        }
     }
 }
 
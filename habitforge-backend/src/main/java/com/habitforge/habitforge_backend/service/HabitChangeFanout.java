@@ -0,0 +1,134 @@
+package com.habitforge.habitforge_backend.service;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Gets habit-list changes from the transaction that made them to the HabitStreamHub of every backend instance.
+ * On PostgreSQL the change goes out with pg_notify inside that transaction. Postgres delivers it only on commit,
+ * and to every instance LISTENing on the channel, this one included. On other databases (H2 in tests, a single
+ * node) the change is handed to the local hub after commit.
+ */
+@Component
+public class HabitChangeFanout implements InitializingBean, DisposableBean {
+
+    private static final Logger LOGGER = Logger.getLogger(HabitChangeFanout.class.getName());
+
+    static final String CHANNEL = "habit_changes";
+
+    private static final int POLL_MILLIS = 10_000;
+    private static final long RECONNECT_MILLIS = 5_000;
+
+    private final JdbcTemplate jdbc;
+    private final HabitStreamHub hub;
+    private final DataSourceProperties dataSource;
+    private final String mode;
+
+    private volatile boolean postgres;
+    private volatile boolean running = true;
+    private Thread listener;
+
+    public HabitChangeFanout(JdbcTemplate jdbc, HabitStreamHub hub, DataSourceProperties dataSource,
+                             @Value("${habitforge.habit-stream.fanout:auto}") String mode) {
+        this.jdbc = jdbc;
+        this.hub = hub;
+        this.dataSource = dataSource;
+        this.mode = mode;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        postgres = switch (mode.trim().toLowerCase()) {
+            case "postgres" -> true;
+            case "local" -> false;
+            default -> "PostgreSQL".equals(jdbc.execute(
+                    (ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName()));
+        };
+        if (postgres) {
+            listener = new Thread(this::listen, "habit-change-listener");
+            listener.setDaemon(true);
+            listener.start();
+        }
+        LOGGER.info("Habit stream fan-out: " + (postgres ? "Postgres LISTEN/NOTIFY on " + CHANNEL : "local only"));
+    }
+
+    // Runs in the changing transaction, so peers hear about it only if it commits
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void notifyInstances(HabitListChangedEvent event) {
+        if (!postgres) return;
+        jdbc.query("SELECT pg_notify(?, ?)", (ResultSetExtractor<Void>) rs -> null,
+                CHANNEL, event.userId() + ":" + event.version());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void deliverLocally(HabitListChangedEvent event) {
+        if (!postgres) {
+            hub.onChange(event.userId(), event.version());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    // A dedicated connection outside the pool, since LISTEN holds it for the life of the process
+    private void listen() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(
+                    dataSource.determineUrl(), dataSource.determineUsername(), dataSource.determinePassword())) {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                hub.resync(); // Anything committed while we were not listening
+                PGConnection pg = connection.unwrap(PGConnection.class);
+                while (running) {
+                    PGNotification[] notifications = pg.getNotifications(POLL_MILLIS);
+                    if (notifications == null) continue;
+                    for (PGNotification notification : notifications) {
+                        dispatch(notification.getParameter());
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) return;
+                LOGGER.log(Level.WARNING, "Habit change listener lost its connection, reconnecting", e);
+                try {
+                    Thread.sleep(RECONNECT_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Payload is "<userId>:<version>"
+    void dispatch(String payload) {
+        int colon = payload == null ? -1 : payload.indexOf(':');
+        if (colon <= 0) return;
+        try {
+            hub.onChange(Long.parseLong(payload.substring(0, colon)), Long.parseLong(payload.substring(colon + 1)));
+        } catch (NumberFormatException e) {
+            LOGGER.warning("Ignoring malformed habit change notification: " + payload);
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package com.habitforge.habitforge_backend.service;
+
+// Published inside the transaction that bumped a user's habit-list version; HabitChangeFanout forwards it to the stream
+public record HabitListChangedEvent(Long userId, long version) {}
@@ -0,0 +1,40 @@
+package com.habitforge.habitforge_backend.service;
+
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Per-user counter that goes up whenever any of the user's habits is created, changed or deleted.
+ * It backs the ETag of GET /api/habits, and each changed habit (or tombstone) records the value it got
+ * so ?since= can return just what changed.
+ * Bumping locks the user's row until the surrounding transaction commits, so version order matches commit
+ * order for a user. Mutations bump before touching habit rows, which keeps lock order user then habit.
+ */
+@Component
+public class HabitListVersions {
+
+    private final JdbcTemplate jdbc;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public HabitListVersions(JdbcTemplate jdbc, ApplicationEventPublisher eventPublisher) {
+        this.jdbc = jdbc;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long bump(Long userId) {
+        jdbc.update("UPDATE users SET habit_list_version = habit_list_version + 1 WHERE id = ?", userId);
+        long version = current(userId);
+        eventPublisher.publishEvent(new HabitListChangedEvent(userId, version));
+        return version;
+    }
+
+    public long current(Long userId) {
+        Long version = jdbc.query("SELECT habit_list_version FROM users WHERE id = ?",
+                rs -> rs.next() ? rs.getLong(1) : 0L, userId);
+        return version == null ? 0L : version;
+    }
+}
@@ -1,58 +1,175 @@
 package com.habitforge.habitforge_backend.service;
 
+import com.habitforge.habitforge_backend.model.EmailPriority;
 import com.habitforge.habitforge_backend.model.HabitReminder;
 import com.habitforge.habitforge_backend.repository.HabitReminderRepository;
+import com.habitforge.habitforge_backend.repository.ReminderDispatchRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.time.LocalTime;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 @Service
 public class HabitReminderEmailScheduler {
 
+    private static final Logger LOGGER = Logger.getLogger(HabitReminderEmailScheduler.class.getName());
+
     private final HabitReminderRepository reminderRepository;
+    private final ReminderDispatchRepository dispatchRepository;
+    private final ReminderTimingWheel timingWheel;
     private final EmailService emailService;
+    private final HabitReminderService reminderService;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer tickTimer;
+    private final Counter remindersQueued;
+
+    // How far back missed minutes are replayed after a restart or a stalled tick
+    @Value("${habitforge.reminders.catch-up-minutes:120}")
+    private int catchUpMinutes;
+
+    @Value("${habitforge.reminders.ledger-retention-days:7}")
+    private int ledgerRetentionDays;
 
-    public HabitReminderEmailScheduler(HabitReminderRepository reminderRepository, EmailService emailService) {
+    // Last minute that has been fully dispatched
+    private LocalDateTime lastTick;
+
+    public HabitReminderEmailScheduler(HabitReminderRepository reminderRepository,
+                                       ReminderDispatchRepository dispatchRepository,
+                                       ReminderTimingWheel timingWheel,
+                                       EmailService emailService,
+                                       HabitReminderService reminderService,
+                                       PlatformTransactionManager transactionManager,
+                                       MeterRegistry meterRegistry) {
         this.reminderRepository = reminderRepository;
+        this.reminderService = reminderService;
+        this.dispatchRepository = dispatchRepository;
+        this.timingWheel = timingWheel;
         this.emailService = emailService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.tickTimer = meterRegistry.timer("habitforge.reminders.tick");
+        this.remindersQueued = meterRegistry.counter("habitforge.reminders.queued");
+        meterRegistry.gauge("habitforge.reminders.scheduled", timingWheel, ReminderTimingWheel::size);
+        // Minutes the scheduler is behind the wall clock; anything above 1 means ticks are stalling
+        meterRegistry.gauge("habitforge.reminders.lag.minutes", this, HabitReminderEmailScheduler::lagMinutes);
+    }
+
+    // Fill the wheel once (bucketing any reminder that has no UTC minute yet), then replay the catch-up window;
+    // the ledger skips anything already sent
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void loadTimingWheel() {
+        timingWheel.clear();
+        reminderService.rebucket();
+        LOGGER.info("Loaded " + timingWheel.size() + " reminders into the timing wheel");
+
+        if (dispatchRepository.findFirstBy().isEmpty()) {
+            // No tick has ever recorded a send, e.g. the first start after the ledger was introduced: the
+            // previous scheduler already sent today's reminders without a ledger, so replaying would send them twice
+            LOGGER.info("Reminder ledger is empty; skipping the catch-up window");
+            lastTick = currentMinute().minusMinutes(1);
+        } else {
+            lastTick = currentMinute().minusMinutes(catchUpMinutes + 1L);
+        }
+        sendDueReminders();
     }
 
     @Scheduled(cron = "0 * * * * *") // Every minute at 0 seconds
-public void sendDueReminders() {
-    LocalTime now = LocalTime.now().withSecond(0).withNano(0);
-    LocalTime oneMinuteAgo = now.minusMinutes(1);
-    LocalTime oneMinuteAhead = now.plusMinutes(1);
+    public synchronized void sendDueReminders() {
+        tickTimer.record(this::runTick);
+    }
 
-    List<HabitReminder> dueReminders = reminderRepository
-    .findDueRemindersWithHabitAndUser(oneMinuteAgo, oneMinuteAhead);
+    private void runTick() {
+        LocalDateTime now = currentMinute();
+        if (lastTick == null) {
+            lastTick = now.minusMinutes(1);
+        }
 
+        LocalDateTime earliest = now.minusMinutes(catchUpMinutes);
+        LocalDateTime minute = lastTick.plusMinutes(1);
+        if (minute.isBefore(earliest)) {
+            minute = earliest;
+        }
 
-    System.out.println("Scheduler checked at: " + now + " | Found " + dueReminders.size() + " reminders.");
+        // Walks every minute since the last tick, so 23:59 -> 00:00 and skipped ticks are covered
+        for (; !minute.isAfter(now); minute = minute.plusMinutes(1)) {
+            dispatchMinute(minute);
+            lastTick = minute;
+        }
+    }
+
+    @Scheduled(cron = "0 30 3 * * *") // Daily at 03:30
+    public void purgeDispatchLedger() {
+        int removed = dispatchRepository.deleteOlderThan(LocalDate.now().minusDays(ledgerRetentionDays));
+        LOGGER.info("Purged " + removed + " reminder dispatch ledger rows");
+    }
+
+    // minute is UTC; the wheel may be ahead of a rolled-back or concurrent edit, so the query re-checks utc_minute
+    private void dispatchMinute(LocalDateTime minute) {
+        int slot = ReminderTimingWheel.slotOf(minute.toLocalTime());
+        Set<Long> dueIds = timingWheel.dueAt(slot);
+        if (dueIds.isEmpty()) return;
+
+        List<HabitReminder> dueReminders = reminderRepository.findDueRemindersWithHabitAndUser(dueIds, slot);
+        LOGGER.fine("Reminder tick " + minute + " UTC | " + dueReminders.size() + " reminders due");
+
+        for (HabitReminder reminder : dueReminders) {
+            var habit = reminder.getHabit();
+            if (habit == null) continue;
 
-    for (HabitReminder reminder : dueReminders) {
-        var habit = reminder.getHabit();
-        if (habit == null) continue;
+            var user = habit.getUser();
+            if (user == null) continue;
 
-        var user = habit.getUser();
-        if (user == null) continue;
+            // One reminder per day on the user's calendar
+            LocalDate date = minute.atOffset(ZoneOffset.UTC)
+                    .atZoneSameInstant(UserTimeZones.parse(user.getTimeZone())).toLocalDate();
 
-        String email = user.getEmail();
-        if (email == null || email.isEmpty()) continue;
+            String email = user.getEmail();
+            if (email == null || email.isEmpty()) continue;
 
-        String subject = "Habit Reminder: " + habit.getTitle();
-        String content = String.format("""
-            <p>Hi %s,</p>
-            <p>This is your daily reminder to check in on your habit: <strong>%s</strong>.</p>
-            <p>Keep up the great work!</p>
-            """, user.getUsername(), habit.getTitle());
+            String subject = "Habit Reminder: " + habit.getTitle();
+            String content = String.format("""
+                <p>Hi %s,</p>
+                <p>This is your daily reminder to check in on your habit: <strong>%s</strong>.</p>
+                <p>Keep up the great work!</p>
+                """, user.getUsername(), habit.getTitle());
 
-        try {
-            emailService.sendHtmlEmail(email, subject, content);
-        } catch (Exception e) {
-            System.err.println("Failed to send reminder email to " + email + ": " + e.getMessage());
+            try {
+                // Ledger row and outbox row commit together: a crash in between leaves neither, and a later tick retries
+                Boolean queued = transactionTemplate.execute(status -> {
+                    if (dispatchRepository.claim(reminder.getId(), date, LocalDateTime.now()) == 0) {
+                        return false; // Already sent for this date
+                    }
+                    emailService.sendHtmlEmail(email, subject, content, EmailPriority.BULK);
+                    return true;
+                });
+                if (Boolean.TRUE.equals(queued)) remindersQueued.increment();
+            } catch (Exception e) {
+                LOGGER.log(Level.WARNING, "Failed to queue reminder email to " + email + ": " + e.getMessage(), e);
+            }
         }
     }
-}
+
+    private double lagMinutes() {
+        LocalDateTime last = lastTick;
+        return last == null ? 0 : ChronoUnit.MINUTES.between(last, currentMinute());
+    }
+
+    // The wheel is keyed by UTC minute, so the scheduler walks UTC minutes
+    private static LocalDateTime currentMinute() {
+        return LocalDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.MINUTES);
+    }
 }
@@ -3,18 +3,34 @@ package com.habitforge.habitforge_backend.service;
 import com.habitforge.habitforge_backend.model.Habit;
 import com.habitforge.habitforge_backend.model.HabitReminder;
 import com.habitforge.habitforge_backend.repository.HabitReminderRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.logging.Logger;
 
 @Service
 public class HabitReminderService {
 
+    private static final Logger LOGGER = Logger.getLogger(HabitReminderService.class.getName());
+
     private final HabitReminderRepository reminderRepo;
+    private final ReminderTimingWheel timingWheel;
+    private final UserTimeZones userTimeZones;
+    private final JdbcTemplate jdbc;
 
-    public HabitReminderService(HabitReminderRepository reminderRepo) {
+    public HabitReminderService(HabitReminderRepository reminderRepo, ReminderTimingWheel timingWheel,
+                                UserTimeZones userTimeZones, JdbcTemplate jdbc) {
         this.reminderRepo = reminderRepo;
+        this.timingWheel = timingWheel;
+        this.userTimeZones = userTimeZones;
+        this.jdbc = jdbc;
     }
 
     public void createOrUpdateReminder(Habit habit, String reminderTimeStr) {
@@ -25,26 +41,69 @@ public class HabitReminderService {
 
         Long habitId = habit.getId();
         Optional<HabitReminder> existing = reminderRepo.findByHabitId(habitId);
+        int utcMinute = ReminderTimingWheel.utcSlotOf(
+                reminderTime, userTimeZones.zoneOf(habit.getUser().getId()), Instant.now());
 
         if (existing.isPresent()) {
             HabitReminder reminder = existing.get();
             reminder.setReminderTime(reminderTime);
+            reminder.setUtcMinute(utcMinute);
             reminder.setEnabled(true); // Ensure it's active
             reminderRepo.save(reminder);
+            timingWheel.schedule(reminder.getId(), utcMinute);
         } else {
             HabitReminder reminder = new HabitReminder();
-            reminder.setHabit(habit);
+            habit.setReminder(reminder); // Links both sides so the habit's DTO shows the new time
             reminder.setReminderTime(reminderTime);
+            reminder.setUtcMinute(utcMinute);
             reminder.setEnabled(true); // New reminders should be enabled
-            reminderRepo.save(reminder);
+            HabitReminder saved = reminderRepo.save(reminder);
+            timingWheel.schedule(saved.getId(), utcMinute);
+        }
+    }
+
+    // Recomputes every enabled reminder's UTC bucket and places it on the wheel. Hourly, so a DST change anywhere
+    // moves the affected buckets within the hour; only rows whose bucket changed are written.
+    @Scheduled(cron = "0 5 * * * *") // Every hour at :05
+    public void rebucket() {
+        int moved = rebucket(reminderRepo.findEnabledSlots());
+        if (moved > 0) {
+            LOGGER.info("Moved " + moved + " reminders to a new UTC minute");
+        }
+    }
+
+    // After the user changes time zone
+    public void rebucketUser(Long userId) {
+        rebucket(reminderRepo.findEnabledSlotsByUserId(userId));
+    }
+
+    private int rebucket(List<HabitReminderRepository.ReminderSlot> slots) {
+        Instant now = Instant.now();
+        List<Object[]> changed = new ArrayList<>();
+        for (HabitReminderRepository.ReminderSlot slot : slots) {
+            int utcMinute = ReminderTimingWheel.utcSlotOf(
+                    slot.getReminderTime(), UserTimeZones.parse(slot.getTimeZone()), now);
+            if (slot.getUtcMinute() == null || slot.getUtcMinute() != utcMinute) {
+                changed.add(new Object[] { utcMinute, slot.getId() });
+            }
+            timingWheel.schedule(slot.getId(), utcMinute);
+        }
+        if (!changed.isEmpty()) {
+            jdbc.batchUpdate("UPDATE habit_reminder SET utc_minute = ? WHERE id = ?", changed);
         }
+        return changed.size();
     }
 
     public void deleteReminderIfExists(Habit habit) {
         Long habitId = habit.getId();
-        reminderRepo.findByHabitId(habitId).ifPresent(reminderRepo::delete);
+        reminderRepo.findByHabitId(habitId).ifPresent(reminder -> {
+            habit.setReminder(null); // Otherwise the cascade from Habit would re-save it
+            reminderRepo.delete(reminder);
+            timingWheel.cancel(reminder.getId());
+        });
     }
 
+    @Transactional(readOnly = true)
     public Optional<HabitReminder> getReminderForHabit(Long habitId) {
         return reminderRepo.findByHabitId(habitId);
     }
@@ -1,114 +1,160 @@
 package com.habitforge.habitforge_backend.service;
 
 import com.habitforge.habitforge_backend.dto.HabitDTO;
+import com.habitforge.habitforge_backend.dto.HabitDelta;
 import com.habitforge.habitforge_backend.dto.HabitEditDTO;
+import com.habitforge.habitforge_backend.dto.HabitList;
+import com.habitforge.habitforge_backend.dto.HabitPage;
+import com.habitforge.habitforge_backend.dto.HabitStatsDTO;
 import com.habitforge.habitforge_backend.model.Habit;
-import com.habitforge.habitforge_backend.model.User;
+import com.habitforge.habitforge_backend.model.HabitTombstone;
+import com.habitforge.habitforge_backend.repository.HabitQuery;
 import com.habitforge.habitforge_backend.repository.HabitRepository;
+import com.habitforge.habitforge_backend.repository.HabitTombstoneRepository;
 import com.habitforge.habitforge_backend.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import java.time.ZoneId;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.LongPredicate;
+import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
 @Service
 public class HabitService {
 
+    private static final Logger LOGGER = Logger.getLogger(HabitService.class.getName());
+
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 200;
+
     private final HabitRepository habitRepo;
     private final UserRepository userRepo;
     private final HabitReminderService habitReminderService;
+    private final MeterRegistry meterRegistry;
+    private final HabitListVersions listVersions;
+    private final HabitTombstoneRepository tombstoneRepo;
+    private final UserTimeZones userTimeZones;
+
+    @Value("${habitforge.habits.tombstone-retention-days:90}")
+    private int tombstoneRetentionDays;
 
     public HabitService(
         HabitRepository habitRepo,
         UserRepository userRepo,
-        HabitReminderService habitReminderService
+        HabitReminderService habitReminderService,
+        MeterRegistry meterRegistry,
+        HabitListVersions listVersions,
+        HabitTombstoneRepository tombstoneRepo,
+        UserTimeZones userTimeZones
     ) {
         this.habitRepo = habitRepo;
         this.userRepo = userRepo;
         this.habitReminderService = habitReminderService;
+        this.meterRegistry = meterRegistry;
+        this.listVersions = listVersions;
+        this.tombstoneRepo = tombstoneRepo;
+        this.userTimeZones = userTimeZones;
     }
 
-    public HabitDTO createHabit(String username, String title, int targetDays) {
-        User user = userRepo.findByUsername(username.trim()).orElse(null);
-        if (user == null) return null;
+    @Transactional
+    public HabitDTO createHabit(Long userId, String title, int targetDays) {
+        if (!userRepo.existsById(userId)) return null;
 
         Habit habit = new Habit();
-        habit.setUser(user);
+        habit.setUser(userRepo.getReferenceById(userId)); // Only the foreign key is needed
         habit.setTitle(title.trim());
         habit.setTargetDays(targetDays);
-        habit.setStartDate(LocalDate.now());
+        habit.setStartDate(userTimeZones.today(userId));
         habit.setCurrentStreak(0);
         habit.setCompleted(false);
+        habit.setListVersion(listVersions.bump(userId));
 
         Habit saved = habitRepo.save(habit);
         return convertToDTO(saved);
     }
 
-    public List<HabitDTO> getUserHabits(String username) {
-        User user = userRepo.findByUsername(username.trim()).orElse(null);
-        if (user == null) return List.of();
-
-        return habitRepo.findByUser(user).stream()
+    @Transactional(readOnly = true)
+    public List<HabitDTO> getUserHabits(Long userId) {
+        return habitRepo.findAllWithReminderByUserId(userId).stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
 
-    public boolean checkInHabit(String username, Long habitId) {
-        User user = userRepo.findByUsername(username.trim()).orElse(null);
-        if (user == null) return false;
-
-        Habit habit = habitRepo.findById(habitId).orElse(null);
-        if (habit == null || !habit.getUser().equals(user)) return false;
-
-        LocalDate today = LocalDate.now(ZoneId.systemDefault());
-
-        // Prevent double check-in for today
-        if (today.equals(habit.getLastCheckInDate())) {
-            return false;
+    // Returns the updated habit, or empty if it was not found or already checked in today
+    @Transactional
+    public Optional<HabitDTO> checkInHabit(Long userId, Long habitId) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            Optional<HabitDTO> applied = applyCheckIn(userId, habitId);
+            outcome = applied.isPresent() ? "applied" : "rejected";
+            return applied;
+        } finally {
+            sample.stop(meterRegistry.timer("habitforge.habit.checkin", "outcome", outcome));
         }
+    }
 
-        // Add today's date to completed days
-        habit.getCompletedDays().add(today);
-
-        LocalDate yesterday = today.minusDays(1);
-        boolean maintainedStreak = yesterday.equals(habit.getLastCheckInDate());
-
-        int newStreak = maintainedStreak ? habit.getCurrentStreak() + 1 : 1;
-        habit.setCurrentStreak(newStreak);
-        habit.setLastCheckInDate(today);
-
-        // Mark as completed if streak goal met
-        if (newStreak >= habit.getTargetDays()) {
-            habit.setCompleted(true);
+    private Optional<HabitDTO> applyCheckIn(Long userId, Long habitId) {
+        LocalDate today = userTimeZones.today(userId); // Day boundaries follow the user's clock
+        long listVersion = listVersions.bump(userId);
+
+        // Ownership, the double check-in guard, streak and completion all happen in this one UPDATE,
+        // so concurrent check-ins cannot both pass the "already checked in today" test.
+        // It also skips habits that start after today, whose bitmap has no bit for today.
+        if (habitRepo.checkIn(habitId, userId, today, today.minusDays(1), listVersion) == 0) {
+            // Nothing changed, so the bump must not commit: it would invalidate ETags and push an empty delta.
+            // Rolling back keeps the bump-first lock order (user, then habit) that the other mutations use.
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            return Optional.empty();
         }
 
-        
-
-        habitRepo.save(habit);
-        return true;
+        // The UPDATE holds the row lock until commit, so setting today's bit cannot race another writer
+        Habit habit = habitRepo.findById(habitId).orElseThrow();
+        habit.markCompleted(today);
+        habit.recordStreak(habit.getCurrentStreak()); // Fills longestStreak on rows that predate the column
+        return Optional.of(convertToDTO(habit));
     }
 
-    public boolean deleteHabit(String username, Long habitId) {
-        User user = userRepo.findByUsername(username.trim()).orElse(null);
-        if (user == null) return false;
+    // Start dates are stamped in the zone of the day the habit was created; after a move to a zone that is behind,
+    // pull any that are now in the future back to today so the habit can be checked in
+    @Transactional
+    public void clampStartDates(Long userId) {
+        LocalDate today = userTimeZones.today(userId);
+        List<Habit> ahead = habitRepo.findAllByUserIdAndStartDateAfter(userId, today);
+        if (ahead.isEmpty()) return;
+
+        long listVersion = listVersions.bump(userId);
+        for (Habit habit : ahead) {
+            habit.setStartDate(today); // Re-anchors any completed days
+            habit.setListVersion(listVersion);
+        }
+    }
 
-        Habit habit = habitRepo.findById(habitId).orElse(null);
-        if (habit == null || !habit.getUser().equals(user)) return false;
+    @Transactional
+    public boolean deleteHabit(Long userId, Long habitId) {
+        Habit habit = habitRepo.findByIdAndUserId(habitId, userId).orElse(null);
+        if (habit == null) return false;
 
+        tombstoneRepo.save(new HabitTombstone(userId, habitId, listVersions.bump(userId)));
         habitReminderService.deleteReminderIfExists(habit); // also delete any reminders
         habitRepo.delete(habit);
         return true;
     }
 
     // ------------------ Edit Habit ------------------
-    public boolean editHabit(String username, HabitEditDTO dto) {
-        User user = userRepo.findByUsername(username.trim()).orElse(null);
-        if (user == null) return false;
-
-        Habit habit = habitRepo.findById(dto.getHabitId()).orElse(null);
-        if (habit == null || !habit.getUser().equals(user)) return false;
+    @Transactional
+    public Optional<HabitDTO> editHabit(Long userId, HabitEditDTO dto) {
+        Habit habit = habitRepo.findByIdAndUserId(dto.getHabitId(), userId).orElse(null);
+        if (habit == null) return Optional.empty();
+        habit.setListVersion(listVersions.bump(userId));
 
         // Defensive null checks and update only if present
         if (dto.getTitle() != null) {
@@ -136,59 +182,117 @@ public class HabitService {
         }
         // If reminderStr == null, no change to reminder
 
-        habitRepo.save(habit);
-        return true;
+        return Optional.of(convertToDTO(habitRepo.save(habit)));
     }
 
     // Overload editHabit to use habitId as a separate parameter
-    public boolean editHabit(String username, Long habitId, HabitEditDTO dto) {
+    @Transactional
+    public Optional<HabitDTO> editHabit(Long userId, Long habitId, HabitEditDTO dto) {
         dto.setHabitId(habitId);
-        return editHabit(username, dto);
+        return editHabit(userId, dto);
     }
 
     // ------------------ Sorting Support ------------------
-    public List<HabitDTO> getUserHabitsSorted(String username, String sortBy) {
-        User user = userRepo.findByUsername(username.trim()).orElse(null);
-        if (user == null) return List.of();
-
-        List<Habit> habits = habitRepo.findByUser(user);
-
-        Comparator<Habit> comparator;
-        switch (sortBy.toLowerCase()) {
-            case "startdate":
-                comparator = Comparator.comparing(Habit::getStartDate);
-                break;
-            case "streak":
-                comparator = Comparator.comparingInt(Habit::getCurrentStreak).reversed();
-                break;
-            case "completed":
-                comparator = Comparator.comparing(Habit::isCompleted).reversed();
-                break;
-            default:
-                comparator = Comparator.comparing(Habit::getId); // default order
+    @Transactional(readOnly = true)
+    public HabitPage getSortedHabits(Long userId, String sortBy, String order,
+                                     String status, String cursor, Integer limit) {
+        HabitQuery.SortKey sortKey = HabitQuery.SortKey.parse(sortBy);
+        boolean descending = (order == null || order.isBlank())
+                ? sortKey.isDescendingByDefault()
+                : "desc".equalsIgnoreCase(order.trim());
+        HabitQuery.Cursor after = (cursor == null || cursor.isBlank())
+                ? null
+                : HabitQuery.Cursor.decode(cursor.trim(), sortKey);
+        int pageSize = (limit == null || limit <= 0) ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+
+        // Only the due-today filter depends on the user's date, so the other views skip the zone lookup
+        HabitQuery.Status statusFilter = HabitQuery.Status.parse(status);
+        LocalDate today = statusFilter == HabitQuery.Status.DUE_TODAY ? userTimeZones.today(userId) : null;
+
+        // Ask for one extra row to learn whether another page exists
+        HabitQuery query = new HabitQuery(sortKey, descending, statusFilter, today, after, pageSize + 1);
+        List<Habit> habits = habitRepo.findPageByUserId(userId, query);
+
+        String nextCursor = null;
+        if (habits.size() > pageSize) {
+            habits = habits.subList(0, pageSize);
+            Habit last = habits.get(pageSize - 1);
+            nextCursor = new HabitQuery.Cursor(sortKey, sortValue(sortKey, last), last.getId()).encode();
         }
 
-        return habits.stream()
-                .sorted(comparator)
+        List<HabitDTO> dtos = habits.stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
+        return new HabitPage(dtos, nextCursor);
     }
 
-    public List<HabitDTO> getSortedHabits(String username, String sortBy, String order) {
-        List<HabitDTO> habits = getUserHabitsSorted(username, sortBy);
-        if ("desc".equalsIgnoreCase(order)) {
-            Collections.reverse(habits);
+    private static Object sortValue(HabitQuery.SortKey sortKey, Habit habit) {
+        return switch (sortKey) {
+            case START_DATE -> habit.getStartDate();
+            case STREAK -> habit.getCurrentStreak();
+            case COMPLETED -> habit.isCompleted();
+            case ID -> habit.getId();
+        };
+    }
+
+    // ------------------ Statistics ------------------
+    @Transactional(readOnly = true)
+    public Optional<HabitStatsDTO> getHabitStats(Long userId, Long habitId) {
+        return habitRepo.findByIdAndUserId(habitId, userId)
+                .map(habit -> HabitStats.compute(habit, userTimeZones.today(userId)));
+    }
+
+    // ------------------ Delta Sync ------------------
+    public long getHabitListVersion(Long userId) {
+        return listVersions.current(userId);
+    }
+
+    // Version and habits come from one read-only transaction, so they are read from the same database even when
+    // replicas lag; version first, as below. Skips loading the habits when unchanged says the client is current.
+    @Transactional(readOnly = true)
+    public HabitList getUserHabitList(Long userId, LongPredicate unchanged) {
+        long version = listVersions.current(userId);
+        if (unchanged.test(version)) {
+            return new HabitList(version, null);
         }
-        return habits;
+        return new HabitList(version, getUserHabits(userId));
     }
 
-    // ------------------ Reminder Support ------------------
-    public boolean setHabitReminder(String username, Long habitId, String timeStr) {
-        User user = userRepo.findByUsername(username.trim()).orElse(null);
-        if (user == null) return false;
+    // Read the version first: anything changed while the habits load is simply sent again next time
+    @Transactional(readOnly = true)
+    public HabitDelta getHabitsChangedSince(Long userId, long since) {
+        long version = listVersions.current(userId);
+        Long horizon = tombstoneRepo.findHorizon(userId);
+        if (horizon != null && since < horizon) {
+            // Some deletions after since were purged, so a delta could leave deleted habits on the client
+            return new HabitDelta(version, true, getUserHabits(userId), List.of());
+        }
+        List<HabitDTO> changed = habitRepo.findAllWithReminderChangedSince(userId, since).stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+        return new HabitDelta(version, false, changed, tombstoneRepo.findHabitIdsDeletedSince(userId, since));
+    }
+
+    @Scheduled(cron = "0 0 4 * * *") // Daily at 04:00
+    @Transactional
+    public void purgeOldTombstones() {
+        purgeTombstonesBefore(LocalDateTime.now().minusDays(tombstoneRetentionDays));
+    }
 
-        Habit habit = habitRepo.findById(habitId).orElse(null);
-        if (habit == null || !habit.getUser().equals(user)) return false;
+    @Transactional
+    public int purgeTombstonesBefore(LocalDateTime cutoff) {
+        tombstoneRepo.raiseHorizons(cutoff);
+        int removed = tombstoneRepo.deleteOlderThan(cutoff);
+        LOGGER.info("Purged " + removed + " habit tombstones");
+        return removed;
+    }
+
+    // ------------------ Reminder Support ------------------
+    @Transactional
+    public Optional<HabitDTO> setHabitReminder(Long userId, Long habitId, String timeStr) {
+        Habit habit = habitRepo.findByIdAndUserId(habitId, userId).orElse(null);
+        if (habit == null) return Optional.empty();
+        habit.setListVersion(listVersions.bump(userId));
 
         if (timeStr != null && !timeStr.isBlank()) {
             habitReminderService.createOrUpdateReminder(habit, timeStr);
@@ -196,11 +300,11 @@ public class HabitService {
             habitReminderService.deleteReminderIfExists(habit);
         }
 
-        return true;
+        return Optional.of(convertToDTO(habit));
     }
 
     // ------------------ Helper: DTO conversion ------------------
-    private HabitDTO convertToDTO(Habit habit) {
+    HabitDTO convertToDTO(Habit habit) {
         String reminderTimeStr = null;
         if (habit.getReminder() != null && habit.getReminder().getReminderTime() != null) {
             reminderTimeStr = habit.getReminder().getReminderTime().toString(); // e.g. "08:00"
@@ -218,7 +322,7 @@ public class HabitService {
                 habit.getCurrentStreak(),
                 habit.getLastCheckInDate(),
                 habit.isCompleted(),
-                Set.copyOf(habit.getCompletedDays()),
+                habit.getCompletedDays(),
                 reminderTimeStr
         );
     }
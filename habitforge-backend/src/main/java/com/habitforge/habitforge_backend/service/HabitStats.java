@@ -0,0 +1,68 @@
+package com.habitforge.habitforge_backend.service;
+
+import com.habitforge.habitforge_backend.dto.HabitStatsDTO;
+import com.habitforge.habitforge_backend.model.CompletionBitmap;
+import com.habitforge.habitforge_backend.model.Habit;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Derives a habit's statistics from its completion bitmap.
+ * Every figure is a scan over set bits or runs, so the cost follows the number of check-ins, not calendar days.
+ * Rates count only days on or after the start date, so a habit started yesterday is not penalised for last week.
+ */
+public final class HabitStats {
+
+    private HabitStats() {}
+
+    public static HabitStatsDTO compute(Habit habit, LocalDate today) {
+        CompletionBitmap history = habit.getCompletionHistory();
+        LocalDate start = habit.getStartDate();
+
+        int daysTracked = start == null || start.isAfter(today) ? 0 : (int) ChronoUnit.DAYS.between(start, today) + 1;
+        int total = history == null ? 0 : history.countBetween(start, today);
+
+        // The stored streak only resets at the next check-in, so a missed day ends it here
+        LocalDate last = habit.getLastCheckInDate();
+        boolean streakAlive = last != null && !last.isBefore(today.minusDays(1));
+        int currentStreak = streakAlive ? habit.getCurrentStreak() : 0;
+
+        Map<DayOfWeek, Integer> byWeekday = new EnumMap<>(DayOfWeek.class);
+        int[] counts = history == null ? new int[7] : history.countByWeekday();
+        DayOfWeek best = null;
+        for (DayOfWeek day : DayOfWeek.values()) {
+            int count = counts[day.getValue() - 1];
+            byWeekday.put(day, count);
+            if (count > 0 && (best == null || count > byWeekday.get(best))) best = day;
+        }
+
+        return new HabitStatsDTO(
+                habit.getId(),
+                start,
+                daysTracked,
+                total,
+                currentStreak,
+                habit.getLongestStreak(),
+                rate(total, daysTracked),
+                windowRate(history, start, today, 7),
+                windowRate(history, start, today, 30),
+                best,
+                byWeekday);
+    }
+
+    private static double windowRate(CompletionBitmap history, LocalDate start, LocalDate today, int days) {
+        if (history == null || start == null || start.isAfter(today)) return 0;
+        LocalDate from = today.minusDays(days - 1L);
+        if (from.isBefore(start)) from = start;
+        int windowDays = (int) ChronoUnit.DAYS.between(from, today) + 1;
+        return rate(history.countBetween(from, today), windowDays);
+    }
+
+    private static double rate(int completions, int days) {
+        return days <= 0 ? 0 : Math.min(1.0, (double) completions / days);
+    }
+}
@@ -0,0 +1,154 @@
+package com.habitforge.habitforge_backend.service;
+
+import com.habitforge.habitforge_backend.config.ReplicaRoutingDataSource;
+import com.habitforge.habitforge_backend.dto.HabitDelta;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Open /api/habits/stream connections on this node, grouped by user.
+ * Each connection is an SseEmitter parked on the async servlet, so an idle subscriber holds no thread.
+ * When a user's habit list changes, one delta is loaded and written to all of that user's connections,
+ * on a virtual thread so a slow client never blocks the transaction that made the change.
+ */
+@Component
+public class HabitStreamHub implements DisposableBean {
+
+    private static final Logger LOGGER = Logger.getLogger(HabitStreamHub.class.getName());
+
+    private final HabitService habitService;
+    private final long timeoutMillis;
+    private final int maxPerUser;
+    private final ExecutorService sender = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<Long, Subscribers> byUser = new ConcurrentHashMap<>();
+
+    public HabitStreamHub(HabitService habitService, MeterRegistry meterRegistry,
+                          @Value("${habitforge.habit-stream.timeout-ms:1800000}") long timeoutMillis,
+                          @Value("${habitforge.habit-stream.max-per-user:10}") int maxPerUser) {
+        this.habitService = habitService;
+        this.timeoutMillis = timeoutMillis;
+        this.maxPerUser = Math.max(1, maxPerUser);
+        meterRegistry.gauge("habitforge.habits.stream.connections", this, HabitStreamHub::connectionCount);
+    }
+
+    // Opens a stream; the first event carries the current list version so the client can catch up with ?since=
+    public SseEmitter subscribe(Long userId) {
+        long version = habitService.getHabitListVersion(userId);
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscribers subscribers = byUser.compute(userId, (id, existing) -> {
+            Subscribers current = existing != null ? existing : new Subscribers(version);
+            current.emitters.add(emitter);
+            return current;
+        });
+
+        Runnable remove = () -> unsubscribe(userId, emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+
+        // Oldest connections go first when a user opens too many tabs
+        for (SseEmitter oldest : subscribers.emitters) {
+            if (subscribers.emitters.size() <= maxPerUser) break;
+            subscribers.emitters.remove(oldest);
+            oldest.complete();
+        }
+
+        send(userId, emitter, SseEmitter.event().name("version").id(Long.toString(version))
+                .data(Map.of("version", version)));
+        return emitter;
+    }
+
+    // Called once the change is committed; cheap when nobody on this node is listening for the user
+    public void onChange(Long userId, long version) {
+        Subscribers subscribers = byUser.get(userId);
+        if (subscribers == null || version <= subscribers.delivered) return;
+        sender.execute(() -> deliver(userId, subscribers, version));
+    }
+
+    // After a lost LISTEN connection: push anything that changed while notifications were not arriving
+    public void resync() {
+        for (Long userId : byUser.keySet()) {
+            onChange(userId, habitService.getHabitListVersion(userId));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${habitforge.habit-stream.heartbeat-ms:25000}")
+    public void heartbeat() {
+        byUser.forEach((userId, subscribers) -> sender.execute(() -> {
+            for (SseEmitter emitter : subscribers.emitters) {
+                send(userId, emitter, SseEmitter.event().comment("keep-alive"));
+            }
+        }));
+    }
+
+    public int connectionCount() {
+        return byUser.values().stream().mapToInt(s -> s.emitters.size()).sum();
+    }
+
+    @Override
+    public void destroy() {
+        byUser.values().forEach(subscribers -> subscribers.emitters.forEach(SseEmitter::complete));
+        byUser.clear();
+        sender.shutdownNow();
+    }
+
+    private void deliver(Long userId, Subscribers subscribers, long version) {
+        // A lock rather than synchronized: loading the delta is JDBC I/O and would pin the virtual thread
+        subscribers.lock.lock();
+        try {
+            if (version <= subscribers.delivered) return; // Covered by a delta already sent
+            // The change may have been committed through another node moments ago; a replica could lag behind it
+            HabitDelta delta = ReplicaRoutingDataSource.onPrimary(
+                    () -> habitService.getHabitsChangedSince(userId, subscribers.delivered));
+            subscribers.delivered = delta.version();
+            for (SseEmitter emitter : subscribers.emitters) {
+                send(userId, emitter, SseEmitter.event().name("habits").id(Long.toString(delta.version())).data(delta));
+            }
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Failed to push habit changes for user " + userId, e);
+        } finally {
+            subscribers.lock.unlock();
+        }
+    }
+
+    private void send(Long userId, SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            // Client went away; the container reports it through onError/onCompletion as well
+            unsubscribe(userId, emitter);
+        }
+    }
+
+    private void unsubscribe(Long userId, SseEmitter emitter) {
+        byUser.computeIfPresent(userId, (id, subscribers) -> {
+            subscribers.emitters.remove(emitter);
+            return subscribers.emitters.isEmpty() ? null : subscribers;
+        });
+    }
+
+    private static final class Subscribers {
+        final Set<SseEmitter> emitters = new CopyOnWriteArraySet<>(); // Insertion order, oldest first
+        final ReentrantLock lock = new ReentrantLock();
+        volatile long delivered;
+
+        Subscribers(long delivered) {
+            this.delivered = delivered;
+        }
+    }
+}
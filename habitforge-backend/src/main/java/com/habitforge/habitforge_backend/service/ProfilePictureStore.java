@@ -0,0 +1,209 @@
+package com.habitforge.habitforge_backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed store for profile pictures on the local filesystem.
+ * Each image lives at root/ab/abcdef... named by the SHA-256 of its bytes, so identical uploads share one file
+ * and a hash never refers to different content. Resized variants sit next to it as abcdef...-128.jpg.
+ * Because files are shared, nothing deletes one inline; deleteUnreferenced sweeps originals no user points at.
+ */
+@Component
+public class ProfilePictureStore {
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+    private static final List<String> VARIANT_FORMATS = List.of("jpeg", "png");
+
+    private final Path root;
+    // Serialises reusing an existing original in store() against the sweep deleting it
+    private final ReentrantLock originals = new ReentrantLock();
+
+    public ProfilePictureStore(@Value("${habitforge.profile-pictures.dir:data/profile-pictures}") String root) {
+        this.root = Path.of(root).toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(this.root);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create profile picture store at " + this.root, e);
+        }
+    }
+
+    // Streams the image to a temp file while hashing it, then moves it into place; returns the hash
+    public String store(InputStream content) throws IOException {
+        return store(content, Long.MAX_VALUE);
+    }
+
+    // Same, but gives up as soon as more than maxBytes have arrived
+    public String store(InputStream content, long maxBytes) throws IOException {
+        Path temp = Files.createTempFile(root, "upload-", ".tmp");
+        try {
+            MessageDigest sha256 = sha256();
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(temp), sha256)) {
+                byte[] buffer = new byte[8192];
+                long total = 0;
+                for (int read; (read = content.read(buffer)) != -1; ) {
+                    total += read;
+                    if (total > maxBytes) {
+                        throw new TooLargeException(maxBytes);
+                    }
+                    out.write(buffer, 0, read);
+                }
+            }
+            String hash = HexFormat.of().formatHex(sha256.digest());
+
+            Path target = pathOf(hash);
+            originals.lock();
+            try {
+                if (Files.exists(target)) {
+                    // The caller is about to point a user at it; restart the sweep's grace period
+                    Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+                } else {
+                    Files.createDirectories(target.getParent());
+                    try {
+                        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                    } catch (FileAlreadyExistsException e) {
+                        // A concurrent upload of the same image won; its file has identical bytes
+                    }
+                }
+            } finally {
+                originals.unlock();
+            }
+            return hash;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public Optional<Path> locate(String hash) {
+        if (hash == null || !HASH.matcher(hash).matches()) return Optional.empty();
+        Path path = pathOf(hash);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    public Optional<Variant> locateVariant(String hash, int size) {
+        if (hash == null || !HASH.matcher(hash).matches()) return Optional.empty();
+        for (String format : VARIANT_FORMATS) {
+            Path path = variantPath(hash, size, format);
+            if (Files.isRegularFile(path)) return Optional.of(new Variant(path, "image/" + format));
+        }
+        return Optional.empty();
+    }
+
+    // Writes a resized copy of an original; the writer receives a temp file that is then moved into place
+    public void storeVariant(String hash, int size, String format, VariantWriter writer) throws IOException {
+        if (!HASH.matcher(hash).matches() || !VARIANT_FORMATS.contains(format)) {
+            throw new IllegalArgumentException("Bad variant " + hash + " " + format);
+        }
+        Path target = variantPath(hash, size, format);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(root, "variant-", ".tmp");
+        try {
+            writer.write(temp);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    // Removes an original together with its variants
+    public void delete(String hash) throws IOException {
+        if (hash == null || !HASH.matcher(hash).matches()) return;
+        Path original = pathOf(hash);
+        if (Files.isDirectory(original.getParent())) {
+            try (DirectoryStream<Path> variants = Files.newDirectoryStream(original.getParent(), hash + "-*")) {
+                for (Path variant : variants) {
+                    Files.deleteIfExists(variant);
+                }
+            }
+        }
+        Files.deleteIfExists(original);
+    }
+
+    // Deletes originals, with their variants, that nothing references and that were neither stored nor reused
+    // since olderThan. The grace period covers uploads whose user row has not committed yet.
+    public int deleteUnreferenced(Instant olderThan, Predicate<String> referenced) throws IOException {
+        int removed = 0;
+        try (DirectoryStream<Path> shards = Files.newDirectoryStream(root, Files::isDirectory)) {
+            for (Path shard : shards) {
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(shard)) {
+                    for (Path file : files) {
+                        String hash = file.getFileName().toString();
+                        if (!HASH.matcher(hash).matches() || !untouchedSince(file, olderThan) || referenced.test(hash)) {
+                            continue;
+                        }
+                        originals.lock();
+                        try {
+                            // An upload may have reused it after the reference check; it touched the file if so
+                            if (untouchedSince(file, olderThan)) {
+                                delete(hash);
+                                removed++;
+                            }
+                        } finally {
+                            originals.unlock();
+                        }
+                    }
+                }
+            }
+        }
+        return removed;
+    }
+
+    private static boolean untouchedSince(Path file, Instant since) throws IOException {
+        try {
+            return Files.getLastModifiedTime(file).toInstant().isBefore(since);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+    }
+
+    private Path variantPath(String hash, int size, String format) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash + "-" + size + "." + (format.equals("jpeg") ? "jpg" : format));
+    }
+
+    private Path pathOf(String hash) {
+        return root.resolve(hash.substring(0, 2)).resolve(hash);
+    }
+
+    public record Variant(Path path, String contentType) {}
+
+    @FunctionalInterface
+    public interface VariantWriter {
+        void write(Path target) throws IOException;
+    }
+
+    public static class TooLargeException extends IOException {
+        public TooLargeException(long maxBytes) {
+            super("Image is larger than " + maxBytes + " bytes");
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.habitforge.habitforge_backend.service;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Builds square, center-cropped avatar variants of stored profile pictures off the request thread.
+ * Work runs on a small bounded pool; when the queue is full the job is dropped and simply retried the
+ * next time someone asks for a variant that does not exist yet.
+ */
+@Component
+public class ProfilePictureThumbnails implements DisposableBean {
+
+    private static final Logger LOGGER = Logger.getLogger(ProfilePictureThumbnails.class.getName());
+
+    public static final List<Integer> SIZES = List.of(48, 128, 512);
+
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private final ProfilePictureStore store;
+    private final long maxPixels;
+    private final ThreadPoolExecutor executor;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    public ProfilePictureThumbnails(ProfilePictureStore store,
+                                    @Value("${habitforge.profile-pictures.thumbnail-threads:2}") int threads,
+                                    @Value("${habitforge.profile-pictures.thumbnail-queue:64}") int queueCapacity,
+                                    @Value("${habitforge.profile-pictures.max-pixels:40000000}") long maxPixels) {
+        this.store = store;
+        this.maxPixels = maxPixels;
+        int poolSize = Math.max(1, threads);
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "profile-thumbnails");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    // Smallest variant that still covers the requested size, or null when only the original is big enough
+    public static Integer variantFor(int requestedSize) {
+        for (int size : SIZES) {
+            if (size >= requestedSize) return size;
+        }
+        return null;
+    }
+
+    public void generateAsync(String hash) {
+        if (hash == null || !inFlight.add(hash)) return;
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(hash);
+                } finally {
+                    inFlight.remove(hash);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(hash);
+            LOGGER.fine("Thumbnail queue full, skipping " + hash);
+        }
+    }
+
+    void generate(String hash) {
+        Path original = store.locate(hash).orElse(null);
+        if (original == null) return;
+        try {
+            BufferedImage image = decode(original, SIZES.get(SIZES.size() - 1));
+            if (image == null) return;
+
+            boolean alpha = image.getColorModel().hasAlpha();
+            String format = alpha ? "png" : "jpeg";
+            for (int size : SIZES) {
+                if (store.locateVariant(hash, size).isPresent()) continue;
+                BufferedImage thumbnail = squareThumbnail(image, size, alpha);
+                store.storeVariant(hash, size, format, target -> write(thumbnail, format, target));
+            }
+        } catch (Exception e) {
+            LOGGER.log(Level.WARNING, "Failed to build thumbnails for " + hash, e);
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    // Checks the dimensions before decoding, and subsamples while decoding when the source is far larger than needed
+    private BufferedImage decode(Path original, int largestSize) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                LOGGER.warning("Profile picture " + original.getFileName() + " is not a readable image");
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    LOGGER.warning("Profile picture " + original.getFileName() + " is too large to decode: " + width + "x" + height);
+                    return null;
+                }
+
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, Math.min(width, height) / (largestSize * 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Center crop to a square, then halve repeatedly so bilinear filtering never skips source pixels
+    private static BufferedImage squareThumbnail(BufferedImage source, int size, boolean alpha) {
+        int side = Math.min(source.getWidth(), source.getHeight());
+        BufferedImage current = source.getSubimage(
+                (source.getWidth() - side) / 2, (source.getHeight() - side) / 2, side, side);
+        int target = Math.min(size, side);
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        int currentSide = side;
+        do {
+            int next = Math.max(target, currentSide / 2);
+            BufferedImage scaled = new BufferedImage(next, next, type);
+            Graphics2D g = scaled.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, next, next, null);
+            } finally {
+                g.dispose();
+            }
+            current = scaled;
+            currentSide = next;
+        } while (currentSide > target);
+        return current;
+    }
+
+    private static void write(BufferedImage image, String format, Path target) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target.toFile())) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if ("jpeg".equals(format)) {
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.habitforge.habitforge_backend.service;
+
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Timing wheel of daily reminders with one slot per minute of the UTC day.
+ * Reminders repeat every day, so the wheel only turns once per 24 hours and never needs to cascade.
+ * Reading a slot costs O(reminders in that slot).
+ */
+@Component
+public class ReminderTimingWheel {
+
+    static final int SLOTS = 24 * 60;
+
+    private final Set<Long>[] slots;
+    private final Map<Long, Integer> slotByReminder = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    public ReminderTimingWheel() {
+        slots = new Set[SLOTS];
+        for (int i = 0; i < SLOTS; i++) {
+            slots[i] = ConcurrentHashMap.newKeySet();
+        }
+    }
+
+    public static int slotOf(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    // UTC slot of the next time the wall clock in the zone shows the given local time. Uses the next occurrence,
+    // so a reminder rebucketed after today's firing already has the offset that applies tomorrow.
+    public static int utcSlotOf(LocalTime localTime, ZoneId zone, Instant now) {
+        ZonedDateTime current = now.atZone(zone);
+        ZonedDateTime next = ZonedDateTime.of(current.toLocalDate(), localTime, zone);
+        if (!next.isAfter(current)) {
+            next = ZonedDateTime.of(current.toLocalDate().plusDays(1), localTime, zone);
+        }
+        return slotOf(next.withZoneSameInstant(ZoneOffset.UTC).toLocalTime());
+    }
+
+    // Places or moves the reminder to the given UTC minute slot
+    public void schedule(Long reminderId, int slot) {
+        Integer previous = slotByReminder.put(reminderId, slot);
+        if (previous != null && previous != slot) {
+            slots[previous].remove(reminderId);
+        }
+        slots[slot].add(reminderId);
+    }
+
+    public void cancel(Long reminderId) {
+        Integer previous = slotByReminder.remove(reminderId);
+        if (previous != null) {
+            slots[previous].remove(reminderId);
+        }
+    }
+
+    public void clear() {
+        slotByReminder.clear();
+        for (Set<Long> slot : slots) {
+            slot.clear();
+        }
+    }
+
+    // Snapshot of the reminders due at the given UTC minute
+    public Set<Long> dueAt(int slot) {
+        return Set.copyOf(slots[slot]);
+    }
+
+    public boolean isScheduledAt(Long reminderId, int slot) {
+        Integer current = slotByReminder.get(reminderId);
+        return current != null && current == slot;
+    }
+
+    public int size() {
+        return slotByReminder.size();
+    }
+}
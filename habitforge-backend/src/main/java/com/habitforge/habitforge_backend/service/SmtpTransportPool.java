@@ -0,0 +1,118 @@
+package com.habitforge.habitforge_backend.service;
+
+import jakarta.mail.Address;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.logging.Logger;
+
+/**
+ * Small pool of connected, authenticated SMTP transports for bulk sends.
+ * A connection sends up to max-messages-per-connection messages before it is recycled,
+ * and is reopened whenever the server has dropped it.
+ */
+@Component
+public class SmtpTransportPool implements DisposableBean {
+
+    private static final Logger LOGGER = Logger.getLogger(SmtpTransportPool.class.getName());
+
+    private final JavaMailSenderImpl mailSender;
+    private final int size;
+    private final int maxMessagesPerConnection;
+    private final Semaphore slots;
+    private final BlockingQueue<Connection> idle = new LinkedBlockingQueue<>();
+
+    public SmtpTransportPool(JavaMailSender mailSender,
+                             @Value("${habitforge.mail.pool.size:4}") int size,
+                             @Value("${habitforge.mail.pool.max-messages-per-connection:100}") int maxMessagesPerConnection) {
+        if (!(mailSender instanceof JavaMailSenderImpl impl)) {
+            throw new IllegalStateException("SMTP pooling needs a JavaMailSenderImpl, got " + mailSender.getClass());
+        }
+        this.mailSender = impl;
+        this.size = Math.max(1, size);
+        this.maxMessagesPerConnection = Math.max(1, maxMessagesPerConnection);
+        this.slots = new Semaphore(this.size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Blocks until one of the pool's connections is free
+    public Connection borrow() throws InterruptedException {
+        slots.acquire();
+        Connection connection = idle.poll();
+        return connection != null ? connection : new Connection();
+    }
+
+    public void release(Connection connection) {
+        idle.offer(connection);
+        slots.release();
+    }
+
+    @Override
+    public void destroy() {
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            connection.close();
+        }
+    }
+
+    public final class Connection {
+        private Transport transport;
+        private int messagesSent;
+
+        public void send(MimeMessage message) throws MessagingException {
+            message.saveChanges();
+            send(message, message.getAllRecipients());
+        }
+
+        // Only to the given recipients, e.g. the ones a partially failed send did not reach
+        public void send(MimeMessage message, Address[] recipients) throws MessagingException {
+            if (transport == null || messagesSent >= maxMessagesPerConnection || !transport.isConnected()) {
+                reconnect();
+            }
+            try {
+                transport.sendMessage(message, recipients);
+                messagesSent++;
+            } catch (MessagingException e) {
+                // The connection state is unknown after a failure; the next send starts clean
+                close();
+                throw e;
+            }
+        }
+
+        private void reconnect() throws MessagingException {
+            close();
+            Session session = mailSender.getSession();
+            Transport fresh = session.getTransport(mailSender.getProtocol() == null ? "smtp" : mailSender.getProtocol());
+            String username = mailSender.getUsername();
+            String password = mailSender.getPassword();
+            if (username != null && username.isEmpty()) username = null;
+            if (password != null && password.isEmpty()) password = null;
+            fresh.connect(mailSender.getHost(), mailSender.getPort(), username, password);
+            transport = fresh;
+            messagesSent = 0;
+        }
+
+        private void close() {
+            if (transport == null) return;
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                LOGGER.fine("Ignoring error while closing SMTP connection: " + e.getMessage());
+            }
+            transport = null;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.habitforge.habitforge_backend.service;
+
+import com.habitforge.habitforge_backend.repository.UserRepository;
+import com.habitforge.habitforge_backend.util.BoundedMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+
+/**
+ * Bounded username -> user id map for tokens that only carry a subject.
+ * A miss costs one indexed id-only query; UserService evicts entries when a username changes.
+ */
+@Component
+public class UserIdCache {
+
+    private final UserRepository userRepository;
+    private final BoundedMap<String, Long> ids;
+
+    public UserIdCache(UserRepository userRepository,
+                       @Value("${habitforge.security.user-id-cache-size:10000}") int maxSize) {
+        this.userRepository = userRepository;
+        this.ids = new BoundedMap<>(maxSize);
+    }
+
+    // Accepts either a username or, for accounts that have none yet, an email; null if no such user
+    public Long resolve(String identifier) {
+        if (identifier == null || identifier.isBlank()) return null;
+        String key = identifier.trim();
+
+        Long cached = ids.get(key);
+        if (cached != null) return cached;
+
+        Long id = (key.contains("@")
+                ? userRepository.findIdByEmail(key)
+                : userRepository.findIdByUsername(key)).orElse(null);
+        if (id != null) ids.put(key, id);
+        return id;
+    }
+
+    public void evict(String identifier) {
+        if (identifier != null) ids.remove(identifier.trim());
+    }
+
+    public int size() {
+        return ids.size();
+    }
+}
@@ -1,25 +1,65 @@
 package com.habitforge.habitforge_backend.service;
 
 import com.habitforge.habitforge_backend.model.User;
+import com.habitforge.habitforge_backend.model.VerificationPurpose;
 import com.habitforge.habitforge_backend.repository.UserRepository;
-import jakarta.transaction.Transactional;
+import com.habitforge.habitforge_backend.security.PasswordHashingBusyException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.logging.Logger;
 
 @Service
 public class UserService {
 
+    private static final Logger LOGGER = Logger.getLogger(UserService.class.getName());
+
     @Autowired
     private UserRepository userRepository;
 
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private UserIdCache userIdCache;
+
+    @Autowired
+    private ProfilePictureStore profilePictureStore;
+
+    @Autowired
+    private ProfilePictureThumbnails profilePictureThumbnails;
+
+    @Autowired
+    private UserTimeZones userTimeZones;
+
+    @Autowired
+    private HabitReminderService habitReminderService;
+
+    @Autowired
+    private HabitService habitService;
+
+    @Autowired
+    private VerificationCodeStore verificationCodes;
+
+    @Value("${habitforge.profile-pictures.max-bytes:5242880}")
+    private long maxProfilePictureBytes;
+
+    @Value("${habitforge.profile-pictures.orphan-grace-hours:24}")
+    private long orphanGraceHours;
+
     public boolean registerUser(String username, String plainPassword, String email) {
         try {
             String trimmedUsername = username == null ? "" : username.trim();
@@ -36,11 +76,12 @@ public class UserService {
             user.setPassword(passwordEncoder.encode(trimmedPassword));
             user.setEmail(trimmedEmail);
             user.setEmailVerified(false);
-            user.setVerificationCode(UUID.randomUUID().toString());
             user.setHasBeenPromptedForProfilePic(false);
 
             userRepository.save(user);
             return true;
+        } catch (PasswordHashingBusyException e) {
+            throw e; // Answered with 503, not "already exists"
         } catch (Exception e) {
             e.printStackTrace();
             return false;
@@ -77,19 +118,33 @@ public class UserService {
         Optional<User> userOpt = userRepository.findByUsername(username.trim());
         if (userOpt.isEmpty()) return false;
 
+        String hash;
+        try (InputStream in = file.getInputStream()) {
+            hash = profilePictureStore.store(in, maxProfilePictureBytes);
+        }
+
         User user = userOpt.get();
-        user.setProfilePicture(file.getBytes());
+        user.setProfilePictureHash(hash);
         user.setProfilePictureContentType(file.getContentType());
         userRepository.save(user);
+
+        // The previous file may be shared with another user, so it is left for purgeUnreferencedProfilePictures
+        profilePictureThumbnails.generateAsync(hash);
         return true;
     }
 
-    public byte[] getProfilePicture(String username) {
-        return username == null ? null : userRepository.findByUsername(username.trim()).map(User::getProfilePicture).orElse(null);
+    // Deleting inline would race a concurrent upload of the same image, whose row is not committed yet
+    @Scheduled(cron = "0 45 3 * * *") // Daily at 03:45
+    public void purgeUnreferencedProfilePictures() throws IOException {
+        Instant cutoff = Instant.now().minus(Duration.ofHours(orphanGraceHours));
+        int removed = profilePictureStore.deleteUnreferenced(cutoff, userRepository::existsByProfilePictureHash);
+        LOGGER.info("Purged " + removed + " unreferenced profile pictures");
     }
 
-    public String getProfilePictureContentType(String username) {
-        return username == null ? null : userRepository.findByUsername(username.trim()).map(User::getProfilePictureContentType).orElse(null);
+    @Transactional(readOnly = true)
+    public Optional<UserRepository.ProfilePictureRef> getProfilePicture(String username) {
+        if (username == null) return Optional.empty();
+        return userRepository.findProfilePictureByUsername(username.trim()).filter(ref -> ref.getHash() != null);
     }
 
     public boolean markUserPrompted(String username) {
@@ -103,54 +158,31 @@ public class UserService {
         return false;
     }
 
+    // Codes live in VerificationCodeStore; the users row changes only when the flag actually flips
+    @Transactional
     public boolean verifyEmailCode(String email, String code) {
-        Optional<User> userOpt = userRepository.findByEmail(email.trim());
-        if (userOpt.isPresent()) {
-            User user = userOpt.get();
-            if (code.equals(user.getVerificationCode())) {
-                user.setEmailVerified(true);
-                user.setVerificationCode(null);
-                userRepository.save(user);
-                return true;
-            }
-        }
-        return false;
+        if (!verificationCodes.consume(email, VerificationPurpose.EMAIL_VERIFICATION, code)) return false;
+        userRepository.markEmailVerifiedByEmail(email.trim());
+        return true;
     }
 
-    public boolean generateAndSendPasswordResetCode(String email, String resetCode) {
-        Optional<User> userOpt = userRepository.findByEmail(email.trim());
-        if (userOpt.isPresent()) {
-            User user = userOpt.get();
-            user.setResetPasswordCode(resetCode);
-            userRepository.save(user);
-            return true;
-        }
-        return false;
+    // Returns the new code, or null when no user has this email
+    public String generatePasswordResetCode(String email) {
+        if (!existsByEmail(email)) return null;
+        return verificationCodes.issue(email, VerificationPurpose.PASSWORD_RESET);
     }
-    // Verify password reset code matches stored resetPasswordCode for the user
-public boolean verifyResetCode(String email, String code) {
-    Optional<User> userOpt = userRepository.findByEmail(email.trim());
-    if (userOpt.isPresent()) {
-        User user = userOpt.get();
-        return code != null && code.equals(user.getResetPasswordCode());
-    }
-    return false;
-}
 
+    // Checks the reset code without using it up
+    public boolean verifyResetCode(String email, String code) {
+        return verificationCodes.matches(email, VerificationPurpose.PASSWORD_RESET, code);
+    }
 
     @Transactional
     public boolean resetPassword(String email, String code, String newPassword) {
-        Optional<User> userOpt = userRepository.findByEmail(email.trim());
-        if (userOpt.isPresent()) {
-            User user = userOpt.get();
-            if (code.equals(user.getResetPasswordCode())) {
-                user.setPassword(passwordEncoder.encode(newPassword));
-                user.setResetPasswordCode(null);
-                userRepository.save(user);
-                return true;
-            }
-        }
-        return false;
+        // Hash first: a busy encoder (503) must not burn the code
+        String hash = passwordEncoder.encode(newPassword);
+        if (!verificationCodes.consume(email, VerificationPurpose.PASSWORD_RESET, code)) return false;
+        return userRepository.updatePasswordByEmail(email.trim(), hash) == 1;
     }
 
     public boolean existsByEmail(String email) {
@@ -169,52 +201,21 @@ public boolean verifyResetCode(String email, String code) {
         return false;
     }
 
-    public void saveVerificationCode(String email, String code) {
-        Optional<User> userOpt = userRepository.findByEmail(email.trim());
-        userOpt.ifPresent(user -> {
-            user.setVerificationCode(code);
-            userRepository.save(user);
-        });
-    }
-
+    // Returns the new code, or null when no user has this email
     public String generateLoginVerificationCode(String email) {
-    Optional<User> userOpt = userRepository.findByEmail(email.trim());
-    if (userOpt.isPresent()) {
-        String code = String.format("%06d", (int)(Math.random() * 1000000));
-        User user = userOpt.get();
-        user.setLoginVerificationCode(code);
-        userRepository.save(user);
-        System.out.println("[DEBUG] Generated login code for " + email + ": " + code);
-        return code;
+        if (!existsByEmail(email)) return null;
+        return verificationCodes.issue(email, VerificationPurpose.LOGIN);
     }
-    return null;
-}
-
 
+    @Transactional
     public boolean verifyLoginCode(String email, String code) {
-    Optional<User> userOpt = userRepository.findByEmail(email.trim());
-    if (userOpt.isPresent()) {
-        User user = userOpt.get();
-        System.out.println("[DEBUG] Verifying code for " + email + ": stored=" + user.getLoginVerificationCode() + ", input=" + code);
-        if (code.trim().equals(user.getLoginVerificationCode())) {
-            user.setLoginVerificationCode(null);
-            user.setEmailVerified(true);
-            userRepository.save(user);
-            return true;
-        }
+        if (!verificationCodes.consume(email, VerificationPurpose.LOGIN, code)) return false;
+        userRepository.markEmailVerifiedByEmail(email.trim());
+        return true;
     }
-    return false;
-}
-
-
-
 
     public void clearLoginVerificationCode(String email) {
-        Optional<User> userOpt = userRepository.findByEmail(email.trim());
-        userOpt.ifPresent(user -> {
-            user.setLoginVerificationCode(null);
-            userRepository.save(user);
-        });
+        verificationCodes.invalidate(email, VerificationPurpose.LOGIN);
     }
 
     @Transactional
@@ -266,10 +267,10 @@ public boolean verifyResetCode(String email, String code) {
         if (userOpt.isPresent()) {
             User user = userOpt.get();
             if (userRepository.existsByEmail(email.trim())) return false;
-            if (code.equals(user.getVerificationCode())) {
+            // The code was mailed to the new address, so it is keyed by that address
+            if (verificationCodes.consume(email, VerificationPurpose.EMAIL_VERIFICATION, code)) {
                 user.setEmail(email.trim());
                 user.setEmailVerified(true);
-                user.setVerificationCode(null);
                 userRepository.save(user);
                 return true;
             }
@@ -295,6 +296,30 @@ public boolean verifyResetCode(String email, String code) {
         return true;
     }
 
+    // Stores an IANA zone id ("Europe/Berlin"), moves the user's reminders to their new UTC minutes
+    // and keeps habit start dates from landing after the new local today
+    @Transactional
+    public boolean updateTimeZone(Long userId, String timeZone) {
+        if (timeZone == null || timeZone.isBlank()) return false;
+        ZoneId zone;
+        try {
+            zone = ZoneId.of(timeZone.trim());
+        } catch (DateTimeException e) {
+            return false;
+        }
+
+        Optional<User> userOpt = userRepository.findById(userId);
+        if (userOpt.isEmpty()) return false;
+
+        User user = userOpt.get();
+        user.setTimeZone(zone.getId());
+        userRepository.save(user);
+        userTimeZones.evict(userId);
+        habitReminderService.rebucketUser(userId);
+        habitService.clampStartDates(userId);
+        return true;
+    }
+
     public boolean markEmailVerified(String username) {
         Optional<User> userOpt = userRepository.findByUsername(username.trim());
         if (userOpt.isEmpty()) return false;
@@ -318,6 +343,7 @@ public boolean verifyResetCode(String email, String code) {
         User user = userOpt.get();
         user.setUsername(newUsername.trim());
         userRepository.save(user);
+        userIdCache.evict(currentUsername);
         return true;
     }
 
@@ -329,8 +355,10 @@ public boolean verifyResetCode(String email, String code) {
             return false; // Username taken
         }
 
+        String oldUsername = user.getUsername();
         user.setUsername(newUsername.trim());
         userRepository.save(user);
+        userIdCache.evict(oldUsername);
         return true;
     }
 
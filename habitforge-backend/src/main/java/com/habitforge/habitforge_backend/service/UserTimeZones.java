@@ -0,0 +1,54 @@
+package com.habitforge.habitforge_backend.service;
+
+import com.habitforge.habitforge_backend.repository.UserRepository;
+import com.habitforge.habitforge_backend.util.BoundedMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+/**
+ * Bounded user id -> time zone map, so day boundaries ("today" for a check-in) follow the user's clock.
+ * A miss costs one id-keyed query; UserService evicts the entry when the user changes zone.
+ */
+@Component
+public class UserTimeZones {
+
+    private final UserRepository userRepository;
+    private final BoundedMap<Long, ZoneId> zones;
+
+    public UserTimeZones(UserRepository userRepository,
+                         @Value("${habitforge.time-zones.cache-size:10000}") int maxSize) {
+        this.userRepository = userRepository;
+        this.zones = new BoundedMap<>(maxSize);
+    }
+
+    // Server zone for users who never set one, or whose stored id no longer parses
+    public static ZoneId parse(String zoneId) {
+        if (zoneId == null || zoneId.isBlank()) return ZoneId.systemDefault();
+        try {
+            return ZoneId.of(zoneId);
+        } catch (DateTimeException e) {
+            return ZoneId.systemDefault();
+        }
+    }
+
+    public ZoneId zoneOf(Long userId) {
+        ZoneId cached = zones.get(userId);
+        if (cached != null) return cached;
+
+        ZoneId zone = parse(userRepository.findTimeZoneById(userId).orElse(null));
+        zones.put(userId, zone);
+        return zone;
+    }
+
+    public LocalDate today(Long userId) {
+        return LocalDate.now(zoneOf(userId));
+    }
+
+    public void evict(Long userId) {
+        if (userId != null) zones.remove(userId);
+    }
+}
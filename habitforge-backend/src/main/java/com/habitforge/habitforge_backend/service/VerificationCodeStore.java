@@ -0,0 +1,134 @@
+package com.habitforge.habitforge_backend.service;
+
+import com.habitforge.habitforge_backend.model.VerificationCode;
+import com.habitforge.habitforge_backend.model.VerificationPurpose;
+import com.habitforge.habitforge_backend.repository.VerificationCodeRepository;
+import com.habitforge.habitforge_backend.util.BoundedMap;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Locale;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * One-time codes keyed by (email, purpose), each with a time to live.
+ * Codes are written through to the verification_codes table, so they survive a restart and work on every node.
+ * The row is the only source of a positive answer, since another node may have used or replaced the code;
+ * the bounded in-memory tier only rejects codes this node already saw used up or expire. Using a code is a
+ * conditional DELETE of its row, so it succeeds once. A sweeper drops expired codes from both tiers.
+ */
+@Component
+public class VerificationCodeStore {
+
+    private static final Logger LOGGER = Logger.getLogger(VerificationCodeStore.class.getName());
+
+    private final VerificationCodeRepository repository;
+    private final Map<VerificationPurpose, Duration> ttls;
+    private final SecureRandom random = new SecureRandom();
+    private final BoundedMap<Key, Entry> hot;
+
+    public VerificationCodeStore(VerificationCodeRepository repository, MeterRegistry meterRegistry,
+                                 @Value("${habitforge.verification-codes.email-ttl:24h}") Duration emailTtl,
+                                 @Value("${habitforge.verification-codes.login-ttl:10m}") Duration loginTtl,
+                                 @Value("${habitforge.verification-codes.reset-ttl:15m}") Duration resetTtl,
+                                 @Value("${habitforge.verification-codes.cache-size:10000}") int maxCached) {
+        this.repository = repository;
+        this.ttls = Map.of(VerificationPurpose.EMAIL_VERIFICATION, emailTtl,
+                           VerificationPurpose.LOGIN, loginTtl,
+                           VerificationPurpose.PASSWORD_RESET, resetTtl);
+        this.hot = new BoundedMap<>(maxCached);
+        meterRegistry.gauge("habitforge.verification-codes.cached", hot, BoundedMap::size);
+    }
+
+    // New six-digit code for (email, purpose), replacing any live one
+    public String issue(String email, VerificationPurpose purpose) {
+        Key key = Key.of(email, purpose);
+        String code = String.format("%06d", random.nextInt(1_000_000));
+        LocalDateTime expiresAt = LocalDateTime.now().plus(ttls.get(purpose));
+
+        if (repository.replaceCode(key.email(), purpose, code, expiresAt) == 0) {
+            try {
+                repository.save(new VerificationCode(key.email(), purpose, code, expiresAt));
+            } catch (DataIntegrityViolationException e) {
+                // Issued concurrently elsewhere; ours is the newer one
+                repository.replaceCode(key.email(), purpose, code, expiresAt);
+            }
+        }
+        LocalDateTime now = LocalDateTime.now();
+        hot.put(key, new Entry(code, expiresAt, false), entry -> !entry.isLiveAt(now));
+        return code;
+    }
+
+    // Checks a code without using it up
+    public boolean matches(String email, VerificationPurpose purpose, String code) {
+        if (email == null || code == null) return false;
+        Key key = Key.of(email, purpose);
+        String candidate = code.trim();
+        LocalDateTime now = LocalDateTime.now();
+
+        // Negative hint only: a live code found here may since have been used or replaced on another node
+        Entry entry = hot.get(key);
+        if (entry != null && entry.code().equals(candidate) && (entry.used() || !entry.isLiveAt(now))) return false;
+
+        return repository.findByEmailAndPurpose(key.email(), purpose)
+                .filter(row -> row.getExpirationTime().isAfter(now) && row.getCode().equals(candidate))
+                .isPresent();
+    }
+
+    // Uses the code up; true for exactly one caller presenting the live code
+    public boolean consume(String email, VerificationPurpose purpose, String code) {
+        if (email == null || code == null) return false;
+        Key key = Key.of(email, purpose);
+        String candidate = code.trim();
+        LocalDateTime now = LocalDateTime.now();
+        boolean used = repository.consume(key.email(), purpose, candidate, now) == 1;
+        if (used) {
+            // Kept until it would have expired, so a replay of the same code is turned away without a query
+            Entry entry = hot.get(key);
+            LocalDateTime expiresAt = entry != null && entry.code().equals(candidate)
+                    ? entry.expiresAt() : now.plus(ttls.get(purpose));
+            hot.put(key, new Entry(candidate, expiresAt, true));
+        }
+        return used;
+    }
+
+    public void invalidate(String email, VerificationPurpose purpose) {
+        if (email == null) return;
+        Key key = Key.of(email, purpose);
+        repository.deleteByEmailAndPurpose(key.email(), purpose);
+        hot.remove(key);
+    }
+
+    @Scheduled(fixedDelayString = "${habitforge.verification-codes.sweep-interval-ms:60000}")
+    public void sweep() {
+        sweep(LocalDateTime.now());
+    }
+
+    void sweep(LocalDateTime now) {
+        hot.removeIf(entry -> !entry.isLiveAt(now));
+        int deleted = repository.deleteExpired(now);
+        if (deleted > 0) {
+            LOGGER.info("Removed " + deleted + " expired verification codes");
+        }
+    }
+
+    // Emails compare case-insensitively, as mail servers do for the domain and users expect for the rest
+    private record Key(String email, VerificationPurpose purpose) {
+        static Key of(String email, VerificationPurpose purpose) {
+            return new Key(email.trim().toLowerCase(Locale.ROOT), purpose);
+        }
+    }
+
+    private record Entry(String code, LocalDateTime expiresAt, boolean used) {
+        boolean isLiveAt(LocalDateTime now) {
+            return expiresAt.isAfter(now);
+        }
+    }
+}
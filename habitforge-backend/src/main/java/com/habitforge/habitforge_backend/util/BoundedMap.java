@@ -0,0 +1,54 @@
+package com.habitforge.habitforge_backend.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Concurrent map for in-memory caches that must not grow without bound. When a put finds it full it drops
+ * what the caller says is stale, and if that frees nothing it starts over with an empty map. Everything
+ * kept here can be recomputed or re-read, so losing entries only costs a lookup.
+ */
+public final class BoundedMap<K, V> {
+
+    private final int maxSize;
+    private final Map<K, V> map = new ConcurrentHashMap<>();
+
+    public BoundedMap(int maxSize) {
+        this.maxSize = Math.max(1, maxSize);
+    }
+
+    public V get(K key) {
+        return map.get(key);
+    }
+
+    public void put(K key, V value) {
+        put(key, value, null);
+    }
+
+    // stale, if given, is tried before clearing everything
+    public void put(K key, V value, Predicate<? super V> stale) {
+        if (map.size() >= maxSize) {
+            if (stale != null) map.values().removeIf(stale);
+            if (map.size() >= maxSize) map.clear();
+        }
+        map.put(key, value);
+    }
+
+    public void remove(K key) {
+        map.remove(key);
+    }
+
+    // Only if key still maps to value, so a concurrent put of a fresh value survives
+    public boolean remove(K key, V value) {
+        return map.remove(key, value);
+    }
+
+    public boolean removeIf(Predicate<? super V> predicate) {
+        return map.values().removeIf(predicate);
+    }
+
+    public int size() {
+        return map.size();
+    }
+}
@@ -0,0 +1,55 @@
+-- Schema as spring.jpa.hibernate.ddl-auto=update left it before migrations took over. Existing databases are
+-- baselined at this version (spring.flyway.baseline-on-migrate) and only run what follows; new ones start here.
+
+CREATE TABLE users (
+    id                              BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    username                        VARCHAR(255) NOT NULL UNIQUE,
+    password                        VARCHAR(255),
+    email                           VARCHAR(255) UNIQUE,
+    email_verified                  BOOLEAN,
+    email_verification_code         VARCHAR(255),
+    password_reset_code             VARCHAR(255),
+    login_verification_code         VARCHAR(255),
+    profile_picture                 BYTEA,
+    profile_picture_content_type    VARCHAR(255),
+    has_been_prompted_for_profile_pic BOOLEAN,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE habit (
+    id                  BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    user_id             BIGINT,
+    title               VARCHAR(255),
+    target_days         INTEGER NOT NULL,
+    start_date          DATE,
+    completed           BOOLEAN NOT NULL,
+    current_streak      INTEGER NOT NULL,
+    last_check_in_date  DATE,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE habit_completed_days (
+    habit_id        BIGINT NOT NULL,
+    completed_days  DATE
+);
+
+CREATE TABLE habit_reminder (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    habit_id        BIGINT NOT NULL UNIQUE,
+    reminder_time   TIME(6),
+    enabled         BOOLEAN NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE verification_codes (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    email           VARCHAR(255) NOT NULL,
+    code            VARCHAR(255) NOT NULL,
+    expiration_time TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+-- Hibernate's generated names, so baselined databases and new ones agree
+ALTER TABLE habit ADD CONSTRAINT FK9guei4wqpqx9uerqr5e4y6f3n FOREIGN KEY (user_id) REFERENCES users;
+ALTER TABLE habit_completed_days ADD CONSTRAINT FKgs0kky9ro3n2aou3km88iga10 FOREIGN KEY (habit_id) REFERENCES habit;
+ALTER TABLE habit_reminder ADD CONSTRAINT FK6ws4mfvb9o3vf2rfw9re4vlol FOREIGN KEY (habit_id) REFERENCES habit;
@@ -0,0 +1,83 @@
+-- Everything the entities gained since the baseline. The data moves that need Java (completed days into bitmaps,
+-- profile pictures into the file store) run as V3 and V4 once these columns exist.
+
+ALTER TABLE users ADD COLUMN time_zone VARCHAR(64);
+ALTER TABLE users ADD COLUMN profile_picture_hash VARCHAR(64);
+ALTER TABLE users ADD COLUMN habit_list_version BIGINT DEFAULT 0 NOT NULL;
+
+ALTER TABLE habit ADD COLUMN completion_bitmap BYTEA;
+ALTER TABLE habit ADD COLUMN longest_streak INTEGER;
+ALTER TABLE habit ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE habit ADD COLUMN list_version BIGINT DEFAULT 0 NOT NULL;
+
+ALTER TABLE habit_reminder ADD COLUMN utc_minute INTEGER;
+
+CREATE TABLE habit_tombstone (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    user_id         BIGINT NOT NULL,
+    habit_id        BIGINT NOT NULL,
+    list_version    BIGINT NOT NULL,
+    deleted_at      TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE TABLE habit_check_in_key (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    user_id         BIGINT NOT NULL,
+    idempotency_key VARCHAR(100) NOT NULL,
+    habit_id        BIGINT NOT NULL,
+    check_in_date   DATE NOT NULL,
+    outcome         VARCHAR(32) NOT NULL CHECK (outcome IN ('APPLIED', 'ALREADY_CHECKED_IN', 'HABIT_NOT_FOUND',
+                                                           'FUTURE_DATE', 'BEFORE_START', 'TOO_OLD', 'INVALID')),
+    created_at      TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_check_in_key_user_key UNIQUE (user_id, idempotency_key)
+);
+
+CREATE TABLE reminder_dispatch (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    reminder_id     BIGINT NOT NULL,
+    reminder_date   DATE NOT NULL,
+    sent_at         TIMESTAMP(6) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_reminder_dispatch_reminder_date UNIQUE (reminder_id, reminder_date)
+);
+
+CREATE TABLE email_outbox (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    recipient       VARCHAR(255) NOT NULL,
+    subject         VARCHAR(255) NOT NULL,
+    html_content    TEXT NOT NULL,
+    priority        VARCHAR(16) NOT NULL CHECK (priority IN ('TRANSACTIONAL', 'BULK')),
+    status          VARCHAR(16) NOT NULL CHECK (status IN ('PENDING', 'SENDING', 'SENT', 'FAILED')),
+    attempts        INTEGER NOT NULL,
+    next_attempt_at TIMESTAMP(6) NOT NULL,
+    created_at      TIMESTAMP(6) NOT NULL,
+    sent_at         TIMESTAMP(6),
+    last_error      VARCHAR(1000),
+    PRIMARY KEY (id)
+);
+
+-- One-time codes are now keyed by (email, purpose) and the users columns are gone. Outstanding codes expire within
+-- minutes anyway, so they are dropped rather than guessed into a purpose; users just request a new one.
+DELETE FROM verification_codes;
+ALTER TABLE verification_codes ADD COLUMN purpose VARCHAR(32) NOT NULL
+    CHECK (purpose IN ('EMAIL_VERIFICATION', 'LOGIN', 'PASSWORD_RESET'));
+ALTER TABLE verification_codes ADD CONSTRAINT uk_verification_codes_email_purpose UNIQUE (email, purpose);
+ALTER TABLE users DROP COLUMN email_verification_code;
+ALTER TABLE users DROP COLUMN password_reset_code;
+ALTER TABLE users DROP COLUMN login_verification_code;
+
+CREATE INDEX idx_email_outbox_due ON email_outbox (priority, status, next_attempt_at);
+CREATE INDEX idx_habit_user_start_date ON habit (user_id, start_date, id);
+CREATE INDEX idx_habit_user_streak ON habit (user_id, current_streak, id);
+CREATE INDEX idx_habit_user_completed ON habit (user_id, completed, id);
+CREATE INDEX idx_habit_user_list_version ON habit (user_id, list_version);
+CREATE INDEX idx_habit_tombstone_user_version ON habit_tombstone (user_id, list_version);
+CREATE INDEX idx_habit_reminder_utc_minute ON habit_reminder (utc_minute);
+CREATE INDEX idx_verification_codes_expiration ON verification_codes (expiration_time);
+
+-- Retention sweeps delete by age; without these each sweep scans the whole table
+CREATE INDEX idx_reminder_dispatch_date ON reminder_dispatch (reminder_date);
+CREATE INDEX idx_check_in_key_created_at ON habit_check_in_key (created_at);
+CREATE INDEX idx_email_outbox_sent ON email_outbox (status, sent_at);
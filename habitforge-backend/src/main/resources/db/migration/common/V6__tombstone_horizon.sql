@@ -0,0 +1,4 @@
+-- Tombstones are purged after a retention period. Each user remembers the newest list version purged for them;
+-- a ?since= below it may have missed a deletion, so it is answered with the full list instead of a delta.
+ALTER TABLE users ADD COLUMN tombstone_horizon BIGINT DEFAULT 0 NOT NULL;
+CREATE INDEX idx_habit_tombstone_deleted_at ON habit_tombstone (deleted_at);
@@ -0,0 +1,3 @@
+-- H2 has no partial indexes; same name and lookup as the PostgreSQL version, with enabled as a key column
+DROP INDEX IF EXISTS idx_habit_reminder_utc_minute;
+CREATE INDEX idx_habit_reminder_enabled_utc_minute ON habit_reminder (utc_minute, enabled);
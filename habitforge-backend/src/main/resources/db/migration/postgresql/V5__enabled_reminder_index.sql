@@ -0,0 +1,4 @@
+-- The reminder tick looks up enabled reminders by UTC minute (HabitReminderRepository.findDueRemindersWithHabitAndUser).
+-- Disabled reminders are never read by minute, so they stay out of the index.
+DROP INDEX IF EXISTS idx_habit_reminder_utc_minute;
+CREATE INDEX idx_habit_reminder_enabled_utc_minute ON habit_reminder (utc_minute) WHERE enabled;
@@ -0,0 +1,66 @@
+package com.habitforge.habitforge_backend;
+
+import com.habitforge.habitforge_backend.model.Habit;
+import com.habitforge.habitforge_backend.model.User;
+import com.habitforge.habitforge_backend.repository.HabitRepository;
+import com.habitforge.habitforge_backend.repository.UserRepository;
+import com.habitforge.habitforge_backend.service.HabitService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Real servers, so the API port and the management port are both listening
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@AutoConfigureObservability
+class MetricsEndpointTest {
+
+    @LocalServerPort private int port;
+    @LocalManagementPort private int managementPort;
+    private final HttpClient http = HttpClient.newHttpClient();
+    @Autowired private HabitService habitService;
+    @Autowired private UserRepository userRepo;
+    @Autowired private HabitRepository habitRepo;
+
+    @Test
+    @Transactional
+    void prometheusIsServedOnTheManagementPortOnlyAndExposesHotPathMetrics() throws Exception {
+        User user = userRepo.save(new User("metrics_user", "not-a-real-hash"));
+        Habit habit = new Habit();
+        habit.setUser(user);
+        habit.setTitle("Stretch");
+        habit.setTargetDays(10);
+        habit.setStartDate(LocalDate.now());
+        habit = habitRepo.save(habit);
+        habitService.checkInHabit(user.getId(), habit.getId());
+
+        HttpResponse<String> metrics = get(managementPort, "/actuator/prometheus");
+        assertEquals(200, metrics.statusCode());
+        assertTrue(metrics.body().contains("habitforge_habit_checkin_seconds_count{application=\"Habit Forge Backend\",outcome=\"applied\"}"));
+        assertTrue(metrics.body().contains("habitforge_reminders_scheduled"));
+        assertTrue(metrics.body().contains("habitforge_mail_outbox_pending{"));
+        assertEquals(200, get(managementPort, "/actuator/health").statusCode());
+
+        // The public API port does not serve actuator at all
+        assertNotEquals(200, get(port, "/actuator/prometheus").statusCode());
+        assertNotEquals(200, get(port, "/actuator/health").statusCode());
+    }
+
+    private HttpResponse<String> get(int port, String path) throws Exception {
+        return http.send(HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+}
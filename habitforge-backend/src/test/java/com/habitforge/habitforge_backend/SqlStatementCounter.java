@@ -0,0 +1,23 @@
+package com.habitforge.habitforge_backend;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+// Hibernate statement inspector that counts the SQL issued by the current thread
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<Integer> COUNT = ThreadLocal.withInitial(() -> 0);
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.set(COUNT.get() + 1);
+        return sql;
+    }
+
+    public static void reset() {
+        COUNT.set(0);
+    }
+
+    public static int count() {
+        return COUNT.get();
+    }
+}
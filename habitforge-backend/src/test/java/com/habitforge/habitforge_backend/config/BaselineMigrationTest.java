@@ -0,0 +1,126 @@
+package com.habitforge.habitforge_backend.config;
+
+import com.habitforge.habitforge_backend.model.CompletionBitmap;
+import com.habitforge.habitforge_backend.service.ProfilePictureStore;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Production databases predate Flyway: ddl-auto=update built them, and they are baselined at V1 on first start
+class BaselineMigrationTest {
+
+    // What ddl-auto=update generated for the entities before migrations took over
+    private static final String[] UPDATE_MODE_SCHEMA = {
+            "create table habit (completed boolean not null, current_streak integer not null, last_check_in_date date, " +
+                    "start_date date, target_days integer not null, id bigint generated by default as identity, " +
+                    "user_id bigint, title varchar(255), primary key (id))",
+            "create table habit_completed_days (completed_days date, habit_id bigint not null)",
+            "create table habit_reminder (enabled boolean not null, reminder_time time(6), " +
+                    "habit_id bigint not null unique, id bigint generated by default as identity, primary key (id))",
+            "create table users (email_verified boolean, has_been_prompted_for_profile_pic boolean, " +
+                    "id bigint generated by default as identity, email varchar(255) unique, " +
+                    "email_verification_code varchar(255), login_verification_code varchar(255), " +
+                    "password varchar(255), password_reset_code varchar(255), " +
+                    "profile_picture_content_type varchar(255), username varchar(255) not null unique, " +
+                    "profile_picture BYTEA, primary key (id))",
+            "create table verification_codes (expiration_time timestamp(6) not null, " +
+                    "id bigint generated by default as identity, code varchar(255) not null, " +
+                    "email varchar(255) not null, primary key (id))",
+            "alter table if exists habit add constraint FK9guei4wqpqx9uerqr5e4y6f3n " +
+                    "foreign key (user_id) references users",
+            "alter table if exists habit_completed_days add constraint FKgs0kky9ro3n2aou3km88iga10 " +
+                    "foreign key (habit_id) references habit",
+            "alter table if exists habit_reminder add constraint FK6ws4mfvb9o3vf2rfw9re4vlol " +
+                    "foreign key (habit_id) references habit",
+    };
+
+    private final ProfilePictureStore store = new ProfilePictureStore("target/test-profile-pictures");
+
+    @Test
+    void baselinedDatabaseMigratesItsData() throws Exception {
+        DataSource dataSource = h2("habitforge_baseline");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        for (String ddl : UPDATE_MODE_SCHEMA) jdbc.execute(ddl);
+
+        byte[] picture = { 1, 2, 3, 4, 5 };
+        jdbc.update("INSERT INTO users (id, username, email, password_reset_code, profile_picture) " +
+                "VALUES (1, 'legacy', 'legacy@example.com', '123456', ?)", (Object) picture);
+        LocalDate start = LocalDate.of(2024, 3, 10);
+        jdbc.update("INSERT INTO habit (id, user_id, title, target_days, start_date, completed, current_streak) " +
+                "VALUES (1, 1, 'Read', 30, ?, false, 2)", start);
+        // One day before the start date, which the bitmap has to be re-anchored for
+        List<LocalDate> days = List.of(start.minusDays(1), start, start.plusDays(1));
+        for (LocalDate day : days) {
+            jdbc.update("INSERT INTO habit_completed_days (habit_id, completed_days) VALUES (1, ?)", day);
+        }
+        jdbc.update("INSERT INTO verification_codes (email, code, expiration_time) " +
+                "VALUES ('legacy@example.com', '654321', CURRENT_TIMESTAMP)");
+
+        flyway(dataSource).migrate();
+
+        List<String> versions = jdbc.queryForList("SELECT \"version\" FROM \"flyway_schema_history\" " +
+                "WHERE \"success\" AND \"version\" IS NOT NULL ORDER BY \"installed_rank\"", String.class);
+        assertEquals(List.of("1", "2", "3", "4", "5", "6"), versions);
+
+        Map<String, Object> habit = jdbc.queryForMap("SELECT start_date, completion_bitmap FROM habit WHERE id = 1");
+        LocalDate anchor = ((Date) habit.get("start_date")).toLocalDate();
+        assertEquals(start.minusDays(1), anchor);
+        assertEquals(Set.copyOf(days), CompletionBitmap.decode(anchor, (byte[]) habit.get("completion_bitmap")).toDates());
+
+        String hash = jdbc.queryForObject("SELECT profile_picture_hash FROM users WHERE id = 1", String.class);
+        assertArrayEquals(picture, Files.readAllBytes(store.locate(hash).orElseThrow()));
+
+        assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM verification_codes", Integer.class));
+    }
+
+    @Test
+    void baselinedDatabaseEndsUpWithTheSchemaOfANewOne() {
+        DataSource baselined = h2("habitforge_baselined_schema");
+        JdbcTemplate baselinedJdbc = new JdbcTemplate(baselined);
+        for (String ddl : UPDATE_MODE_SCHEMA) baselinedJdbc.execute(ddl);
+        flyway(baselined).migrate();
+
+        DataSource fresh = h2("habitforge_fresh_schema");
+        flyway(fresh).migrate();
+
+        List<String> columns = columns(baselined);
+        assertEquals(columns(fresh), columns);
+        assertTrue(columns.stream().noneMatch(c -> c.startsWith("habit_completed_days.")), columns.toString());
+        assertTrue(columns.stream().noneMatch(c -> c.startsWith("users.profile_picture ")), columns.toString());
+    }
+
+    private Flyway flyway(DataSource dataSource) {
+        // Mirrors spring.flyway.* in application.properties
+        return Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration/common", "classpath:db/migration/h2")
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .javaMigrations(new CompletedDaysMigration(), new ProfilePictureMigration(store))
+                .load();
+    }
+
+    private static List<String> columns(DataSource dataSource) {
+        return new JdbcTemplate(dataSource).queryForList("SELECT LOWER(table_name || '.' || column_name || ' ' || " +
+                "data_type || ' ' || is_nullable) FROM information_schema.columns WHERE table_schema = 'public' " +
+                "AND table_name <> 'flyway_schema_history' ORDER BY 1", String.class);
+    }
+
+    private static DataSource h2(String name) {
+        return new DriverManagerDataSource(
+                "jdbc:h2:mem:" + name + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1", "sa", "");
+    }
+}
@@ -0,0 +1,132 @@
+package com.habitforge.habitforge_backend.config;
+
+import com.habitforge.habitforge_backend.dto.HabitList;
+import com.habitforge.habitforge_backend.model.User;
+import com.habitforge.habitforge_backend.repository.UserRepository;
+import com.habitforge.habitforge_backend.security.AuthenticatedUser;
+import com.habitforge.habitforge_backend.security.JwtUtil;
+import com.habitforge.habitforge_backend.service.HabitService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Two local databases: the usual H2 primary, and an empty H2 "replica" that only answers SELECT DATABASE()
+// unless a test gives it a table
+@SpringBootTest(properties =
+        "habitforge.datasource.replica-urls=jdbc:h2:mem:habitforge_replica;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE")
+@AutoConfigureMockMvc
+class ReadReplicaRoutingTest {
+
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private JdbcTemplate jdbc;
+    @Autowired private ReadYourWrites readYourWrites;
+    @Autowired private HabitService habitService;
+    @Autowired private UserRepository userRepo;
+    @Autowired private JwtUtil jwtUtil;
+    @Autowired private MockMvc mockMvc;
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private String database(boolean readOnly) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(readOnly);
+        return tx.execute(status -> jdbc.queryForObject("SELECT DATABASE()", String.class));
+    }
+
+    @Test
+    void readOnlyTransactionsGoToTheReplicaAndWritesToThePrimary() {
+        assertEquals("habitforge_replica", database(true));
+        assertEquals("habitforge", database(false));
+        assertEquals("habitforge", ReplicaRoutingDataSource.onPrimary(() -> database(true)));
+    }
+
+    @Test
+    void aUserReadsTheirOwnWritesFromThePrimary() {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new AuthenticatedUser(4242L, "sticky_user"), null, List.of()));
+        assertEquals("habitforge_replica", database(true));
+
+        readYourWrites.markWrite(4242L);
+        assertEquals("habitforge", database(true));
+    }
+
+    @Test
+    void writesAreStickyBeforeTheResponseIsWritten() throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new AuthenticatedUser(4343L, "early_sticky_user"), null, List.of()));
+        AtomicBoolean stickyWhileHandling = new AtomicBoolean();
+
+        readYourWrites.doFilter(new MockHttpServletRequest("POST", "/api/habits"), new MockHttpServletResponse(),
+                (request, response) -> stickyWhileHandling.set(readYourWrites.isSticky(4343L)));
+
+        assertTrue(stickyWhileHandling.get());
+        assertTrue(readYourWrites.isSticky(4343L));
+    }
+
+    @Test
+    void listEtagVersionIsReadFromTheSameDatabaseAsTheList() {
+        User user = userRepo.save(new User("lagging_replica_user", "not-a-real-hash"));
+        habitService.createHabit(user.getId(), "Journal", 30); // Version 1 on the primary
+
+        // The replica has not seen the habit yet
+        JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:habitforge_replica;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE", "sa", ""));
+        replica.execute("CREATE TABLE users (id BIGINT PRIMARY KEY, habit_list_version BIGINT NOT NULL)");
+        try {
+            replica.update("INSERT INTO users VALUES (?, 0)", user.getId());
+
+            HabitList list = habitService.getUserHabitList(user.getId(), version -> true);
+            assertEquals(0, list.version());
+        } finally {
+            replica.execute("DROP TABLE users");
+        }
+    }
+
+    @Test
+    void mutatingRequestsMarkTheUserAndReadOnlyServicesFollow() throws Exception {
+        User user = userRepo.save(new User("replica_user", "not-a-real-hash"));
+        habitService.createHabit(user.getId(), "Stretch", 21);
+        assertFalse(readYourWrites.isSticky(user.getId()));
+
+        // The replica has no schema, so a read that reaches it fails
+        RuntimeException onReplica = assertThrows(RuntimeException.class, () -> habitService.getUserHabits(user.getId()));
+        assertTrue(onReplica.getMessage().contains("not found"), onReplica.getMessage());
+
+        mockMvc.perform(put("/api/users/time-zone")
+                        .header("Authorization", "Bearer " + jwtUtil.generateToken(user.getId(), user.getUsername(), null))
+                        .servletPath("/api/users/time-zone") // JwtFilter matches on the servlet path
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"timeZone\":\"Europe/Berlin\"}"))
+                .andExpect(status().isOk());
+        assertTrue(readYourWrites.isSticky(user.getId()));
+
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                new AuthenticatedUser(user.getId(), user.getUsername()), null, List.of()));
+        assertEquals(1, habitService.getUserHabits(user.getId()).size());
+    }
+}
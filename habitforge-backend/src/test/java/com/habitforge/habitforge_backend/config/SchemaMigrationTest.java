@@ -0,0 +1,38 @@
+package com.habitforge.habitforge_backend.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The schema comes from db/migration; ddl-auto=validate in the test properties checks it against the entities
+@SpringBootTest
+class SchemaMigrationTest {
+
+    @Autowired private JdbcTemplate jdbc;
+
+    @Test
+    void migrationsRanInOrder() {
+        List<String> versions = jdbc.queryForList("SELECT \"version\" FROM \"flyway_schema_history\" " +
+                "WHERE \"success\" AND \"version\" IS NOT NULL ORDER BY \"installed_rank\"", String.class);
+        assertEquals(List.of("1", "2", "3", "4", "5", "6"), versions);
+    }
+
+    @Test
+    void queryIndexesExist() {
+        List<String> indexes = jdbc.queryForList(
+                "SELECT LOWER(index_name) FROM information_schema.indexes WHERE table_schema = 'public'", String.class);
+        assertTrue(indexes.containsAll(List.of(
+                "idx_habit_reminder_enabled_utc_minute",
+                "idx_habit_user_list_version",
+                "idx_reminder_dispatch_date",
+                "idx_check_in_key_created_at")), indexes.toString());
+        assertFalse(indexes.contains("idx_habit_reminder_utc_minute"));
+    }
+}
@@ -0,0 +1,71 @@
+package com.habitforge.habitforge_backend.controller;
+
+import com.habitforge.habitforge_backend.model.User;
+import com.habitforge.habitforge_backend.repository.UserRepository;
+import com.habitforge.habitforge_backend.security.JwtUtil;
+import com.habitforge.habitforge_backend.service.HabitService;
+import com.habitforge.habitforge_backend.service.HabitStreamHub;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class HabitStreamControllerTest {
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private UserRepository userRepo;
+    @Autowired private JwtUtil jwtUtil;
+    @Autowired private HabitService habitService;
+    @Autowired private HabitStreamHub hub;
+
+    private MockHttpServletResponse openStream(User user) throws Exception {
+        return mockMvc.perform(get("/api/habits/stream")
+                        .header("Authorization", "Bearer " + jwtUtil.generateToken(user.getId(), user.getUsername(), null))
+                        .servletPath("/api/habits/stream")) // JwtFilter matches on the servlet path
+                .andExpect(request().asyncStarted())
+                .andReturn().getResponse();
+    }
+
+    private static void awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!response.getContentAsString().contains(expected)) {
+            assertTrue(System.currentTimeMillis() < deadline, "stream never received " + expected);
+            Thread.sleep(20);
+        }
+    }
+
+    @Test
+    void committedChangesArePushedToEveryConnectionOfThatUserOnly() throws Exception {
+        User owner = userRepo.save(new User("stream_owner", "not-a-real-hash"));
+        User other = userRepo.save(new User("stream_other", "not-a-real-hash"));
+
+        MockHttpServletResponse firstTab = openStream(owner);
+        MockHttpServletResponse secondTab = openStream(owner);
+        MockHttpServletResponse otherUser = openStream(other);
+        awaitContent(firstTab, "event:version");
+        assertTrue(hub.connectionCount() >= 3);
+
+        habitService.createHabit(owner.getId(), "Meditate", 21);
+
+        awaitContent(firstTab, "\"title\":\"Meditate\"");
+        awaitContent(secondTab, "\"title\":\"Meditate\"");
+        assertTrue(firstTab.getContentAsString().contains("event:habits"));
+        assertFalse(otherUser.getContentAsString().contains("Meditate"));
+    }
+
+    @Test
+    void streamRequiresAToken() throws Exception {
+        mockMvc.perform(get("/api/habits/stream").servletPath("/api/habits/stream"))
+                .andExpect(status().isForbidden());
+    }
+}
@@ -0,0 +1,138 @@
+package com.habitforge.habitforge_backend.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.habitforge.habitforge_backend.model.User;
+import com.habitforge.habitforge_backend.repository.UserRepository;
+import com.habitforge.habitforge_backend.security.JwtUtil;
+import com.habitforge.habitforge_backend.service.HabitService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.LocalDateTime;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class HabitSyncControllerTest {
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private UserRepository userRepo;
+    @Autowired private JwtUtil jwtUtil;
+    @Autowired private ObjectMapper objectMapper;
+    @Autowired private HabitService habitService;
+
+    private String token;
+
+    @BeforeEach
+    void createUser() {
+        User user = userRepo.findByUsername("sync_user")
+                .orElseGet(() -> userRepo.save(new User("sync_user", "not-a-real-hash")));
+        token = jwtUtil.generateToken(user.getId(), user.getUsername(), null);
+    }
+
+    // JwtFilter matches on the servlet path
+    private ResultActions perform(MockHttpServletRequestBuilder request, String path) throws Exception {
+        return mockMvc.perform(request.header("Authorization", "Bearer " + token).servletPath(path));
+    }
+
+    private long createHabit(String title) throws Exception {
+        String body = perform(post("/api/habits/create").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"" + title + "\",\"targetDays\":10}"), "/api/habits/create")
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("id").asLong();
+    }
+
+    @Test
+    void unchangedListIsNotModifiedAndDeltaReturnsOnlyChanges() throws Exception {
+        createHabit("Read"); // Never touched again, so never in the delta
+        long changed = createHabit("Run");
+        long removed = createHabit("Nap");
+
+        String etag = perform(get("/api/habits"), "/api/habits")
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "no-cache, private"))
+                .andReturn().getResponse().getHeader("ETag");
+        perform(get("/api/habits").header("If-None-Match", etag), "/api/habits")
+                .andExpect(status().isNotModified());
+
+        JsonNode full = objectMapper.readTree(perform(get("/api/habits").param("since", "0"), "/api/habits")
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString());
+        long version = full.get("version").asLong();
+
+        // Mutations answer with the updated habit so the client can patch its list in place
+        perform(post("/api/habits/" + changed + "/check-in"), "/api/habits/" + changed + "/check-in")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(changed))
+                .andExpect(jsonPath("$.currentStreak").value(1));
+        perform(put("/api/habits/" + changed + "/edit").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"title\":\"Run far\",\"reminderTime\":\"07:30\"}"), "/api/habits/" + changed + "/edit")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.title").value("Run far"))
+                .andExpect(jsonPath("$.reminderTime").value("07:30"));
+        perform(delete("/api/habits/" + removed), "/api/habits/" + removed)
+                .andExpect(status().isOk());
+
+        String newEtag = perform(get("/api/habits").header("If-None-Match", etag), "/api/habits")
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotEquals(etag, newEtag);
+
+        perform(get("/api/habits").param("since", String.valueOf(version)), "/api/habits")
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.habits", hasSize(1)))
+                .andExpect(jsonPath("$.habits[0].id").value(changed))
+                .andExpect(jsonPath("$.deletedIds", hasSize(1)))
+                .andExpect(jsonPath("$.deletedIds[0]").value(removed))
+                .andExpect(jsonPath("$.version").value(version + 3));
+
+        // Nothing changed after the latest version
+        perform(get("/api/habits").param("since", String.valueOf(version + 3)), "/api/habits")
+                .andExpect(jsonPath("$.habits", hasSize(0)))
+                .andExpect(jsonPath("$.deletedIds", hasSize(0)));
+    }
+
+    @Test
+    void deltaFromBeforePurgedTombstonesIsTheFullList() throws Exception {
+        User user = userRepo.save(new User("tombstone_user", "not-a-real-hash"));
+        token = jwtUtil.generateToken(user.getId(), user.getUsername(), null);
+        long kept = createHabit("Keep");
+        long removed = createHabit("Drop");
+        perform(delete("/api/habits/" + removed), "/api/habits/" + removed)
+                .andExpect(status().isOk());
+        long version = objectMapper.readTree(perform(get("/api/habits").param("since", "0"), "/api/habits")
+                .andExpect(jsonPath("$.full").value(false))
+                .andExpect(jsonPath("$.deletedIds[0]").value(removed))
+                .andReturn().getResponse().getContentAsString()).get("version").asLong();
+
+        habitService.purgeTombstonesBefore(LocalDateTime.now().plusMinutes(1));
+
+        // The deletion is gone from the tombstones, so a client that has not seen it gets the whole list
+        perform(get("/api/habits").param("since", "0"), "/api/habits")
+                .andExpect(jsonPath("$.full").value(true))
+                .andExpect(jsonPath("$.habits", hasSize(1)))
+                .andExpect(jsonPath("$.habits[0].id").value(kept))
+                .andExpect(jsonPath("$.version").value(version));
+        perform(get("/api/habits").param("since", String.valueOf(version)), "/api/habits")
+                .andExpect(jsonPath("$.full").value(false))
+                .andExpect(jsonPath("$.habits", hasSize(0)));
+    }
+}
@@ -0,0 +1,138 @@
+package com.habitforge.habitforge_backend.controller;
+
+import com.habitforge.habitforge_backend.model.User;
+import com.habitforge.habitforge_backend.repository.UserRepository;
+import com.habitforge.habitforge_backend.security.JwtUtil;
+import com.habitforge.habitforge_backend.service.ProfilePictureStore;
+import com.habitforge.habitforge_backend.service.ProfilePictureThumbnails;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.endsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ProfilePictureControllerTest {
+
+    private static final byte[] IMAGE = "not really a png, but the bytes are what matter".getBytes(StandardCharsets.UTF_8);
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private UserRepository userRepo;
+    @Autowired private JwtUtil jwtUtil;
+    @Autowired private ProfilePictureStore store;
+
+    private ResultActions upload(User user, String contentType, byte[] bytes, ResultMatcher expected) throws Exception {
+        String path = "/api/users/" + user.getUsername() + "/upload-profile-picture";
+        return mockMvc.perform(multipart(path)
+                        .file(new MockMultipartFile("image", "me.png", contentType, bytes))
+                        .header("Authorization", "Bearer " + jwtUtil.generateToken(user.getId(), user.getUsername(), null))
+                        .servletPath(path)) // JwtFilter matches on the servlet path
+                .andExpect(expected);
+    }
+
+    private static byte[] png(int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                image.setRGB(x, y, (x * 255 / width) << 16 | (y * 255 / height) << 8);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    @Test
+    void uploadedPictureIsServedWithStrongEtagAndRevalidates() throws Exception {
+        User user = userRepo.save(new User("picture_user", "not-a-real-hash"));
+        upload(user, "image/png", IMAGE, status().isOk())
+                .andExpect(jsonPath("$.profilePicUrl", containsString("/profile-picture?v=")))
+                .andExpect(jsonPath("$.profilePicThumbnailUrl", containsString("&size=128")));
+
+        String hash = userRepo.findProfilePictureByUsername("picture_user").orElseThrow().getHash();
+        assertNotNull(hash);
+        assertEquals(64, hash.length());
+        String etag = "\"" + hash + "\"";
+
+        mockMvc.perform(get("/api/users/picture_user/profile-picture"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", etag))
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andExpect(header().string("Content-Type", "image/png"))
+                .andExpect(content().bytes(IMAGE));
+
+        mockMvc.perform(get("/api/users/picture_user/profile-picture").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+
+        mockMvc.perform(get("/api/users/picture_user/profile-picture").param("v", hash.substring(0, 16)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", endsWith("immutable")));
+    }
+
+    @Test
+    void sizeParameterServesSquareThumbnailOnceBuilt() throws Exception {
+        User user = userRepo.save(new User("thumbnail_user", "not-a-real-hash"));
+        upload(user, "image/png", png(600, 400), status().isOk());
+        String hash = userRepo.findProfilePictureByUsername("thumbnail_user").orElseThrow().getHash();
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (ProfilePictureThumbnails.SIZES.stream().anyMatch(size -> store.locateVariant(hash, size).isEmpty())) {
+            assertTrue(System.currentTimeMillis() < deadline, "thumbnails were not built");
+            Thread.sleep(50);
+        }
+
+        byte[] thumbnail = mockMvc.perform(get("/api/users/thumbnail_user/profile-picture").param("size", "40"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"" + hash + "-48\""))
+                .andExpect(header().string("Content-Type", "image/jpeg"))
+                .andReturn().getResponse().getContentAsByteArray();
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(thumbnail));
+        assertEquals(48, decoded.getWidth());
+        assertEquals(48, decoded.getHeight());
+
+        // Larger than every variant: the original is the only thing big enough
+        mockMvc.perform(get("/api/users/thumbnail_user/profile-picture").param("size", "2048"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"" + hash + "\""));
+    }
+
+    @Test
+    void uploadsOverTheCapAreRejected() throws Exception {
+        User user = userRepo.save(new User("huge_picture_user", "not-a-real-hash"));
+        upload(user, "image/png", new byte[5 * 1024 * 1024 + 1], status().isPayloadTooLarge());
+        upload(user, "text/plain", IMAGE, status().isUnsupportedMediaType());
+        assertNull(userRepo.findProfilePictureByUsername("huge_picture_user").orElseThrow().getHash());
+    }
+
+    @Test
+    void missingPictureIsNotFound() throws Exception {
+        userRepo.save(new User("no_picture_user", "not-a-real-hash"));
+
+        mockMvc.perform(get("/api/users/no_picture_user/profile-picture"))
+                .andExpect(status().isNotFound());
+    }
+}
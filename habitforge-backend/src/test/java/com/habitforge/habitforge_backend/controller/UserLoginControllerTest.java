@@ -0,0 +1,56 @@
+package com.habitforge.habitforge_backend.controller;
+
+import com.habitforge.habitforge_backend.SqlStatementCounter;
+import com.habitforge.habitforge_backend.model.User;
+import com.habitforge.habitforge_backend.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class UserLoginControllerTest {
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private UserRepository userRepo;
+
+    @Test
+    void loginRehashesPasswordStoredWithAnOldCost() throws Exception {
+        userRepo.save(new User("rehash_user", new BCryptPasswordEncoder(4).encode("old-cost-password")));
+
+        mockMvc.perform(post("/api/users/login").servletPath("/api/users/login") // JwtFilter matches on the servlet path
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"rehash_user\",\"password\":\"old-cost-password\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.token").exists());
+
+        String stored = userRepo.findByUsername("rehash_user").orElseThrow().getPassword();
+        assertTrue(stored.startsWith("$2a$10$"), "expected a cost-10 hash, got " + stored);
+        assertTrue(new BCryptPasswordEncoder().matches("old-cost-password", stored));
+    }
+
+    @Test
+    void loginReadsTheUserOnce() throws Exception {
+        userRepo.save(new User("single_read_user", new BCryptPasswordEncoder(10).encode("current-cost-password")));
+
+        SqlStatementCounter.reset();
+        mockMvc.perform(post("/api/users/login").servletPath("/api/users/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"username\":\"single_read_user\",\"password\":\"current-cost-password\"}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.username").value("single_read_user"))
+                .andExpect(jsonPath("$.token").exists());
+
+        assertEquals(1, SqlStatementCounter.count());
+    }
+}
@@ -0,0 +1,101 @@
+package com.habitforge.habitforge_backend.controller;
+
+import com.habitforge.habitforge_backend.dto.HabitDTO;
+import com.habitforge.habitforge_backend.model.Habit;
+import com.habitforge.habitforge_backend.model.User;
+import com.habitforge.habitforge_backend.repository.HabitRepository;
+import com.habitforge.habitforge_backend.repository.HabitReminderRepository;
+import com.habitforge.habitforge_backend.repository.UserRepository;
+import com.habitforge.habitforge_backend.security.JwtUtil;
+import com.habitforge.habitforge_backend.service.HabitService;
+import com.habitforge.habitforge_backend.service.ReminderTimingWheel;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class UserTimeZoneControllerTest {
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private UserRepository userRepo;
+    @Autowired private HabitReminderRepository reminderRepo;
+    @Autowired private HabitRepository habitRepo;
+    @Autowired private HabitService habitService;
+    @Autowired private ReminderTimingWheel timingWheel;
+    @Autowired private JwtUtil jwtUtil;
+
+    private ResultActions putTimeZone(User user, String zone) throws Exception {
+        return mockMvc.perform(put("/api/users/time-zone")
+                .header("Authorization", "Bearer " + jwtUtil.generateToken(user.getId(), user.getUsername(), null))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"timeZone\":\"" + zone + "\"}")
+                .servletPath("/api/users/time-zone")); // JwtFilter matches on the servlet path
+    }
+
+    @Test
+    void changingZoneMovesRemindersToTheirNewUtcMinute() throws Exception {
+        User user = userRepo.save(new User("tz_user", "not-a-real-hash"));
+        HabitDTO habit = habitService.createHabit(user.getId(), "Stretch", 30);
+        habitService.setHabitReminder(user.getId(), habit.getId(), "07:00");
+
+        putTimeZone(user, "Asia/Kolkata").andExpect(status().isOk());
+
+        assertEquals("Asia/Kolkata", userRepo.findById(user.getId()).orElseThrow().getTimeZone());
+        var reminder = reminderRepo.findByHabitId(habit.getId()).orElseThrow();
+        int expected = ReminderTimingWheel.utcSlotOf(LocalTime.of(7, 0), ZoneId.of("Asia/Kolkata"), Instant.now());
+        assertEquals(expected, reminder.getUtcMinute()); // 01:30 UTC, no DST in India
+        assertTrue(timingWheel.isScheduledAt(reminder.getId(), expected));
+    }
+
+    @Test
+    void habitCreatedInAZoneAheadCanBeCheckedInAfterMovingBehind() throws Exception {
+        User user = userRepo.save(new User("tz_mover", "not-a-real-hash"));
+        putTimeZone(user, "Pacific/Kiritimati").andExpect(status().isOk()); // UTC+14
+        HabitDTO habit = habitService.createHabit(user.getId(), "Swim", 30);
+
+        putTimeZone(user, "Pacific/Pago_Pago").andExpect(status().isOk()); // UTC-11, at least a day behind
+        LocalDate today = LocalDate.now(ZoneId.of("Pacific/Pago_Pago"));
+        assertEquals(today, habitRepo.findById(habit.getId()).orElseThrow().getStartDate());
+
+        mockMvc.perform(post("/api/habits/" + habit.getId() + "/check-in")
+                        .header("Authorization", "Bearer " + jwtUtil.generateToken(user.getId(), user.getUsername(), null))
+                        .servletPath("/api/habits/" + habit.getId() + "/check-in"))
+                .andExpect(status().isOk());
+        assertTrue(habitRepo.findById(habit.getId()).orElseThrow().isCompletedOn(today));
+    }
+
+    @Test
+    void habitStartingAfterTodayIsRejectedCleanly() {
+        User user = userRepo.save(new User("tz_legacy_start", "not-a-real-hash"));
+        HabitDTO created = habitService.createHabit(user.getId(), "Legacy", 30);
+        // A start date stamped in the server's zone, ahead of the user's today
+        Habit habit = habitRepo.findById(created.getId()).orElseThrow();
+        habit.setStartDate(LocalDate.now(ZoneId.of("UTC")).plusDays(2));
+        habitRepo.save(habit);
+
+        assertTrue(habitService.checkInHabit(user.getId(), habit.getId()).isEmpty());
+        assertEquals(0, habitRepo.findById(habit.getId()).orElseThrow().getCurrentStreak());
+    }
+
+    @Test
+    void unknownZoneIsRejected() throws Exception {
+        User user = userRepo.save(new User("tz_bad_zone", "not-a-real-hash"));
+        putTimeZone(user, "Mars/Olympus_Mons").andExpect(status().isBadRequest());
+    }
+}
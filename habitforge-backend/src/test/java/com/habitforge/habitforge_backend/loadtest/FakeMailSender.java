@@ -0,0 +1,52 @@
+package com.habitforge.habitforge_backend.loadtest;
+
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.Provider;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.URLName;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JavaMailSender whose transport accepts every message and only counts it, so the outbox, the SMTP pool and
+ * the reminder scheduler run their real code paths without a mail server.
+ */
+public class FakeMailSender extends JavaMailSenderImpl {
+
+    private static final String PROTOCOL = "fake";
+    private static final AtomicLong SENT = new AtomicLong();
+
+    public FakeMailSender() {
+        Session session = Session.getInstance(new Properties());
+        session.addProvider(new Provider(Provider.Type.TRANSPORT, PROTOCOL, CountingTransport.class.getName(),
+                "HabitForge", "1"));
+        setSession(session);
+        setProtocol(PROTOCOL);
+        setHost("localhost");
+    }
+
+    public long sent() {
+        return SENT.get();
+    }
+
+    public static class CountingTransport extends Transport {
+
+        public CountingTransport(Session session, URLName urlName) {
+            super(session, urlName);
+        }
+
+        @Override
+        protected boolean protocolConnect(String host, int port, String user, String password) {
+            return true;
+        }
+
+        @Override
+        public void sendMessage(Message message, Address[] addresses) {
+            SENT.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.habitforge.habitforge_backend.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.habitforge.habitforge_backend.service.HabitReminderService;
+import com.habitforge.habitforge_backend.service.ReminderTimingWheel;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Drives UserController and HabitController over real HTTP against H2 in PostgreSQL mode, with mail going to
+ * a counting fake. Seeds users x habits x years of history, then runs login, signup, dashboard load, a
+ * check-in burst (every user at once, as at 08:00) and a reminder tick that is due for every user. Prints
+ * p50/p99 latency and throughput per endpoint and writes the table to target/load-test-report.txt.
+ *
+ * Skipped by the default build; run with
+ *   ./mvnw test -Pload-test -Dloadtest.users=2000 -Dloadtest.habits=8 -Dloadtest.years=3
+ */
+@Tag("load")
+// Every simulated client shares 127.0.0.1, so the per-IP limits would measure the limiter instead
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+                properties = "habitforge.rate-limit.enabled=false")
+class HabitForgeLoadTest {
+
+    @TestConfiguration
+    static class FakeMail {
+        // Replaces the auto-configured sender, which backs off when a JavaMailSender bean exists
+        @Bean
+        FakeMailSender javaMailSender() {
+            return new FakeMailSender();
+        }
+    }
+
+    @LocalServerPort private int port;
+    @Autowired private JdbcTemplate jdbc;
+    @Autowired private PasswordEncoder passwordEncoder;
+    @Autowired private ObjectMapper objectMapper;
+    @Autowired private HabitReminderService reminderService;
+    @Autowired private FakeMailSender mailSender;
+    @Autowired private MeterRegistry meterRegistry;
+
+    @Value("${loadtest.users:200}") private int users;
+    @Value("${loadtest.habits:5}") private int habitsPerUser;
+    @Value("${loadtest.years:2}") private int years;
+    @Value("${loadtest.concurrency:32}") private int concurrency;
+    @Value("${loadtest.signups:50}") private int signups;
+
+    private final LatencyReport report = new LatencyReport();
+    private final HttpClient http = HttpClient.newBuilder()
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private record Call(String endpoint, HttpRequest request, Consumer<HttpResponse<String>> onResponse) {
+        Call(String endpoint, HttpRequest request) {
+            this(endpoint, request, null);
+        }
+    }
+
+    @Test
+    void runScenarios() throws Exception {
+        LoadSeeder seeder = new LoadSeeder(jdbc);
+        long seedStart = System.nanoTime();
+        seeder.seedUsers(users, passwordEncoder.encode(LoadSeeder.PASSWORD));
+        seeder.seedHabits(habitsPerUser, years, LocalDate.now(ZoneOffset.UTC));
+        report.note("seed", String.format("%d users x %d habits x %d years in %d ms",
+                users, habitsPerUser, years, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - seedStart)));
+
+        Map<String, String> tokens = login();
+        signup();
+        dashboard(tokens);
+        checkInBurst(tokens, seeder.firstHabitIds());
+        reminderTick(seeder);
+
+        String table = report.render();
+        System.out.println(table);
+        Files.createDirectories(Path.of("target"));
+        Files.writeString(Path.of("target/load-test-report.txt"), table);
+
+        assertEquals(users, tokens.size(), "every seeded user should be able to log in");
+        assertEquals(0, report.serverErrors(), "no request should fail with a 5xx or a connection error");
+    }
+
+    private Map<String, String> login() throws Exception {
+        Map<String, String> tokens = new ConcurrentHashMap<>();
+        List<Call> calls = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            String username = LoadSeeder.username(i);
+            calls.add(new Call("POST /api/users/login",
+                    post("/api/users/login", Map.of("username", username, "password", LoadSeeder.PASSWORD)),
+                    response -> {
+                        if (response.statusCode() == 200) {
+                            tokens.put(username, readField(response.body(), "token"));
+                        }
+                    }));
+        }
+        run("login", concurrency, calls);
+        return tokens;
+    }
+
+    private void signup() throws Exception {
+        List<Call> calls = new ArrayList<>();
+        for (int i = 0; i < signups; i++) {
+            String username = "signup_" + i;
+            calls.add(new Call("POST /api/users/signup", post("/api/users/signup",
+                    Map.of("username", username, "password", "signup-password", "email", username + "@habitforge.test"))));
+        }
+        run("signup", concurrency, calls);
+    }
+
+    // First visit loads everything; the revisit revalidates the list with its ETag
+    private void dashboard(Map<String, String> tokens) throws Exception {
+        Map<String, String> etags = new ConcurrentHashMap<>();
+        List<Call> calls = new ArrayList<>();
+        tokens.forEach((username, token) -> {
+            calls.add(new Call("GET /api/users/current", get("/api/users/current", token)));
+            calls.add(new Call("GET /api/habits", get("/api/habits", token),
+                    response -> response.headers().firstValue("ETag").ifPresent(etag -> etags.put(username, etag))));
+            calls.add(new Call("GET /api/habits/sorted", get("/api/habits/sorted?sortBy=streak", token)));
+        });
+        run("dashboard", concurrency, calls);
+
+        List<Call> revisits = new ArrayList<>();
+        etags.forEach((username, etag) -> revisits.add(new Call("GET /api/habits (If-None-Match)",
+                HttpRequest.newBuilder(uri("/api/habits"))
+                        .header("Authorization", "Bearer " + tokens.get(username))
+                        .header("If-None-Match", etag)
+                        .GET().build())));
+        run("revisit", concurrency, revisits);
+    }
+
+    // Everyone checks in at the same moment
+    private void checkInBurst(Map<String, String> tokens, Map<String, Long> habitIds) throws Exception {
+        List<Call> calls = new ArrayList<>();
+        tokens.forEach((username, token) -> {
+            Long habitId = habitIds.get(username);
+            calls.add(new Call("POST /api/habits/{id}/check-in",
+                    HttpRequest.newBuilder(uri("/api/habits/" + habitId + "/check-in"))
+                            .header("Authorization", "Bearer " + token)
+                            .POST(HttpRequest.BodyPublishers.noBody()).build()));
+            calls.add(new Call("GET /api/habits/{id}/stats", get("/api/habits/" + habitId + "/stats", token)));
+        });
+        run("check-in burst", calls.size(), calls);
+    }
+
+    // Every user has a reminder at the next UTC minute; measures the scheduler tick and time to the last email
+    private void reminderTick(LoadSeeder seeder) throws Exception {
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        LocalDateTime due = now.truncatedTo(ChronoUnit.MINUTES).plusMinutes(now.getSecond() >= 50 ? 2 : 1);
+        int reminders = seeder.seedReminders(due.toLocalTime(), ReminderTimingWheel.slotOf(due.toLocalTime()));
+        reminderService.rebucket();
+
+        long sentBefore = mailSender.sent();
+        Instant dueAt = due.toInstant(ZoneOffset.UTC);
+        Thread.sleep(Math.max(0, Duration.between(Instant.now(), dueAt).toMillis()));
+
+        long deadline = System.currentTimeMillis() + 120_000;
+        while (mailSender.sent() - sentBefore < reminders && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        long delivered = mailSender.sent() - sentBefore;
+        double slowestTick = meterRegistry.get("habitforge.reminders.tick").timer().max(TimeUnit.MILLISECONDS);
+        report.note("reminder tick", String.format("%d reminders due at %s UTC, slowest tick %.1f ms, " +
+                        "%d emails delivered %d ms after the minute", reminders, due.toLocalTime(), slowestTick,
+                delivered, Duration.between(dueAt, Instant.now()).toMillis()));
+    }
+
+    private void run(String scenario, int parallelism, List<Call> calls) throws InterruptedException {
+        Semaphore permits = new Semaphore(Math.max(1, parallelism));
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (Call call : calls) {
+                permits.acquire();
+                executor.execute(() -> {
+                    long sent = System.nanoTime();
+                    try {
+                        HttpResponse<String> response = http.send(call.request(), HttpResponse.BodyHandlers.ofString());
+                        report.record(scenario, call.endpoint(), System.nanoTime() - sent, response.statusCode());
+                        if (call.onResponse() != null) call.onResponse().accept(response);
+                    } catch (IOException e) {
+                        report.record(scenario, call.endpoint(), System.nanoTime() - sent, -1);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+        }
+        report.scenarioFinished(scenario, System.nanoTime() - start);
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + path);
+    }
+
+    private HttpRequest get(String path, String token) {
+        return HttpRequest.newBuilder(uri(path)).header("Authorization", "Bearer " + token).GET().build();
+    }
+
+    private HttpRequest post(String path, Map<String, String> body) {
+        try {
+            return HttpRequest.newBuilder(uri(path))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                    .build();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String readField(String json, String field) {
+        try {
+            return objectMapper.readTree(json).path(field).asText(null);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
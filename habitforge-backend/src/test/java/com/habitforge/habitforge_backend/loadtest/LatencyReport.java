@@ -0,0 +1,76 @@
+package com.habitforge.habitforge_backend.loadtest;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/** Latencies and status codes per scenario and endpoint, rendered as a p50/p99/throughput table. */
+class LatencyReport {
+
+    private final Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+    private final Map<String, Long> scenarioNanos = new LinkedHashMap<>();
+    private final Map<String, String> notes = new LinkedHashMap<>();
+
+    synchronized void record(String scenario, String endpoint, long nanos, int status) {
+        endpoints.computeIfAbsent(scenario + "\u0000" + endpoint, k -> new Endpoint(scenario, endpoint))
+                .add(nanos, status);
+    }
+
+    synchronized void scenarioFinished(String scenario, long wallNanos) {
+        scenarioNanos.put(scenario, wallNanos);
+    }
+
+    synchronized void note(String scenario, String text) {
+        notes.merge(scenario, text, (a, b) -> a + "; " + b);
+    }
+
+    // 5xx responses plus requests that got no response at all
+    synchronized long serverErrors() {
+        return endpoints.values().stream()
+                .flatMap(e -> e.statuses.entrySet().stream())
+                .filter(s -> s.getKey() < 0 || s.getKey() >= 500)
+                .mapToLong(Map.Entry::getValue)
+                .sum();
+    }
+
+    synchronized String render() {
+        StringBuilder out = new StringBuilder(String.format("%-16s %-34s %7s %9s %9s %9s %9s  %s%n",
+                "scenario", "endpoint", "count", "p50 ms", "p99 ms", "max ms", "req/s", "status"));
+        for (Endpoint e : endpoints.values()) {
+            long[] sorted = Arrays.copyOf(e.nanos, e.count);
+            Arrays.sort(sorted);
+            double wallSeconds = scenarioNanos.getOrDefault(e.scenario, 0L) / 1e9;
+            out.append(String.format("%-16s %-34s %7d %9.1f %9.1f %9.1f %9.1f  %s%n",
+                    e.scenario, e.endpoint, e.count,
+                    percentile(sorted, 0.50), percentile(sorted, 0.99), sorted[sorted.length - 1] / 1e6,
+                    wallSeconds > 0 ? e.count / wallSeconds : 0, e.statuses));
+        }
+        notes.forEach((scenario, text) -> out.append(String.format("%-16s %s%n", scenario, text)));
+        return out.toString();
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+    }
+
+    private static final class Endpoint {
+        final String scenario;
+        final String endpoint;
+        final Map<Integer, Integer> statuses = new TreeMap<>();
+        long[] nanos = new long[64];
+        int count;
+
+        Endpoint(String scenario, String endpoint) {
+            this.scenario = scenario;
+            this.endpoint = endpoint;
+        }
+
+        void add(long latency, int status) {
+            if (count == nanos.length) nanos = Arrays.copyOf(nanos, count * 2);
+            nanos[count++] = latency;
+            statuses.merge(status, 1, Integer::sum);
+        }
+    }
+}
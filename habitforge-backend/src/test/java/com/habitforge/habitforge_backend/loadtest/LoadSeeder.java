@@ -0,0 +1,100 @@
+package com.habitforge.habitforge_backend.loadtest;
+
+import com.habitforge.habitforge_backend.model.CompletionBitmap;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Bulk-inserts load-test users and habits with JDBC batches; going through the repositories would cost one
+ * round trip per row because of IDENTITY keys. Every user is on UTC, has a verified email, was last checked in
+ * yesterday and has one enabled reminder at the same minute, so the check-in burst and the reminder tick hit
+ * every user at once.
+ */
+class LoadSeeder {
+
+    static final String PASSWORD = "load-test-password";
+    static final String PREFIX = "load_";
+
+    private static final int BATCH = 500;
+
+    private final JdbcTemplate jdbc;
+    private final Random random = new Random(42L);
+
+    LoadSeeder(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    static String username(int i) {
+        return PREFIX + i;
+    }
+
+    // One BCrypt hash shared by all users; hashing per user would dominate seeding
+    void seedUsers(int users, String passwordHash) {
+        List<Object[]> rows = new ArrayList<>(BATCH);
+        for (int i = 0; i < users; i++) {
+            rows.add(new Object[] { username(i), passwordHash, username(i) + "@habitforge.test" });
+            if (rows.size() == BATCH || i == users - 1) {
+                jdbc.batchUpdate("INSERT INTO users (username, password, email, email_verified, time_zone, " +
+                        "has_been_prompted_for_profile_pic) VALUES (?, ?, ?, TRUE, 'UTC', TRUE)", rows);
+                rows.clear();
+            }
+        }
+    }
+
+    // habitsPerUser habits per user, each started `years` ago with roughly 70% of days completed
+    void seedHabits(int habitsPerUser, int years, LocalDate today) {
+        List<Long> userIds = jdbc.queryForList(
+                "SELECT id FROM users WHERE username LIKE ? ORDER BY id", Long.class, PREFIX + "%");
+        LocalDate start = today.minusYears(years);
+        LocalDate yesterday = today.minusDays(1);
+
+        List<Object[]> rows = new ArrayList<>(BATCH);
+        for (Long userId : userIds) {
+            for (int h = 0; h < habitsPerUser; h++) {
+                List<LocalDate> days = new ArrayList<>();
+                for (LocalDate day = start; day.isBefore(yesterday); day = day.plusDays(1)) {
+                    if (random.nextInt(10) < 7) days.add(day);
+                }
+                days.add(yesterday);
+                byte[] bitmap = CompletionBitmap.of(start, days).encode();
+                int streak = CompletionBitmap.decode(start, bitmap).runEndingAt(yesterday);
+
+                rows.add(new Object[] { "Habit " + h, years * 365 + 30, Date.valueOf(start), streak, streak,
+                        Date.valueOf(yesterday), bitmap, userId });
+                if (rows.size() == BATCH) flushHabits(rows);
+            }
+        }
+        if (!rows.isEmpty()) flushHabits(rows);
+    }
+
+    private void flushHabits(List<Object[]> rows) {
+        jdbc.batchUpdate("INSERT INTO habit (title, target_days, start_date, current_streak, longest_streak, " +
+                "last_check_in_date, completed, completion_bitmap, user_id, version, list_version) " +
+                "VALUES (?, ?, ?, ?, ?, ?, FALSE, ?, ?, 0, 0)", rows);
+        rows.clear();
+    }
+
+    // A reminder on each user's first habit, all due at the same UTC minute
+    int seedReminders(LocalTime utcTime, int utcMinute) {
+        return jdbc.update("INSERT INTO habit_reminder (habit_id, reminder_time, utc_minute, enabled) " +
+                "SELECT MIN(h.id), ?, ?, TRUE FROM habit h JOIN users u ON u.id = h.user_id " +
+                "WHERE u.username LIKE ? GROUP BY h.user_id", utcTime, utcMinute, PREFIX + "%");
+    }
+
+    // username -> id of that user's first habit
+    Map<String, Long> firstHabitIds() {
+        Map<String, Long> ids = new HashMap<>();
+        jdbc.query("SELECT u.username, MIN(h.id) FROM habit h JOIN users u ON u.id = h.user_id " +
+                "WHERE u.username LIKE ? GROUP BY u.username",
+                rs -> { ids.put(rs.getString(1), rs.getLong(2)); }, PREFIX + "%");
+        return ids;
+    }
+}
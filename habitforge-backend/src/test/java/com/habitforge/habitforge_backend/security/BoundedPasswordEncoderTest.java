@@ -0,0 +1,68 @@
+package com.habitforge.habitforge_backend.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedPasswordEncoderTest {
+
+    @Test
+    void hashesAndVerifiesOnThePool() {
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(4, 2, 4, new SimpleMeterRegistry());
+        try {
+            String hash = encoder.encode("secret");
+            assertTrue(encoder.matches("secret", hash));
+            assertFalse(encoder.matches("wrong", hash));
+        } finally {
+            encoder.destroy();
+        }
+    }
+
+    @Test
+    void saturatedPoolFailsFastInsteadOfQueueing() throws Exception {
+        // One thread, one queue slot, ~50 ms per hash: of eight simultaneous logins some must be shed
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(10, 1, 1, new SimpleMeterRegistry());
+        String hash = new BCryptPasswordEncoder(10).encode("secret");
+        int rejected = 0;
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Boolean>> logins = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                logins.add(clients.submit(() -> encoder.matches("secret", hash)));
+            }
+            for (Future<Boolean> login : logins) {
+                try {
+                    assertTrue(login.get());
+                } catch (ExecutionException e) {
+                    assertInstanceOf(PasswordHashingBusyException.class, e.getCause());
+                    rejected++;
+                }
+            }
+        } finally {
+            encoder.destroy();
+        }
+        assertTrue(rejected > 0, "expected some logins to be rejected");
+    }
+
+    @Test
+    void hashesWithAnotherCostNeedUpgrading() {
+        BoundedPasswordEncoder encoder = new BoundedPasswordEncoder(5, 1, 1, new SimpleMeterRegistry());
+        try {
+            assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode("secret")));
+            assertTrue(encoder.upgradeEncoding(new BCryptPasswordEncoder(6).encode("secret")));
+            assertFalse(encoder.upgradeEncoding(new BCryptPasswordEncoder(5).encode("secret")));
+        } finally {
+            encoder.destroy();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.habitforge.habitforge_backend.security;
+
+import com.habitforge.habitforge_backend.repository.UserRepository;
+import com.habitforge.habitforge_backend.service.UserIdCache;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.Key;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+// Timing lives in habitforge-benchmarks (JwtFilterBenchmark); these are the behaviours it relies on
+class JwtFilterTest {
+
+    private static final String SECRET = "aGFiaXRmb3JnZS10ZXN0LXNlY3JldC1rZXktMzItYnl0ZXMtbG9uZyE=";
+
+    private SimpleMeterRegistry meterRegistry;
+    private JwtUtil jwtUtil;
+    private UserRepository userRepository;
+    private JwtFilter jwtFilter;
+    private Key key;
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        jwtUtil = new JwtUtil(meterRegistry);
+        ReflectionTestUtils.setField(jwtUtil, "secretKeyString", SECRET);
+        jwtUtil.init();
+        userRepository = mock(UserRepository.class);
+        jwtFilter = new JwtFilter(jwtUtil, new UserIdCache(userRepository, 100));
+        key = Keys.hmacShaKeyFor(Base64.getDecoder().decode(SECRET));
+        token = jwtUtil.generateToken(42L, "bench_user", null);
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void filterAuthenticatesOnceAndRejectsTamperedTokens() throws Exception {
+        assertEquals("bench_user", authenticate(token));
+        assertNull(authenticate(token.substring(0, token.length() - 2) + "xx"));
+        assertNull(jwtUtil.verify(null));
+        assertEquals(42L, authenticatedUserId(token));
+        verifyNoInteractions(userRepository);
+    }
+
+    @Test
+    void tokensWithoutUserIdResolveThroughTheCache() throws Exception {
+        when(userRepository.findIdByUsername("legacy_user")).thenReturn(Optional.of(7L));
+        String legacyToken = jwtUtil.generateToken("legacy_user");
+
+        assertEquals(7L, authenticatedUserId(legacyToken));
+        assertEquals(7L, authenticatedUserId(legacyToken));
+        verify(userRepository, times(1)).findIdByUsername("legacy_user");
+
+        assertNull(authenticate(jwtUtil.generateToken("deleted_user")));
+    }
+
+    @Test
+    void repeatVerificationsAreServedFromTheCache() {
+        JwtUtil.VerifiedToken first = jwtUtil.verify(token);
+        JwtUtil.VerifiedToken second = jwtUtil.verify(token);
+
+        assertNotNull(first);
+        assertSame(first, second);
+        assertEquals(1.0, meterRegistry.counter("habitforge.jwt.verify.cache.hits").count());
+    }
+
+    @Test
+    void expiredTokensAreRejectedIncludingCachedOnes() throws Exception {
+        assertNull(jwtUtil.verify(tokenExpiringAt(new Date(System.currentTimeMillis() - 1000))));
+
+        // Cached while still valid, then rejected once the expiry passes; JWT expiry has second precision
+        String shortLived = tokenExpiringAt(new Date(System.currentTimeMillis() + 1000));
+        assertNotNull(jwtUtil.verify(shortLived));
+        Thread.sleep(1100);
+        assertNull(jwtUtil.verify(shortLived));
+        assertNull(authenticate(shortLived));
+    }
+
+    @Test
+    void invalidTokensAreRejected() throws Exception {
+        String foreign = Jwts.builder().setSubject("bench_user")
+                .signWith(Keys.hmacShaKeyFor(new byte[32]), SignatureAlgorithm.HS256).compact();
+        assertNull(jwtUtil.verify(foreign));
+        assertNull(jwtUtil.verify("not.a.jwt"));
+        assertNull(jwtUtil.verify(""));
+        assertNull(authenticate(foreign));
+        verifyNoInteractions(userRepository);
+    }
+
+    private String authenticate(String jwt) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/habits");
+        request.setServletPath("/api/habits");
+        request.addHeader("Authorization", "Bearer " + jwt);
+        jwtFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        var auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth == null ? null : auth.getName();
+    }
+
+    private Long authenticatedUserId(String jwt) throws Exception {
+        authenticate(jwt);
+        var auth = SecurityContextHolder.getContext().getAuthentication();
+        return ((AuthenticatedUser) auth.getPrincipal()).userId();
+    }
+
+    private String tokenExpiringAt(Date expiration) {
+        return Jwts.builder().setSubject("bench_user").claim("uid", 42L).setExpiration(expiration)
+                .signWith(key, SignatureAlgorithm.HS256).compact();
+    }
+}
@@ -0,0 +1,124 @@
+package com.habitforge.habitforge_backend.security;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "habitforge.rate-limit.forgot-password.per-ip=100",
+        "habitforge.rate-limit.forgot-password.per-account=2",
+        "habitforge.rate-limit.signup.per-ip=2"
+})
+@AutoConfigureMockMvc
+class RateLimitFilterTest {
+
+    @Autowired private MockMvc mockMvc;
+    @Autowired private RateLimitFilter filter;
+
+    private static MockHttpServletRequestBuilder postJson(String path, String remoteAddr, String body) {
+        return post(path).servletPath(path) // JwtFilter matches on the servlet path
+                .with(request -> {
+                    request.setRemoteAddr(remoteAddr);
+                    return request;
+                })
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body);
+    }
+
+    @Test
+    void perAccountLimitAppliesAcrossAddressesAndLeavesTheBodyForTheController() throws Exception {
+        String body = "{\"email\":\"Nobody@example.com\"}";
+        mockMvc.perform(postJson("/api/users/forgot-password", "198.51.100.1", body))
+                .andExpect(status().isNotFound()); // Reached the controller, which parsed the body
+        mockMvc.perform(postJson("/api/users/forgot-password", "198.51.100.2", body.toLowerCase()))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(postJson("/api/users/forgot-password", "198.51.100.3", body))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string("Retry-After", "30"))
+                .andExpect(jsonPath("$.error").exists());
+
+        mockMvc.perform(postJson("/api/users/forgot-password", "198.51.100.3", "{\"email\":\"someone-else@example.com\"}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void bodyWithoutContentLengthIsStillLimitedPerAccount() throws Exception {
+        String body = "{\"email\":\"chunked@example.com\"}";
+        List<String> seenByController = new ArrayList<>();
+
+        for (int i = 1; i <= 3; i++) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(chunked("/api/users/forgot-password", "198.51.100." + (20 + i), body), response,
+                    (request, ignored) -> seenByController.add(readAsync(((HttpServletRequest) request).getInputStream())));
+            assertEquals(i <= 2 ? 200 : 429, response.getStatus());
+        }
+        // The non-blocking read of the replayed body sees the whole of it
+        assertEquals(List.of(body, body), seenByController);
+    }
+
+    // A chunked upload: the container reports no Content-Length
+    private static HttpServletRequest chunked(String path, String remoteAddr, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        request.setServletPath(path);
+        request.setRemoteAddr(remoteAddr);
+        request.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        request.addHeader("Transfer-Encoding", "chunked");
+        return new HttpServletRequestWrapper(request) {
+            @Override public int getContentLength() { return -1; }
+            @Override public long getContentLengthLong() { return -1; }
+        };
+    }
+
+    private static String readAsync(ServletInputStream in) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        in.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                byte[] chunk = new byte[8];
+                int n;
+                while (in.isReady() && (n = in.read(chunk)) > 0) out.write(chunk, 0, n);
+            }
+
+            @Override public void onAllDataRead() {}
+            @Override public void onError(Throwable t) { throw new AssertionError(t); }
+        });
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void perIpLimitRejectsBeforeTheControllerRuns() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockMvc.perform(postJson("/api/users/signup", "203.0.113.9", "{\"username\":\"\",\"password\":\"\"}"))
+                    .andExpect(status().isBadRequest());
+        }
+        mockMvc.perform(postJson("/api/users/signup", "203.0.113.9", "{\"username\":\"\",\"password\":\"\"}"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists("Retry-After"));
+        mockMvc.perform(postJson("/api/users/signup", "203.0.113.10", "{\"username\":\"\",\"password\":\"\"}"))
+                .andExpect(status().isBadRequest());
+    }
+}
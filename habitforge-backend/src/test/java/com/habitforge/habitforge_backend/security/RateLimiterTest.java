@@ -0,0 +1,45 @@
+package com.habitforge.habitforge_backend.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000_000L);
+
+    @Test
+    void allowsABurstOfTheLimitThenRefillsOneTokenPerInterval() {
+        RateLimiter limiter = new RateLimiter(1000, now::get);
+
+        for (int i = 0; i < 6; i++) {
+            assertEquals(0, limiter.tryAcquire("login|ip|a", 6), "request " + i);
+        }
+        long wait = limiter.tryAcquire("login|ip|a", 6);
+        assertEquals(TimeUnit.SECONDS.toNanos(10), wait);
+        assertEquals(0, limiter.tryAcquire("login|ip|b", 6)); // Other keys are unaffected
+
+        now.addAndGet(wait);
+        assertEquals(0, limiter.tryAcquire("login|ip|a", 6));
+        assertTrue(limiter.tryAcquire("login|ip|a", 6) > 0);
+    }
+
+    @Test
+    void refilledBucketsAreEvictedAndTheSizeStaysBounded() {
+        RateLimiter limiter = new RateLimiter(32, now::get); // Two buckets per stripe
+
+        limiter.tryAcquire("kept", 60);
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2)); // "kept" is full again
+        limiter.evictIdle();
+        assertEquals(0, limiter.size());
+
+        for (int i = 0; i < 1000; i++) {
+            limiter.tryAcquire("ip|" + i, 60);
+        }
+        assertTrue(limiter.size() <= 32, "size " + limiter.size());
+    }
+}
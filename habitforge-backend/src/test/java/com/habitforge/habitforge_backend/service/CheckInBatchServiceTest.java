@@ -0,0 +1,120 @@
+package com.habitforge.habitforge_backend.service;
+
+import com.habitforge.habitforge_backend.SqlStatementCounter;
+import com.habitforge.habitforge_backend.dto.CheckInBatchRequest.Entry;
+import com.habitforge.habitforge_backend.dto.CheckInBatchResult;
+import com.habitforge.habitforge_backend.dto.CheckInBatchResult.EntryResult;
+import com.habitforge.habitforge_backend.model.CheckInOutcome;
+import com.habitforge.habitforge_backend.model.Habit;
+import com.habitforge.habitforge_backend.model.User;
+import com.habitforge.habitforge_backend.repository.HabitRepository;
+import com.habitforge.habitforge_backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@Transactional
+class CheckInBatchServiceTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @Autowired private CheckInBatchService batchService;
+    @Autowired private UserRepository userRepo;
+    @Autowired private HabitRepository habitRepo;
+
+    private Long userId;
+    private Habit habit;
+
+    @BeforeEach
+    void seedHabit() {
+        User user = userRepo.save(new User("batch_user", "not-a-real-hash"));
+        userId = user.getId();
+        habit = new Habit();
+        habit.setUser(user);
+        habit.setTitle("Stretch");
+        habit.setTargetDays(30);
+        habit.setStartDate(TODAY.minusDays(10));
+        // Checked in three days ago and today; yesterday and the day before were logged offline
+        habit.markCompleted(TODAY.minusDays(3));
+        habit.markCompleted(TODAY);
+        habit.setCurrentStreak(1);
+        habit.recordStreak(1);
+        habit.setLastCheckInDate(TODAY);
+        habit = habitRepo.save(habit);
+    }
+
+    @Test
+    void eachEntryGetsItsOwnOutcomeAndStreaksAreRecomputed() {
+        User other = userRepo.save(new User("batch_intruder", "not-a-real-hash"));
+
+        CheckInBatchResult result = batchService.apply(userId, List.of(
+                new Entry(habit.getId(), TODAY.minusDays(1), "k1"),
+                new Entry(habit.getId(), TODAY.minusDays(2), "k2"),
+                new Entry(habit.getId(), TODAY.minusDays(2), "k3"),
+                new Entry(habit.getId(), TODAY.plusDays(1), "k4"),
+                new Entry(habit.getId(), TODAY.minusDays(11), "k5"),
+                new Entry(habit.getId(), TODAY.minusDays(40), "k6"),
+                new Entry(habit.getId() + 1000, TODAY, "k7"),
+                new Entry(habit.getId(), TODAY, "k8"),
+                new Entry(habit.getId(), null, "k9"),
+                new Entry(habit.getId(), TODAY.minusDays(1), "k1")));
+
+        assertEquals(List.of(
+                CheckInOutcome.APPLIED, CheckInOutcome.APPLIED, CheckInOutcome.ALREADY_CHECKED_IN,
+                CheckInOutcome.FUTURE_DATE, CheckInOutcome.BEFORE_START, CheckInOutcome.TOO_OLD,
+                CheckInOutcome.HABIT_NOT_FOUND, CheckInOutcome.ALREADY_CHECKED_IN, CheckInOutcome.INVALID,
+                CheckInOutcome.APPLIED), result.results().stream().map(EntryResult::outcome).toList());
+        assertTrue(result.results().get(9).replayed());
+        assertFalse(result.results().get(0).replayed());
+
+        // Backfill joined the run three days ago to today
+        assertEquals(4, habit.getCurrentStreak());
+        assertEquals(4, habit.getLongestStreak());
+        assertEquals(TODAY, habit.getLastCheckInDate());
+        assertEquals(1, result.habits().size());
+        assertEquals(4, result.habits().get(0).getCurrentStreak());
+
+        // Someone else's habit id is treated as missing
+        CheckInBatchResult foreign = batchService.apply(other.getId(), List.of(new Entry(habit.getId(), TODAY, "k1")));
+        assertEquals(CheckInOutcome.HABIT_NOT_FOUND, foreign.results().get(0).outcome());
+    }
+
+    @Test
+    void replayReturnsStoredOutcomesInOneStatement() {
+        List<Entry> batch = List.of(
+                new Entry(habit.getId(), TODAY.minusDays(1), "replay-1"),
+                new Entry(habit.getId(), TODAY.plusDays(3), "replay-2"));
+        batchService.apply(userId, batch);
+        int streak = habit.getCurrentStreak();
+
+        SqlStatementCounter.reset();
+        CheckInBatchResult replay = batchService.apply(userId, batch);
+
+        assertEquals(1, SqlStatementCounter.count());
+        assertTrue(replay.results().stream().allMatch(EntryResult::replayed));
+        assertEquals(List.of(CheckInOutcome.APPLIED, CheckInOutcome.FUTURE_DATE),
+                replay.results().stream().map(EntryResult::outcome).toList());
+        assertTrue(replay.habits().isEmpty());
+        assertEquals(streak, habit.getCurrentStreak());
+    }
+
+    @Test
+    void emptyOrOversizedBatchesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> batchService.apply(userId, List.of()));
+        List<Entry> tooMany = IntStream.range(0, 501)
+                .mapToObj(i -> new Entry(habit.getId(), TODAY, "bulk-" + i)).toList();
+        assertThrows(IllegalArgumentException.class, () -> batchService.apply(userId, tooMany));
+    }
+}
@@ -0,0 +1,133 @@
+package com.habitforge.habitforge_backend.service;
+
+import com.habitforge.habitforge_backend.model.EmailOutbox;
+import com.habitforge.habitforge_backend.model.EmailPriority;
+import com.habitforge.habitforge_backend.repository.EmailOutboxRepository;
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetup;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest
+class EmailOutboxDispatcherTest {
+
+    // Matches spring.mail.host/port in the test application.properties
+    @RegisterExtension
+    static GreenMailExtension smtp = new GreenMailExtension(new ServerSetup(2525, "localhost", "smtp"))
+            .withConfiguration(GreenMailConfiguration.aConfig().withUser("noreply@habitforge.test", "greenmail"));
+
+    @Autowired private EmailService emailService;
+    @Autowired private EmailOutboxRepository outboxRepository;
+
+    @Test
+    void verificationCodeIsQueuedThenDeliveredByTheDispatcher() throws Exception {
+        emailService.sendVerificationEmail("code@habitforge.test", "123456");
+
+        assertTrue(smtp.waitForIncomingEmail(5000, 1));
+        MimeMessage received = smtp.getReceivedMessages()[0];
+        assertEquals("code@habitforge.test", received.getAllRecipients()[0].toString());
+        assertEquals("Verify Your Email for HabitForge", received.getSubject());
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> outboxRepository.findAll().stream()
+                .anyMatch(m -> m.getRecipient().equals("code@habitforge.test") && m.getStatus() == EmailOutbox.Status.SENT));
+    }
+
+    @Test
+    void failedSendIsRetriedOnceSmtpComesBack() throws Exception {
+        smtp.stop();
+        emailService.sendHtmlEmail("retry@habitforge.test", "Habit Reminder: Read", "<p>Read</p>", EmailPriority.BULK);
+
+        await().atMost(Duration.ofSeconds(10)).until(() -> outboxRepository.findAll().stream()
+                .anyMatch(m -> m.getRecipient().equals("retry@habitforge.test")
+                        && m.getAttempts() >= 1 && m.getStatus() == EmailOutbox.Status.PENDING && m.getLastError() != null));
+
+        smtp.start();
+        await().atMost(Duration.ofSeconds(15)).until(() -> Arrays.stream(smtp.getReceivedMessages())
+                .anyMatch(m -> subjectOf(m).equals("Habit Reminder: Read")));
+    }
+
+    @Test
+    void rowsClaimedByABulkSendThatThrowsGoBackToPending() {
+        EmailService failing = mock(EmailService.class);
+        when(failing.sendBulk(anyList())).thenThrow(new IllegalStateException("pool exploded"));
+        // Not started, so only this test hands it work
+        EmailOutboxDispatcher dispatcher = new EmailOutboxDispatcher(outboxRepository, failing, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 6);
+        ReflectionTestUtils.setField(dispatcher, "initialBackoffSeconds", 3600L);
+        ReflectionTestUtils.setField(dispatcher, "leaseSeconds", 300L);
+
+        // Due tomorrow, so the running dispatchers leave it alone
+        LocalDateTime tomorrow = LocalDateTime.now().plusDays(1).withNano(0); // Exact at the column's precision
+        EmailOutbox row = outboxRepository.save(new EmailOutbox("aborted@habitforge.test", "Habit Reminder: Walk",
+                "<p>Walk</p>", EmailPriority.BULK, tomorrow));
+        LocalDateTime lease = tomorrow.plusMinutes(5);
+        assertEquals(1, outboxRepository.claim(row.getId(), tomorrow, lease));
+
+        try {
+            assertThrows(IllegalStateException.class,
+                    () -> ReflectionTestUtils.invokeMethod(dispatcher, "deliver", List.of(row), lease));
+
+            // Released well before the claim lease would run out
+            EmailOutbox released = outboxRepository.findById(row.getId()).orElseThrow();
+            assertEquals(EmailOutbox.Status.PENDING, released.getStatus());
+            assertEquals(1, released.getAttempts());
+            assertEquals("Bulk send aborted", released.getLastError());
+        } finally {
+            outboxRepository.deleteById(row.getId());
+        }
+    }
+
+    @Test
+    void workerWhoseLeaseLapsedDoesNotOverwriteTheNewOwner() {
+        EmailService sending = mock(EmailService.class);
+        EmailOutboxDispatcher slowWorker = new EmailOutboxDispatcher(outboxRepository, sending, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(slowWorker, "leaseSeconds", 300L);
+
+        LocalDateTime tomorrow = LocalDateTime.now().plusDays(1).withNano(0);
+        EmailOutbox row = outboxRepository.save(new EmailOutbox("lapsed@habitforge.test", "Verify",
+                "<p>Code</p>", EmailPriority.TRANSACTIONAL, tomorrow));
+        LocalDateTime firstLease = tomorrow.plusMinutes(5);
+        assertEquals(1, outboxRepository.claim(row.getId(), tomorrow, firstLease));
+        // The first lease ran out mid-send and another worker claimed the row
+        LocalDateTime secondLease = firstLease.plusMinutes(5);
+        assertEquals(1, outboxRepository.claim(row.getId(), firstLease, secondLease));
+
+        try {
+            ReflectionTestUtils.invokeMethod(slowWorker, "deliver", List.of(row), firstLease);
+
+            EmailOutbox current = outboxRepository.findById(row.getId()).orElseThrow();
+            assertEquals(EmailOutbox.Status.SENDING, current.getStatus());
+            assertEquals(secondLease, current.getNextAttemptAt());
+            assertEquals(0, current.getAttempts());
+        } finally {
+            outboxRepository.deleteById(row.getId());
+        }
+    }
+
+    private static String subjectOf(MimeMessage message) {
+        try {
+            return message.getSubject();
+        } catch (Exception e) {
+            return "";
+        }
+    }
+}
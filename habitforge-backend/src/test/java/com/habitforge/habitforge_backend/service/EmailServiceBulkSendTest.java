@@ -0,0 +1,79 @@
+package com.habitforge.habitforge_backend.service;
+
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetup;
+import jakarta.mail.Address;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class EmailServiceBulkSendTest {
+
+    @RegisterExtension
+    static GreenMailExtension smtp = new GreenMailExtension(new ServerSetup(2525, "localhost", "smtp"))
+            .withConfiguration(GreenMailConfiguration.aConfig().withUser("noreply@habitforge.test", "greenmail"));
+
+    @Autowired private EmailService emailService;
+
+    @Test
+    void bulkSendDeliversEveryMessageAndReportsThroughput() {
+        List<EmailService.OutgoingEmail> emails = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            emails.add(new EmailService.OutgoingEmail("user" + i + "@habitforge.test",
+                    "Habit Reminder: Habit " + i, "<p>Habit " + i + "</p>"));
+        }
+
+        EmailService.BulkSendResult result = emailService.sendBulk(emails);
+
+        assertEquals(250, result.sent());
+        assertTrue(result.failures().isEmpty());
+        assertTrue(result.messagesPerSecond() > 0);
+        assertEquals(250, smtp.getReceivedMessages().length);
+    }
+
+    @Test
+    void partialFailureRetriesOnlyRecipientsThatDidNotGetTheMail() throws Exception {
+        Address sent = new InternetAddress("sent@habitforge.test");
+        Address unsent = new InternetAddress("unsent@habitforge.test");
+        Address invalid = new InternetAddress("invalid@habitforge.test");
+        MimeMessage message = new MimeMessage((Session) null);
+        message.setRecipients(MimeMessage.RecipientType.TO, new Address[] { sent, unsent, invalid });
+
+        SendFailedException partial = new SendFailedException("partial", null,
+                new Address[] { sent }, new Address[] { unsent }, new Address[] { invalid });
+        assertArrayEquals(new Address[] { unsent, invalid }, EmailService.undelivered(partial, message));
+
+        // Nothing known to be accepted: the whole message goes again
+        assertArrayEquals(message.getAllRecipients(),
+                EmailService.undelivered(new SendFailedException("connection reset"), message));
+    }
+
+    @Test
+    void bulkSendRecoversWhenTheServerDropsPooledConnections() {
+        emailService.sendBulk(List.of(new EmailService.OutgoingEmail("warm@habitforge.test", "Warm up", "<p>x</p>")));
+
+        // Restarting the server kills every idle pooled connection
+        smtp.stop();
+        smtp.start();
+        smtp.setUser("noreply@habitforge.test", "greenmail");
+
+        EmailService.BulkSendResult result = emailService.sendBulk(
+                List.of(new EmailService.OutgoingEmail("after@habitforge.test", "After restart", "<p>y</p>")));
+
+        assertEquals(1, result.sent());
+    }
+}
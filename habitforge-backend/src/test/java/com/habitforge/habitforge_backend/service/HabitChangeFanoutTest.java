@@ -0,0 +1,71 @@
+package com.habitforge.habitforge_backend.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+// The Postgres path without a Postgres server: what goes into pg_notify, and what the listener does with it
+class HabitChangeFanoutTest {
+
+    private JdbcTemplate jdbc;
+    private HabitStreamHub hub;
+    private HabitChangeFanout fanout;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = mock(JdbcTemplate.class);
+        hub = mock(HabitStreamHub.class);
+        fanout = new HabitChangeFanout(jdbc, hub, null, "postgres");
+        // As after afterPropertiesSet, minus the listener thread and its connection
+        ReflectionTestUtils.setField(fanout, "postgres", true);
+    }
+
+    @Test
+    void notificationSentByOneInstanceReachesTheHubOfAnother() {
+        fanout.notifyInstances(new HabitListChangedEvent(42L, 7L));
+        fanout.deliverLocally(new HabitListChangedEvent(42L, 7L)); // Left to the notification on Postgres
+
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(jdbc).query(eq("SELECT pg_notify(?, ?)"), any(ResultSetExtractor.class),
+                eq(HabitChangeFanout.CHANNEL), payload.capture());
+        verifyNoInteractions(hub);
+
+        HabitChangeFanout peer = new HabitChangeFanout(mock(JdbcTemplate.class), hub, null, "postgres");
+        peer.dispatch((String) payload.getValue());
+        verify(hub).onChange(42L, 7L);
+        assertEquals("42:7", payload.getValue());
+    }
+
+    @Test
+    void malformedNotificationsAreIgnored() {
+        fanout.dispatch(null);
+        fanout.dispatch("");
+        fanout.dispatch("42");
+        fanout.dispatch(":7");
+        fanout.dispatch("abc:7");
+        fanout.dispatch("42:seven");
+
+        verifyNoInteractions(hub);
+    }
+
+    @Test
+    void withoutPostgresChangesGoToTheLocalHubOnly() {
+        ReflectionTestUtils.setField(fanout, "postgres", false);
+
+        fanout.notifyInstances(new HabitListChangedEvent(42L, 8L));
+        fanout.deliverLocally(new HabitListChangedEvent(42L, 8L));
+
+        verifyNoInteractions(jdbc);
+        verify(hub).onChange(42L, 8L);
+    }
+}
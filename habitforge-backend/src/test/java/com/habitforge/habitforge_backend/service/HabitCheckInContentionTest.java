@@ -0,0 +1,133 @@
+package com.habitforge.habitforge_backend.service;
+
+import com.habitforge.habitforge_backend.model.Habit;
+import com.habitforge.habitforge_backend.model.User;
+import com.habitforge.habitforge_backend.repository.HabitRepository;
+import com.habitforge.habitforge_backend.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class HabitCheckInContentionTest {
+
+    private static final Logger LOGGER = Logger.getLogger(HabitCheckInContentionTest.class.getName());
+
+    private static final int THREADS = 16;
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @Autowired private HabitService habitService;
+    @Autowired private UserRepository userRepo;
+    @Autowired private HabitRepository habitRepo;
+    @Autowired private HabitListVersions listVersions;
+
+    @Test
+    void concurrentCheckInsOnOneHabitApplyExactlyOnce() throws Exception {
+        User user = userRepo.save(new User("contention_user", "not-a-real-hash"));
+        Habit habit = habitRepo.save(habitFor(user, 2));
+        // Yesterday's check-in so the winner extends the streak to 2 and completes the habit
+        habit.markCompleted(TODAY.minusDays(1));
+        habit.setCurrentStreak(1);
+        habit.recordStreak(1);
+        habit.setLastCheckInDate(TODAY.minusDays(1));
+        habit = habitRepo.save(habit);
+        Long userId = user.getId();
+        Long habitId = habit.getId();
+        long versionBefore = listVersions.current(userId);
+
+        List<Boolean> outcomes = runConcurrently(THREADS, i -> habitService.checkInHabit(userId, habitId).isPresent());
+
+        assertEquals(1, outcomes.stream().filter(applied -> applied).count());
+        // Rejected check-ins roll their version bump back
+        assertEquals(versionBefore + 1, listVersions.current(userId));
+        Habit after = habitRepo.findById(habitId).orElseThrow();
+        assertEquals(2, after.getCurrentStreak());
+        assertEquals(2, after.getLongestStreak());
+        assertEquals(TODAY, after.getLastCheckInDate());
+        assertTrue(after.isCompleted());
+        assertTrue(after.isCompletedOn(TODAY));
+    }
+
+    @Test
+    void checkInsAcrossManyHabitsRunInParallel() throws Exception {
+        User user = userRepo.save(new User("throughput_user", "not-a-real-hash"));
+        int habits = 400;
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < habits; i++) {
+            ids.add(habitRepo.save(habitFor(user, 30)).getId());
+        }
+        Long userId = user.getId();
+
+        long start = System.nanoTime();
+        List<Boolean> outcomes = runConcurrently(habits, i -> habitService.checkInHabit(userId, ids.get(i)).isPresent());
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        assertTrue(outcomes.stream().allMatch(applied -> applied));
+        LOGGER.info(String.format("%d check-ins on %d threads in %.3fs (%.0f/s)",
+                habits, THREADS, seconds, habits / seconds));
+    }
+
+    @Test
+    void staleEditLosesToCheckIn() {
+        User user = userRepo.save(new User("stale_edit_user", "not-a-real-hash"));
+        Habit stale = habitRepo.save(habitFor(user, 30));
+
+        assertTrue(habitService.checkInHabit(user.getId(), stale.getId()).isPresent());
+
+        stale.setTitle("Renamed from an old copy");
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> habitRepo.save(stale));
+    }
+
+    private static Habit habitFor(User user, int targetDays) {
+        Habit habit = new Habit();
+        habit.setUser(user);
+        habit.setTitle("Contended");
+        habit.setTargetDays(targetDays);
+        habit.setStartDate(TODAY.minusDays(5));
+        return habit;
+    }
+
+    private interface Task {
+        boolean run(int index) throws Exception;
+    }
+
+    // Releases every task at once from a shared latch, THREADS at a time
+    private static List<Boolean> runConcurrently(int tasks, Task task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch go = new CountDownLatch(1);
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int i = 0; i < tasks; i++) {
+                int index = i;
+                Callable<Boolean> call = () -> {
+                    go.await();
+                    return task.run(index);
+                };
+                futures.add(pool.submit(call));
+            }
+            go.countDown();
+            List<Boolean> results = new ArrayList<>();
+            for (Future<Boolean> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.habitforge.habitforge_backend.service;
+
+import com.habitforge.habitforge_backend.SqlStatementCounter;
+import com.habitforge.habitforge_backend.dto.HabitDTO;
+import com.habitforge.habitforge_backend.dto.HabitPage;
+import com.habitforge.habitforge_backend.model.Habit;
+import com.habitforge.habitforge_backend.model.HabitReminder;
+import com.habitforge.habitforge_backend.model.User;
+import com.habitforge.habitforge_backend.repository.HabitReminderRepository;
+import com.habitforge.habitforge_backend.repository.HabitRepository;
+import com.habitforge.habitforge_backend.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class HabitServiceQueryCountTest {
+
+    private static final String USERNAME = "query_count_user";
+    private static final int HABIT_COUNT = 40;
+
+    @Autowired private HabitService habitService;
+    @Autowired private UserRepository userRepo;
+    @Autowired private HabitRepository habitRepo;
+    @Autowired private HabitReminderRepository reminderRepo;
+
+    private Long userId;
+
+    @BeforeEach
+    void seedUserWithManyHabits() {
+        userId = userRepo.findIdByUsername(USERNAME).orElse(null);
+        if (userId != null) return;
+
+        User user = userRepo.save(new User(USERNAME, "not-a-real-hash"));
+        userId = user.getId();
+        LocalDate start = LocalDate.now().minusDays(30);
+        for (int i = 0; i < HABIT_COUNT; i++) {
+            Habit habit = new Habit();
+            habit.setUser(user);
+            habit.setTitle("Habit " + i);
+            habit.setTargetDays(30);
+            habit.setStartDate(start);
+            for (int d = 0; d < 30; d += 1 + (i % 3)) {
+                habit.markCompleted(start.plusDays(d));
+            }
+            habit = habitRepo.save(habit);
+
+            // Every other habit gets a reminder so both join outcomes are exercised
+            if (i % 2 == 0) {
+                reminderRepo.save(new HabitReminder(habit, LocalTime.of(8, i % 60), true));
+            }
+        }
+    }
+
+    @Test
+    void getUserHabitsUsesSingleStatement() {
+        SqlStatementCounter.reset();
+
+        List<HabitDTO> habits = habitService.getUserHabits(userId);
+
+        assertEquals(HABIT_COUNT, habits.size());
+        assertEquals(HABIT_COUNT / 2, habits.stream().filter(h -> h.getReminderTime() != null).count());
+        assertEquals(1, SqlStatementCounter.count());
+    }
+
+    @Test
+    void getSortedHabitsUsesSingleStatement() {
+        SqlStatementCounter.reset();
+
+        List<HabitDTO> habits = habitService.getSortedHabits(userId, "streak", "desc", "all", null, null).habits();
+
+        assertEquals(HABIT_COUNT, habits.size());
+        assertEquals(1, SqlStatementCounter.count());
+    }
+
+    @Test
+    void ownershipCheckIsOneKeyedStatement() {
+        Long habitId = habitService.getUserHabits(userId).get(0).getId();
+        User intruder = userRepo.save(new User("intruder_" + System.nanoTime(), "not-a-real-hash"));
+
+        SqlStatementCounter.reset();
+        assertFalse(habitService.deleteHabit(intruder.getId(), habitId));
+        assertEquals(1, SqlStatementCounter.count());
+        assertTrue(habitRepo.existsById(habitId));
+    }
+
+    @Test
+    void keysetPagesCoverEveryHabitOnceWithOneStatementPerPage() {
+        Set<Long> seen = new HashSet<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            SqlStatementCounter.reset();
+            HabitPage page = habitService.getSortedHabits(userId, "streak", null, "all", cursor, 7);
+            assertEquals(1, SqlStatementCounter.count());
+            page.habits().forEach(h -> assertTrue(seen.add(h.getId()), "habit returned twice: " + h.getId()));
+            cursor = page.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(HABIT_COUNT, seen.size());
+        assertEquals((HABIT_COUNT + 6) / 7, pages);
+    }
+}
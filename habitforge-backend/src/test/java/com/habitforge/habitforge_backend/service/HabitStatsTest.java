@@ -0,0 +1,90 @@
+package com.habitforge.habitforge_backend.service;
+
+import com.habitforge.habitforge_backend.dto.HabitStatsDTO;
+import com.habitforge.habitforge_backend.model.Habit;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class HabitStatsTest {
+
+    private static final LocalDate START = LocalDate.of(2026, 9, 1); // A Tuesday
+    private static final LocalDate TODAY = START.plusDays(29);
+
+    @Test
+    void computesStreaksRatesAndWeekdaysFromTheBitmap() {
+        Habit habit = habitStartedOn(START);
+        // A 5-day run, then every Monday, then the last three days
+        for (int d = 0; d < 5; d++) habit.markCompleted(START.plusDays(d));
+        for (LocalDate day = LocalDate.of(2026, 9, 7); day.isBefore(TODAY.minusDays(2)); day = day.plusWeeks(1)) {
+            habit.markCompleted(day);
+        }
+        for (int d = 2; d >= 0; d--) habit.markCompleted(TODAY.minusDays(d));
+        lastCheckIn(habit, TODAY, 3);
+
+        HabitStatsDTO stats = HabitStats.compute(habit, TODAY);
+
+        assertEquals(30, stats.daysTracked());
+        assertEquals(5 + 3 + 3, stats.totalCompletions());
+        assertEquals(3, stats.currentStreak());
+        assertEquals(5, stats.longestStreak());
+        assertEquals(11 / 30.0, stats.completionRate(), 1e-9);
+        assertEquals(3 / 7.0, stats.last7DaysRate(), 1e-9);
+        assertEquals(11 / 30.0, stats.last30DaysRate(), 1e-9);
+        assertEquals(DayOfWeek.MONDAY, stats.bestWeekday());
+        assertEquals(4, stats.completionsByWeekday().get(DayOfWeek.MONDAY));
+    }
+
+    @Test
+    void newHabitOnlyCountsDaysSinceItsStart() {
+        Habit habit = habitStartedOn(TODAY.minusDays(1));
+        habit.markCompleted(TODAY);
+        lastCheckIn(habit, TODAY, 1);
+
+        HabitStatsDTO stats = HabitStats.compute(habit, TODAY);
+
+        assertEquals(2, stats.daysTracked());
+        assertEquals(0.5, stats.last7DaysRate(), 1e-9);
+        assertEquals(0.5, stats.last30DaysRate(), 1e-9);
+    }
+
+    @Test
+    void missedDayEndsCurrentStreakButKeepsLongest() {
+        Habit habit = habitStartedOn(START);
+        for (int d = 0; d < 4; d++) habit.markCompleted(START.plusDays(d));
+        lastCheckIn(habit, START.plusDays(3), 4);
+
+        HabitStatsDTO stats = HabitStats.compute(habit, START.plusDays(10));
+
+        assertEquals(0, stats.currentStreak());
+        assertEquals(4, stats.longestStreak());
+    }
+
+    @Test
+    void emptyHistoryHasNoBestWeekday() {
+        HabitStatsDTO stats = HabitStats.compute(habitStartedOn(START), TODAY);
+
+        assertEquals(0, stats.totalCompletions());
+        assertEquals(0, stats.longestStreak());
+        assertNull(stats.bestWeekday());
+    }
+
+    private static Habit habitStartedOn(LocalDate start) {
+        Habit habit = new Habit();
+        habit.setTitle("Read");
+        habit.setTargetDays(100);
+        habit.setStartDate(start);
+        return habit;
+    }
+
+    // The row as the check-in UPDATE leaves it; longestStreak comes from the bitmap via recordStreak, as in HabitService
+    private static void lastCheckIn(Habit habit, LocalDate day, int currentStreak) {
+        habit.setLastCheckInDate(day);
+        habit.setCurrentStreak(currentStreak);
+        habit.recordStreak(currentStreak);
+    }
+}
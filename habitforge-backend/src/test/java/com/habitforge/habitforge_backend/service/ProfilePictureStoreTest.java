@@ -0,0 +1,57 @@
+package com.habitforge.habitforge_backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProfilePictureStoreTest {
+
+    @TempDir Path root;
+
+    @Test
+    void sweepDeletesOnlyOldUnreferencedOriginals() throws Exception {
+        ProfilePictureStore store = new ProfilePictureStore(root.toString());
+        String kept = store.store(new ByteArrayInputStream(new byte[] { 1 }));
+        String orphan = store.store(new ByteArrayInputStream(new byte[] { 2 }));
+        String recent = store.store(new ByteArrayInputStream(new byte[] { 3 }));
+        Instant now = Instant.now();
+        age(store, kept, now);
+        age(store, orphan, now);
+        store.storeVariant(orphan, 128, "png", target -> Files.write(target, new byte[] { 9 }));
+
+        int removed = store.deleteUnreferenced(now.minus(Duration.ofHours(1)), kept::equals);
+
+        assertEquals(1, removed);
+        assertTrue(store.locate(kept).isPresent());
+        assertTrue(store.locate(recent).isPresent());
+        assertFalse(store.locate(orphan).isPresent());
+        assertFalse(store.locateVariant(orphan, 128).isPresent());
+    }
+
+    @Test
+    void uploadReusingAnOldOriginalRestartsItsGracePeriod() throws Exception {
+        ProfilePictureStore store = new ProfilePictureStore(root.toString());
+        String hash = store.store(new ByteArrayInputStream(new byte[] { 4 }));
+        Instant now = Instant.now();
+        age(store, hash, now);
+
+        // Same bytes again: the new owner's row is not committed yet, so nothing references the file
+        assertEquals(hash, store.store(new ByteArrayInputStream(new byte[] { 4 })));
+        assertEquals(0, store.deleteUnreferenced(now.minus(Duration.ofHours(1)), h -> false));
+        assertTrue(store.locate(hash).isPresent());
+    }
+
+    private static void age(ProfilePictureStore store, String hash, Instant now) throws Exception {
+        Files.setLastModifiedTime(store.locate(hash).orElseThrow(), FileTime.from(now.minus(Duration.ofDays(2))));
+    }
+}
@@ -0,0 +1,46 @@
+package com.habitforge.habitforge_backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReminderTimingWheelTest {
+
+    private static final ZoneId NEW_YORK = ZoneId.of("America/New_York");
+    private static final LocalTime EIGHT_AM = LocalTime.of(8, 0);
+
+    @Test
+    void localReminderMovesOneUtcHourAcrossDaylightSavingChange() {
+        // EST (UTC-5) before 2026-03-08, EDT (UTC-4) after
+        int winter = ReminderTimingWheel.utcSlotOf(EIGHT_AM, NEW_YORK, Instant.parse("2026-03-06T12:00:00Z"));
+        int summer = ReminderTimingWheel.utcSlotOf(EIGHT_AM, NEW_YORK, Instant.parse("2026-03-09T12:00:00Z"));
+
+        assertEquals(13 * 60, winter);
+        assertEquals(12 * 60, summer);
+    }
+
+    @Test
+    void slotUsesTheOffsetOfTheNextOccurrence() {
+        // Saturday evening before the change: the next 08:00 is Sunday morning, already on EDT
+        int slot = ReminderTimingWheel.utcSlotOf(EIGHT_AM, NEW_YORK, Instant.parse("2026-03-08T01:00:00Z"));
+        assertEquals(12 * 60, slot);
+    }
+
+    @Test
+    void schedulingMovesAReminderBetweenSlots() {
+        ReminderTimingWheel wheel = new ReminderTimingWheel();
+        wheel.schedule(7L, 600);
+        wheel.schedule(7L, 660);
+
+        assertFalse(wheel.dueAt(600).contains(7L));
+        assertTrue(wheel.dueAt(660).contains(7L));
+        assertTrue(wheel.isScheduledAt(7L, 660));
+        assertEquals(1, wheel.size());
+    }
+}
@@ -0,0 +1,97 @@
+package com.habitforge.habitforge_backend.service;
+
+import com.habitforge.habitforge_backend.model.User;
+import com.habitforge.habitforge_backend.model.VerificationPurpose;
+import com.habitforge.habitforge_backend.repository.UserRepository;
+import com.habitforge.habitforge_backend.repository.VerificationCodeRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class VerificationCodeStoreTest {
+
+    @Autowired private VerificationCodeStore store;
+    @Autowired private VerificationCodeRepository codeRepo;
+    @Autowired private UserService userService;
+    @Autowired private UserRepository userRepo;
+    @Autowired private PasswordEncoder passwordEncoder;
+
+    @Test
+    void codesAreSingleUseAndScopedToTheirPurpose() {
+        String code = store.issue("Single.Use@example.com", VerificationPurpose.LOGIN);
+
+        assertFalse(store.consume("single.use@example.com", VerificationPurpose.PASSWORD_RESET, code));
+        assertTrue(store.matches("single.use@example.com", VerificationPurpose.LOGIN, code));
+        assertTrue(store.consume(" single.use@example.com ", VerificationPurpose.LOGIN, code));
+        assertFalse(store.consume("single.use@example.com", VerificationPurpose.LOGIN, code));
+        assertFalse(store.matches("single.use@example.com", VerificationPurpose.LOGIN, code));
+    }
+
+    @Test
+    void reissuingReplacesTheLiveCode() {
+        String first = store.issue("reissue@example.com", VerificationPurpose.EMAIL_VERIFICATION);
+        String second;
+        do {
+            second = store.issue("reissue@example.com", VerificationPurpose.EMAIL_VERIFICATION);
+        } while (second.equals(first));
+
+        assertFalse(store.matches("reissue@example.com", VerificationPurpose.EMAIL_VERIFICATION, first));
+        assertTrue(store.consume("reissue@example.com", VerificationPurpose.EMAIL_VERIFICATION, second));
+    }
+
+    @Test
+    void codeUsedOrReplacedOnAnotherNodeNoLongerMatchesHere() {
+        String code = store.issue("two.nodes@example.com", VerificationPurpose.PASSWORD_RESET);
+        assertTrue(store.matches("two.nodes@example.com", VerificationPurpose.PASSWORD_RESET, code));
+
+        // Another node issues a fresh code, straight against the shared table
+        String other = code.equals("000000") ? "111111" : "000000";
+        codeRepo.replaceCode("two.nodes@example.com", VerificationPurpose.PASSWORD_RESET, other,
+                LocalDateTime.now().plusMinutes(15));
+        assertFalse(store.matches("two.nodes@example.com", VerificationPurpose.PASSWORD_RESET, code));
+        assertTrue(store.matches("two.nodes@example.com", VerificationPurpose.PASSWORD_RESET, other));
+
+        // ...and then uses it up there
+        assertEquals(1, codeRepo.consume("two.nodes@example.com", VerificationPurpose.PASSWORD_RESET, other,
+                LocalDateTime.now()));
+        assertFalse(store.matches("two.nodes@example.com", VerificationPurpose.PASSWORD_RESET, other));
+        assertFalse(store.consume("two.nodes@example.com", VerificationPurpose.PASSWORD_RESET, other));
+    }
+
+    @Test
+    void sweeperRemovesExpiredCodesFromBothTiers() {
+        String code = store.issue("expired@example.com", VerificationPurpose.PASSWORD_RESET);
+
+        store.sweep(LocalDateTime.now().plusDays(2));
+
+        assertFalse(store.matches("expired@example.com", VerificationPurpose.PASSWORD_RESET, code));
+        assertTrue(codeRepo.findByEmailAndPurpose("expired@example.com", VerificationPurpose.PASSWORD_RESET).isEmpty());
+    }
+
+    @Test
+    void passwordResetLeavesTheUserRowAloneUntilTheCodeIsUsed() {
+        User user = new User("reset_user", passwordEncoder.encode("old-password"));
+        user.setEmail("reset@example.com");
+        userRepo.save(user);
+        String hashBefore = userRepo.findByUsername("reset_user").orElseThrow().getPassword();
+
+        String code = userService.generatePasswordResetCode("reset@example.com");
+        assertFalse(userService.resetPassword("reset@example.com", "not-" + code, "new-password"));
+        assertTrue(userService.verifyResetCode("reset@example.com", code));
+        assertTrue(userService.resetPassword("reset@example.com", code, "new-password"));
+
+        String hashAfter = userRepo.findByUsername("reset_user").orElseThrow().getPassword();
+        assertNotEquals(hashBefore, hashAfter);
+        assertTrue(passwordEncoder.matches("new-password", hashAfter));
+        assertFalse(userService.resetPassword("reset@example.com", code, "another-password"));
+    }
+}
@@ -0,0 +1,59 @@
+package com.habitforge.habitforge_backend.benchmarks;
+
+import com.habitforge.habitforge_backend.model.Habit;
+import com.habitforge.habitforge_backend.model.HabitReminder;
+import com.habitforge.habitforge_backend.security.JwtUtil;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.lang.reflect.Field;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.Random;
+
+/** Deterministic inputs shared by the benchmarks: fixed dates and seeds, so every run measures the same data. */
+public final class Fixtures {
+
+    public static final LocalDate TODAY = LocalDate.of(2026, 1, 1);
+    public static final String JWT_SECRET = "aGFiaXRmb3JnZS10ZXN0LXNlY3JldC1rZXktMzItYnl0ZXMtbG9uZyE=";
+
+    private static final long SEED = 42L;
+
+    private Fixtures() {}
+
+    // A habit started historyDays ago with about 70% of days completed and a morning reminder
+    public static Habit habit(int historyDays) {
+        Random random = new Random(SEED);
+        Habit habit = new Habit();
+        habit.setTitle("Habit " + historyDays);
+        habit.setTargetDays(historyDays);
+        habit.setStartDate(TODAY.minusDays(historyDays - 1L));
+        for (int day = 0; day < historyDays; day++) {
+            if (random.nextInt(10) < 7) {
+                habit.markCompleted(habit.getStartDate().plusDays(day));
+            }
+        }
+        habit.setCurrentStreak(random.nextInt(30));
+        habit.setLastCheckInDate(TODAY);
+        habit.setReminder(new HabitReminder(habit, LocalTime.of(7, 30), true));
+        return habit;
+    }
+
+    // JwtUtil as the application builds it; a cache of 1 with two alternating tokens never hits
+    public static JwtUtil jwtUtil(int verifiedCacheSize) {
+        JwtUtil jwtUtil = new JwtUtil(new SimpleMeterRegistry());
+        setField(jwtUtil, "secretKeyString", JWT_SECRET);
+        setField(jwtUtil, "verifiedCacheSize", verifiedCacheSize);
+        jwtUtil.init();
+        return jwtUtil;
+    }
+
+    private static void setField(Object target, String name, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(name);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot set " + name, e);
+        }
+    }
+}
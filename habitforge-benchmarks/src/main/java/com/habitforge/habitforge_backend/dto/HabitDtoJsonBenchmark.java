@@ -0,0 +1,66 @@
+package com.habitforge.habitforge_backend.dto;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.habitforge.habitforge_backend.benchmarks.Fixtures;
+import com.habitforge.habitforge_backend.model.Habit;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/** Jackson serialization of HabitDTO as GET /api/habits writes it; completedDays dominates for old habits. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class HabitDtoJsonBenchmark {
+
+    private static final int LIST_SIZE = 50;
+
+    @Param({"30", "365", "1825"})
+    int historyDays;
+
+    private ObjectWriter writer;
+    private HabitDTO dto;
+    private List<HabitDTO> list;
+
+    @Setup
+    public void setUp() {
+        // Same date handling as the Spring Boot mapper: java.time module, ISO strings rather than arrays
+        ObjectMapper mapper = JsonMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        writer = mapper.writer();
+
+        Habit habit = Fixtures.habit(historyDays);
+        dto = toDto(habit);
+        list = new ArrayList<>(LIST_SIZE);
+        for (int i = 0; i < LIST_SIZE; i++) {
+            list.add(toDto(habit));
+        }
+    }
+
+    private static HabitDTO toDto(Habit habit) {
+        return new HabitDTO(1L, habit.getTitle(), habit.getTargetDays(), habit.getStartDate(),
+                habit.getCurrentStreak(), habit.getLastCheckInDate(), habit.isCompleted(),
+                habit.getCompletedDays(), "07:30");
+    }
+
+    @Benchmark
+    public byte[] writeOne() throws JsonProcessingException {
+        return writer.writeValueAsBytes(dto);
+    }
+
+    @Benchmark
+    public byte[] writeList() throws JsonProcessingException {
+        return writer.writeValueAsBytes(list);
+    }
+}
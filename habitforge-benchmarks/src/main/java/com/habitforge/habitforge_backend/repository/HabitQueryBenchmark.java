@@ -0,0 +1,43 @@
+package com.habitforge.habitforge_backend.repository;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JVM side of a sorted habit list request. Ordering itself happens in SQL (see HabitRepositoryImpl),
+ * so what remains per request is parsing the sort options and the keyset cursor round trip.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class HabitQueryBenchmark {
+
+    private HabitQuery.Cursor cursor;
+    private String encoded;
+
+    @Setup
+    public void setUp() {
+        cursor = new HabitQuery.Cursor(HabitQuery.SortKey.START_DATE, LocalDate.of(2025, 6, 1), 123_456L);
+        encoded = cursor.encode();
+    }
+
+    @Benchmark
+    public HabitQuery.SortKey parseSortKey() {
+        return HabitQuery.SortKey.parse("startDate");
+    }
+
+    @Benchmark
+    public String encodeCursor() {
+        return cursor.encode();
+    }
+
+    @Benchmark
+    public HabitQuery.Cursor decodeCursor() {
+        return HabitQuery.Cursor.decode(encoded, HabitQuery.SortKey.START_DATE);
+    }
+}
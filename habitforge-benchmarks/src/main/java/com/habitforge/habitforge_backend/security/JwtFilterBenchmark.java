@@ -0,0 +1,65 @@
+package com.habitforge.habitforge_backend.security;
+
+import com.habitforge.habitforge_backend.benchmarks.Fixtures;
+import com.habitforge.habitforge_backend.service.UserIdCache;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.security.Key;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request auth cost of JwtFilter. legacy replays what the filter did before: two parsers built,
+ * the HMAC verified twice and a regex run over every path.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class JwtFilterBenchmark {
+
+    private JwtFilter jwtFilter;
+    private Key key;
+    private String token;
+    private MockHttpServletRequest request;
+
+    @Setup
+    public void setUp() {
+        JwtUtil jwtUtil = Fixtures.jwtUtil(10_000);
+        // The token carries the user id, so the filter never consults the id cache or its repository
+        jwtFilter = new JwtFilter(jwtUtil, new UserIdCache(null, 1));
+        key = Keys.hmacShaKeyFor(Base64.getDecoder().decode(Fixtures.JWT_SECRET));
+        token = jwtUtil.generateToken(42L, "bench_user", null);
+
+        request = new MockHttpServletRequest("GET", "/api/habits");
+        request.setServletPath("/api/habits");
+        request.addHeader("Authorization", "Bearer " + token);
+    }
+
+    @Benchmark
+    public Authentication filter() throws Exception {
+        SecurityContextHolder.clearContext();
+        jwtFilter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        return SecurityContextHolder.getContext().getAuthentication();
+    }
+
+    @Benchmark
+    public String legacy() {
+        String path = "/api/habits".replaceAll("/+$", "");
+        if (path.matches("^/api/users/[^/]+/profile-picture$")) return null;
+
+        String username = Jwts.parserBuilder().setSigningKey(key).build()
+                .parseClaimsJws(token).getBody().getSubject();
+        Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
+        return username;
+    }
+}
@@ -0,0 +1,50 @@
+package com.habitforge.habitforge_backend.security;
+
+import com.habitforge.habitforge_backend.benchmarks.Fixtures;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token issue and validation. validateCached is the steady state of an active session (digest + map lookup);
+ * validateUncached forces the signature check and claims parse every time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class JwtUtilBenchmark {
+
+    private JwtUtil cached;
+    private JwtUtil uncached;
+    private String token;
+    private String otherToken;
+    private boolean flip;
+
+    @Setup
+    public void setUp() {
+        cached = Fixtures.jwtUtil(10_000);
+        uncached = Fixtures.jwtUtil(1);
+        token = cached.generateToken(1L, "bench_user", "bench@example.com");
+        otherToken = cached.generateToken(2L, "bench_other", "other@example.com");
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return cached.generateToken(1L, "bench_user", "bench@example.com");
+    }
+
+    @Benchmark
+    public boolean validateCached() {
+        return cached.validateToken(token);
+    }
+
+    @Benchmark
+    public boolean validateUncached() {
+        // Alternating two tokens through a one-entry cache means every call misses
+        flip = !flip;
+        return uncached.validateToken(flip ? token : otherToken);
+    }
+}
@@ -0,0 +1,45 @@
+package com.habitforge.habitforge_backend.service;
+
+import com.habitforge.habitforge_backend.benchmarks.Fixtures;
+import com.habitforge.habitforge_backend.dto.HabitDTO;
+import com.habitforge.habitforge_backend.dto.HabitStatsDTO;
+import com.habitforge.habitforge_backend.model.Habit;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Entity -> DTO conversion (decodes the completion bitmap into completedDays) and the stats computation,
+ * across a month, a year and five years of history.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class HabitServiceBenchmark {
+
+    @Param({"30", "365", "1825"})
+    int historyDays;
+
+    private HabitService habitService;
+    private Habit habit;
+
+    @Setup
+    public void setUp() {
+        // convertToDTO touches none of the collaborators
+        habitService = new HabitService(null, null, null, null, null, null, null);
+        habit = Fixtures.habit(historyDays);
+    }
+
+    @Benchmark
+    public HabitDTO convertToDTO() {
+        return habitService.convertToDTO(habit);
+    }
+
+    @Benchmark
+    public HabitStatsDTO computeStats() {
+        return HabitStats.compute(habit, Fixtures.TODAY);
+    }
+}
@@ -0,0 +1,68 @@
+package com.habitforge.habitforge_backend.service;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-minute work of the reminder scheduler: reading the due slot from the timing wheel,
+ * and bucketing local reminder times into UTC minutes as the hourly rebucket does.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class ReminderScheduleBenchmark {
+
+    private static final Instant NOW = Instant.parse("2026-03-07T12:00:00Z");
+    private static final ZoneId[] ZONES = {
+            ZoneId.of("America/New_York"), ZoneId.of("Europe/Berlin"), ZoneId.of("Asia/Kolkata"), ZoneId.of("UTC")};
+
+    @Param({"10000", "100000"})
+    int reminders;
+
+    private ReminderTimingWheel wheel;
+    private LocalTime[] localTimes;
+    private int slot;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42L);
+        wheel = new ReminderTimingWheel();
+        // Reminders cluster on the hour and half hour, as people pick round times
+        for (long id = 1; id <= reminders; id++) {
+            wheel.schedule(id, random.nextInt(24) * 60 + (random.nextBoolean() ? 0 : 30));
+        }
+        localTimes = new LocalTime[1024];
+        for (int i = 0; i < localTimes.length; i++) {
+            localTimes[i] = LocalTime.of(random.nextInt(24), random.nextInt(60));
+        }
+    }
+
+    @Benchmark
+    public Set<Long> dueAtBusySlot() {
+        return wheel.dueAt(8 * 60);
+    }
+
+    @Benchmark
+    public void dueAtEveryMinute(Blackhole blackhole) {
+        slot = (slot + 1) % ReminderTimingWheel.SLOTS;
+        blackhole.consume(wheel.dueAt(slot));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1024)
+    public void utcSlotOf(Blackhole blackhole) {
+        for (int i = 0; i < localTimes.length; i++) {
+            blackhole.consume(ReminderTimingWheel.utcSlotOf(localTimes[i], ZONES[i & 3], NOW));
+        }
+    }
+}
@@ -1,4 +1,4 @@
-import React, { useEffect, useState, useCallback } from 'react';
+import React, { useEffect, useState, useCallback, useRef } from 'react';
 import defaultProfile from './assets/profiledef.jpg';
 import logo from './assets/HabitForgeLogo.png';
 import './Dashboard.css';
@@ -29,11 +29,21 @@ function Dashboard({ user, setUser, onLogout }) {
     const url = new URL('/api/habits/sorted', window.location.origin);
     url.searchParams.append('sortBy', sortBy);
 
-    const res = await fetch(url.toString(), {
-      headers: { Authorization: `Bearer ${token}` },
-    });
+    // The server returns one page at a time; follow X-Next-Cursor until the last page
+    const data = [];
+    let cursor = null;
+    let res;
+    do {
+      if (cursor) url.searchParams.set('cursor', cursor);
+      res = await fetch(url.toString(), {
+        headers: { Authorization: `Bearer ${token}` },
+      });
+      if (!res.ok) break;
+      data.push(...(await res.json()));
+      cursor = res.headers.get('X-Next-Cursor');
+    } while (cursor);
+
     if (res.ok) {
-      const data = await res.json();
 
       console.log("Fetched habits:", data);  // Debug: check reminderTime values
 
@@ -63,6 +73,128 @@ function Dashboard({ user, setUser, onLogout }) {
     fetchHabits();
   }, [fetchHabits]);
 
+  // The stream effect below only depends on the token; it reaches the current fetchHabits through this ref
+  const fetchHabitsRef = useRef(fetchHabits);
+  useEffect(() => {
+    fetchHabitsRef.current = fetchHabits;
+  }, [fetchHabits]);
+
+  // Reminders and "today" follow the browser's zone; tell the server when it differs from what it has
+  useEffect(() => {
+    const timeZone = Intl.DateTimeFormat().resolvedOptions().timeZone;
+    if (!token || !user || !timeZone || user.timeZone === timeZone) return;
+    fetch('/api/users/time-zone', {
+      method: 'PUT',
+      headers: {
+        'Content-Type': 'application/json',
+        Authorization: `Bearer ${token}`,
+      },
+      body: JSON.stringify({ timeZone }),
+    })
+      .then(res => {
+        if (res.ok) setUser(prev => ({ ...prev, timeZone }));
+      })
+      .catch(err => console.error('Error updating time zone:', err));
+  }, [token, user, setUser]);
+
+  // Mutations return the updated habit, so patch it into the list instead of refetching everything
+  const upsertHabit = updated => {
+    setHabits(prev => {
+      const index = prev.findIndex(h => h.id === updated.id);
+      if (index === -1) return [...prev, updated];
+      const next = [...prev];
+      next[index] = updated;
+      return next;
+    });
+    setReminderTimes(prev => ({ ...prev, [updated.id]: updated.reminderTime || '' }));
+  };
+
+  // Live updates from other tabs and devices. EventSource cannot send the Authorization header,
+  // so the event stream is read through fetch; it reconnects a few seconds after dropping.
+  useEffect(() => {
+    const controller = new AbortController();
+    let retryTimer;
+    let lastVersion = null; // Newest list version applied from the stream
+
+    const applyDelta = delta => {
+      const deleted = new Set(delta.deletedIds);
+      setHabits(prev => {
+        const changed = new Map(delta.habits.map(h => [h.id, h]));
+        const next = prev.filter(h => !deleted.has(h.id)).map(h => changed.get(h.id) || h);
+        delta.habits.forEach(h => {
+          if (!prev.some(p => p.id === h.id)) next.push(h);
+        });
+        return next;
+      });
+      setReminderTimes(prev => {
+        const next = { ...prev };
+        delta.habits.forEach(h => { next[h.id] = h.reminderTime || ''; });
+        delta.deletedIds.forEach(id => { delete next[id]; });
+        return next;
+      });
+      lastVersion = delta.version;
+    };
+
+    // Each connection opens with the current version; changes made while disconnected come from ?since=
+    const catchUp = async version => {
+      if (lastVersion === null) {
+        lastVersion = version;
+        return;
+      }
+      if (version <= lastVersion) return;
+      const res = await fetch(`/api/habits?since=${lastVersion}`, {
+        headers: { Authorization: `Bearer ${token}` },
+        signal: controller.signal,
+      });
+      if (!res.ok) throw new Error(`Catch-up failed: ${res.status}`);
+      const delta = await res.json();
+      if (delta.full) {
+        // The server no longer has every deletion since lastVersion; reload the list in the current sort order
+        await fetchHabitsRef.current();
+        lastVersion = delta.version;
+      } else {
+        applyDelta(delta);
+      }
+    };
+
+    const connect = async () => {
+      try {
+        const res = await fetch('/api/habits/stream', {
+          headers: { Authorization: `Bearer ${token}`, Accept: 'text/event-stream' },
+          signal: controller.signal,
+        });
+        if (!res.ok || !res.body) throw new Error(`Stream failed: ${res.status}`);
+
+        const reader = res.body.pipeThrough(new TextDecoderStream()).getReader();
+        let buffer = '';
+        for (;;) {
+          const { value, done } = await reader.read();
+          if (done) break;
+          buffer += value;
+          let end;
+          while ((end = buffer.indexOf('\n\n')) !== -1) {
+            const lines = buffer.slice(0, end).split('\n');
+            buffer = buffer.slice(end + 2);
+            const name = lines.find(l => l.startsWith('event:'))?.slice(6).trim();
+            const data = lines.filter(l => l.startsWith('data:')).map(l => l.slice(5)).join('\n');
+            if (name === 'habits' && data) applyDelta(JSON.parse(data));
+            if (name === 'version' && data) await catchUp(JSON.parse(data).version);
+          }
+        }
+      } catch (err) {
+        if (controller.signal.aborted) return;
+        console.error('Habit stream error:', err);
+      }
+      if (!controller.signal.aborted) retryTimer = setTimeout(connect, 5000);
+    };
+
+    connect();
+    return () => {
+      controller.abort();
+      clearTimeout(retryTimer);
+    };
+  }, [token]);
+
   useEffect(() => {
     function getTimeLeftString(reminderTimeStr) {
       if (!reminderTimeStr) return null;
@@ -118,9 +250,9 @@ function Dashboard({ user, setUser, onLogout }) {
         headers: { Authorization: `Bearer ${token}` },
       });
       if (res.ok) {
-        await fetchHabits();
-        const habit = habits.find(h => h.id === habitId);
-        if (habit && habit.currentStreak + 1 >= habit.targetDays) {
+        const updated = await res.json();
+        upsertHabit(updated);
+        if (updated.currentStreak >= updated.targetDays) {
           triggerConfetti();
         }
       } else {
@@ -149,7 +281,7 @@ function Dashboard({ user, setUser, onLogout }) {
       });
       if (res.ok) {
         setConfirmDeleteHabitId(null);
-        await fetchHabits();
+        setHabits(prev => prev.filter(h => h.id !== habitId));
       } else {
         alert('Failed to delete habit.');
       }
@@ -179,7 +311,7 @@ function Dashboard({ user, setUser, onLogout }) {
       if (res.ok) {
         setNewHabitTitle('');
         setNewHabitTargetDays('');
-        await fetchHabits();
+        upsertHabit(await res.json());
       } else {
         alert('Failed to create habit.');
       }
@@ -226,7 +358,7 @@ function Dashboard({ user, setUser, onLogout }) {
     });
 
     if (res.ok) {
-      await fetchHabits();  // Refresh habits & reminderTimes from backend
+      upsertHabit(await res.json());  // Updates habits & reminderTimes from the response
       setEditHabit(null);   // Then close the modal
     } else {
       alert('Failed to edit habit.');
@@ -266,7 +398,9 @@ const toggleReminder = habitId => {
           reminderTime: timeStr || null,
         }),
       });
-      if (!res.ok) {
+      if (res.ok) {
+        upsertHabit(await res.json());
+      } else {
         alert('Failed to update reminder.');
       }
     } catch (err) {
@@ -332,9 +466,7 @@ const toggleReminder = habitId => {
             {user?.username?.trim() ? `Hello, ${user.username}` : 'Hello!'}
             <img
               src={
-    user?.profilePicUrl
-    ? user.profilePicUrl
-    : defaultProfile
+    user?.profilePicThumbnailUrl || user?.profilePicUrl || defaultProfile
   }
               alt="Profile"
               className="dashboard-profile-pic"